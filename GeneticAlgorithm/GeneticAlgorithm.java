@@ -1,7 +1,15 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
+import org.cloudbus.cloudsim.Log;
 
 public abstract class GeneticAlgorithm {
 	private List<Chromosome> population = new ArrayList<Chromosome>();
@@ -18,8 +26,28 @@ public abstract class GeneticAlgorithm {
 	private int[] x;
 	private double y;
 	private int geneI;
-	
-	private int taskSize = 1;
+	/*Number of the best chromosomes copied unchanged into the next generation*/
+	private int eliteNum = 1;
+
+	/*Fitness is evaluated on a pool of threads that lives as long as caculte(), each worker runs its own simulation*/
+	private int threadNum = Runtime.getRuntime().availableProcessors();
+	private ExecutorService pool;
+	/*Scores of the values of x already evaluated, so that the same x is never simulated twice*/
+	private Map<GeneKey, Double> scores = new HashMap<GeneKey, Double>();
+	private int evaluations;
+	private int cacheHits;
+	private double evaluationsPerSecond;
+
+	/*Number of new values of x simulated in each generation when they are screened by estimateY(), 0 simulates all of them*/
+	private int screenNum = 0;
+	/*Estimated scores of the values of x that were screened out, they are simulated if they are screened in later*/
+	private Map<GeneKey, Double> estimates = new HashMap<GeneKey, Double>();
+	private int screenedOut;
+	/*Error of estimateY() against caculateY() over the values of x both estimated and simulated*/
+	private int errorNum;
+	private double errorSum;
+	private double errorMax;
+
 	private String daxPath;
 	private HashMap<String, Integer> taskType;
 	private HashMap<String, Integer> perTaskFiles;
@@ -31,11 +59,21 @@ public abstract class GeneticAlgorithm {
 
 	public void caculte() {
 		generation = 1;
-		init();
-		while (generation < maxIterNum) {
-			evolve();
-			print();
-			generation++;
+		/*The simulations run at the same time would interleave their output in the shared Log*/
+		boolean logDisabled = Log.isDisabled();
+		Log.disable();
+		pool = Executors.newFixedThreadPool(threadNum);
+		try {
+			init();
+			while (generation < maxIterNum) {
+				evolve();
+				print();
+				generation++;
+			}
+		} finally {
+			pool.shutdownNow();
+			pool = null;
+			Log.setDisabled(logDisabled);
 		}
 	}
 
@@ -50,6 +88,10 @@ public abstract class GeneticAlgorithm {
 		System.out.println("the worst fitness is:" + worstScore);
 		System.out.println("the average fitness is:" + averageScore);
 		System.out.println("the total fitness is:" + totalScore);
+		System.out.printf("evaluations:%d\tcache hits:%d\tevaluations/sec:%.2f\n", evaluations, cacheHits, evaluationsPerSecond);
+		if (screenNum > 0) {
+			System.out.printf("screened out:%d\testimate error:mean %.4f max %.4f over %d evaluations\n", screenedOut, getMeanEstimateError(), errorMax, errorNum);
+		}
 		System.out.println("geneI:" + geneI + "\ty:" + y + "\tx:");
 		if (x != null) {
 			for (int i = 0; i < x.length; i++) {
@@ -60,8 +102,8 @@ public abstract class GeneticAlgorithm {
 	}
 
 	private void init() {
+		population = new ArrayList<Chromosome>();
 		for (int i = 0; i < popSize; i++) {
-			population = new ArrayList<Chromosome>();
 			Chromosome chro = new Chromosome(geneSize);
 			population.add(chro);
 		}
@@ -71,6 +113,9 @@ public abstract class GeneticAlgorithm {
 
 	private void evolve() {
 		List<Chromosome> childPopulation = new ArrayList<Chromosome>();
+		for (Chromosome chro : getElites()) {
+			childPopulation.add(chro);
+		}
 		while (childPopulation.size() < popSize) {
 			Chromosome p1 = getParentChromosome();
 			Chromosome p2 = getParentChromosome();
@@ -81,6 +126,10 @@ public abstract class GeneticAlgorithm {
 				}
 			} 
 		}
+		/*Children come in pairs, the last pair may not fit*/
+		while (childPopulation.size() > popSize) {
+			childPopulation.remove(childPopulation.size() - 1);
+		}
 		
 		List<Chromosome> t = population;
 		population = childPopulation;
@@ -104,54 +153,52 @@ public abstract class GeneticAlgorithm {
 		return null;
 	}
 
+	/**
+	 * Copies the best chromosomes of the population, best first.
+	 */
+	private List<Chromosome> getElites() {
+		List<Chromosome> sorted = new ArrayList<Chromosome>();
+		for (Chromosome chro : population) {
+			if (chro != null) {
+				sorted.add(chro);
+			}
+		}
+		Collections.sort(sorted, new Comparator<Chromosome>() {
+			@Override
+			public int compare(Chromosome c1, Chromosome c2) {
+				return Double.compare(c2.getScore(), c1.getScore());
+			}
+		});
+		List<Chromosome> elites = new ArrayList<Chromosome>();
+		for (int i = 0; i < eliteNum && i < sorted.size(); i++) {
+			Chromosome copy = Chromosome.clone(sorted.get(i));
+			copy.setScore(sorted.get(i).getScore());
+			elites.add(copy);
+		}
+		return elites;
+	}
+
 	private void caculteScore() {
-		setChromosomeScore(population.get(0));
+		evaluateScores();
+
 		bestScore = population.get(0).getScore();
 		worstScore = population.get(0).getScore();
 		totalScore = 0;
+		int scoredNum = 0;
 
-		// Failed to lauch multiple threads for parallel execution, Class CloudSim contains lots of static methods and variables, static variables are not thread safe.
-		/*Init resource pool//
-		ExecutorService pool = Executors.newFixedThreadPool(taskSize);
-		List<Future> list = new ArrayList<Future>();
-		HashMap<Future, Chromosome> tmpRelation = new HashMap<Future, Chromosome>();
-		int k = 0;
 		for (Chromosome chro : population) {
-                       if (chro == null) {
+			if (chro == null) {
 				continue;
 			}
-			int[] x = changeX(chro);
-			Callable c = new CalculateScore(daxPath, taskType, perTaskFiles, files2Task, x, k);
-			Future f = pool.submit(c);
-			list.add(f);
-			tmpRelation.put(f, chro);
-			k++;
-		}	
-		pool.shutdown();
-		for (Future f : list) {
-			double score = 0;
-			try {
-			  score = (double) f.get();
-			} catch (Exception e) {
-			  
-			}
-			Chromosome chro = tmpRelation.get(f);
-			int id = population.indexOf(chro);
-			chro.setScore(score);
-			population.set(id, chro);
-                }
-
-		/*Finish parallel execution*/
-
-		for (Chromosome chro : population) {
-			setChromosomeScore(chro);
+			scoredNum++;
 			if (chro.getScore() > bestScore) {
 				bestScore = chro.getScore();
-				if (y < bestScore) {
-					x = changeX(chro);
-					y = bestScore;
-					geneI = generation;
-				}
+			}
+			/*Only a simulated score can be the best one*/
+			if (y < chro.getScore() && scores.containsKey(new GeneKey(canonicalX(changeX(chro))))) {
+				x = changeX(chro);
+				y = chro.getScore();
+				geneI = generation;
 			}
 
 			if (chro.getScore() < worstScore) {
@@ -161,27 +208,138 @@ public abstract class GeneticAlgorithm {
 			totalScore += chro.getScore();
 		}
 
-		averageScore = totalScore / popSize;
+		averageScore = totalScore / scoredNum;
 		averageScore = averageScore > bestScore ? bestScore : averageScore;
 	}
 
-	private void mutation()  {
+	/**
+	 * Sets the score of every chromosome. The values of x that have not been seen before are
+	 * evaluated on the pool, each one once, and the others are taken from the scores already known.
+	 * Values of x are compared after canonicalX(), so the values that only differ where they have
+	 * no effect share one score. When the new values are screened, only the screenNum best of them
+	 * by estimateY() are evaluated and the others keep their estimated score. A value of x whose
+	 * evaluation fails scores 0 in this generation only, it is evaluated again when it comes back.
+	 *
+	 * @throws CancellationException if the thread is interrupted, the generation is then aborted
+	 */
+	private void evaluateScores() {
+		long start = System.nanoTime();
+		Map<GeneKey, int[]> candidates = new LinkedHashMap<GeneKey, int[]>();
+		evaluations = 0;
+		cacheHits = 0;
+		screenedOut = 0;
 		for (Chromosome chro : population) {
-			if (Math.random() < mutationRate) {
-				int mutationNum = (int) (Math.random() * maxMutationNum);
-				chro.mutation(mutationNum);
+			if (chro == null) {
+				continue;
+			}
+			int[] x = canonicalX(changeX(chro));
+			GeneKey key = new GeneKey(x);
+			if (scores.containsKey(key) || candidates.containsKey(key)) {
+				cacheHits++;
+				continue;
 			}
+			candidates.put(key, x);
+		}
+		Map<GeneKey, Double> estimated = screen(candidates);
+		Map<GeneKey, Future<Double>> pending = new LinkedHashMap<GeneKey, Future<Double>>();
+		for (Map.Entry<GeneKey, int[]> entry : candidates.entrySet()) {
+			final int[] x = entry.getValue();
+			Callable<Double> task = new Callable<Double>() {
+				@Override
+				public Double call() {
+					return caculateY(x);
+				}
+			};
+			pending.put(entry.getKey(), pool.submit(task));
 		}
+		Set<GeneKey> failed = new HashSet<GeneKey>();
+		for (Map.Entry<GeneKey, Future<Double>> entry : pending.entrySet()) {
+			double score;
+			try {
+				score = entry.getValue().get();
+			} catch (InterruptedException e) {
+				for (Future<Double> future : pending.values()) {
+					future.cancel(true);
+				}
+				Thread.currentThread().interrupt();
+				CancellationException cancelled = new CancellationException("Generation " + generation + " was interrupted");
+				cancelled.initCause(e);
+				throw cancelled;
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+				failed.add(entry.getKey());
+				continue;
+			}
+			scores.put(entry.getKey(), score);
+			estimates.remove(entry.getKey());
+			evaluations++;
+			Double estimate = estimated.get(entry.getKey());
+			if (estimate != null) {
+				double error = Math.abs(estimate - score);
+				errorNum++;
+				errorSum += error;
+				errorMax = Math.max(errorMax, error);
+			}
+		}
+		for (Chromosome chro : population) {
+			if (chro != null) {
+				GeneKey key = new GeneKey(canonicalX(changeX(chro)));
+				Double score = scores.get(key);
+				if (score == null) {
+					score = failed.contains(key) ? 0.0 : estimates.get(key);
+				}
+				chro.setScore(score);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		evaluationsPerSecond = seconds > 0 ? evaluations / seconds : 0;
 	}
 
-	private void setChromosomeScore(Chromosome chro) {
-		if (chro == null) {
-			return;
+	/**
+	 * Screens the new values of x. The candidates are estimated and all but the screenNum best of
+	 * them are removed, their estimate is kept as their score.
+	 *
+	 * @return the estimates of the candidates that are left, empty if they are not screened
+	 */
+	private Map<GeneKey, Double> screen(Map<GeneKey, int[]> candidates) {
+		Map<GeneKey, Double> estimated = new HashMap<GeneKey, Double>();
+		if (screenNum <= 0) {
+			return estimated;
+		}
+		for (Map.Entry<GeneKey, int[]> entry : candidates.entrySet()) {
+			double estimate = estimateY(entry.getValue());
+			if (Double.isNaN(estimate)) {
+				/*No estimator, every candidate is simulated*/
+				return new HashMap<GeneKey, Double>();
+			}
+			estimated.put(entry.getKey(), estimate);
+		}
+		final Map<GeneKey, Double> order = estimated;
+		List<GeneKey> ranked = new ArrayList<GeneKey>(candidates.keySet());
+		Collections.sort(ranked, new Comparator<GeneKey>() {
+			@Override
+			public int compare(GeneKey k1, GeneKey k2) {
+				return Double.compare(order.get(k2), order.get(k1));
+			}
+		});
+		for (int i = screenNum; i < ranked.size(); i++) {
+			GeneKey key = ranked.get(i);
+			candidates.remove(key);
+			estimates.put(key, estimated.remove(key));
+			screenedOut++;
+		}
+		return estimated;
+	}
+
+	private void mutation()  {
+		/*The elites are at the head of the population and are not mutated*/
+		for (int i = eliteNum; i < population.size(); i++) {
+			Chromosome chro = population.get(i);
+			if (chro != null && Math.random() < mutationRate) {
+				int mutationNum = (int) (Math.random() * maxMutationNum);
+				chro.mutation(mutationNum);
+			}
 		}
-		int[] x = changeX(chro);
-		double y = caculateY(x);
-		chro.setScore(y);
- 
 	}
 
        public void setWorkflowSimInfo(String path, HashMap<String, Integer> type, HashMap<String, Integer> files, HashMap<String, String> task) {
@@ -194,6 +352,24 @@ public abstract class GeneticAlgorithm {
 	public abstract int[] changeX(Chromosome chro);
 	public abstract double caculateY(int[] x);
 
+	/**
+	 * Maps a value of x to the one that is evaluated, so that the values that caculateY() cannot
+	 * tell apart share one score. By default, x is evaluated as it is.
+	 */
+	public int[] canonicalX(int[] x) {
+		return x;
+	}
+
+	/**
+	 * Estimates caculateY(x) without evaluating it, on the same scale. It is only called when the
+	 * candidates are screened, see setScreenNum(). By default, there is no estimate.
+	 *
+	 * @return the estimate, or NaN if there is none
+	 */
+	public double estimateY(int[] x) {
+		return Double.NaN;
+	}
+
 	public void setPopulation(List<Chromosome> population) {
 		this.population = population;
 	}
@@ -217,6 +393,30 @@ public abstract class GeneticAlgorithm {
 	public void setMaxMutationNum(int maxMutationNum) {
 		this.maxMutationNum = maxMutationNum;
 	}
+
+	public void setEliteNum(int eliteNum) {
+		this.eliteNum = eliteNum;
+	}
+
+	public void setThreadNum(int threadNum) {
+		this.threadNum = threadNum;
+	}
+
+	public void setScreenNum(int screenNum) {
+		this.screenNum = screenNum;
+	}
+
+	public double getMeanEstimateError() {
+		return errorNum > 0 ? errorSum / errorNum : 0;
+	}
+
+	public double getMaxEstimateError() {
+		return errorMax;
+	}
+
+	public double getEvaluationsPerSecond() {
+		return evaluationsPerSecond;
+	}
  
 	public double getBestScore() {
 		return bestScore;
@@ -242,4 +442,27 @@ public abstract class GeneticAlgorithm {
 		return y;
 	}
 
+	/**
+	 * The key of a value of x in the scores, compared by content.
+	 */
+	private static final class GeneKey {
+		private final int[] x;
+		private final int hash;
+
+		GeneKey(int[] x) {
+			this.x = x;
+			this.hash = Arrays.hashCode(x);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof GeneKey && hash == ((GeneKey) o).hash && Arrays.equals(x, ((GeneKey) o).x);
+		}
+	}
+
 }
@@ -2,24 +2,29 @@ import java.io.File;
 import java.io.RandomAccessFile;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Date;
 import java.util.Random;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Set;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.HarddriveStorage;
 import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.HybridStorage;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.VmAllocationPolicySimple;
 import org.cloudbus.cloudsim.VmSchedulerTimeShared;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
@@ -28,6 +33,7 @@ import org.workflowsim.Task;
 import org.workflowsim.WorkflowDatacenter;
 import org.workflowsim.Job;
 import org.workflowsim.FileItem;
+import org.workflowsim.FilePartition;
 import org.workflowsim.WorkflowEngine;
 import org.workflowsim.WorkflowPlanner;
 import org.workflowsim.WorkflowParser;
@@ -42,10 +48,19 @@ import org.workflowsim.utils.Parameters.FileType;
 public class GeneticAlgorithmTest extends GeneticAlgorithm {
 	public static int jobNum;
  	public static String daxPath;
+	/*Parsed dax files are cached here, so that each simulation does not parse the dax file again*/
+	public static String daxCachePath = System.getProperty("java.io.tmpdir") + File.separator + "workflowsim-dax";
 	public static HashMap<String, Integer> taskType;
 	public static HashMap<String, Integer> perTaskFiles;
 	public static HashMap<String, String> files2Task;
-	
+	/*The parsed tasks and the number of storage strategies that are used, for canonicalX() and estimateY()*/
+	public static List<Task> taskList;
+	public static int usedStrategyNum;
+	/*Tiers whose cost formulas are used by estimateY(), no file is added to them*/
+	public static HybridStorage costModel;
+	public static final int VM_MIPS = 1000;
+	public static final long VM_BW = 1000;
+
 
 	public GeneticAlgorithmTest(int num) {
 		//Two bits represent one storage strategy for one job
@@ -63,6 +78,22 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
 		return rvalue;
 	}
 
+	/*The strategies after the ones used by the tasks are never read, they are all set to 0*/
+	@Override
+	public int[] canonicalX(int[] x) {
+		if (usedStrategyNum >= x.length) {
+			return x;
+		}
+		int[] canonical = x.clone();
+		Arrays.fill(canonical, usedStrategyNum, canonical.length, 0);
+		return canonical;
+	}
+
+	@Override
+	public double estimateY(int[] x) {
+		return 1000 - Math.log(estimateTime(x));
+	}
+
 	public static void main(String[] args) {
 		daxPath = args[0];
 		System.err.println("Processing dax file: " + daxPath);
@@ -70,6 +101,10 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
 		System.out.printf("Num of file is %d\n", fileTypeNum);
 		GeneticAlgorithmTest test = new GeneticAlgorithmTest(fileTypeNum);
 		test.setWorkflowSimInfo(daxPath, taskType, perTaskFiles, files2Task);
+		if (args.length > 1) {
+			/*Only the given number of new candidates of each generation are simulated*/
+			test.setScreenNum(Integer.parseInt(args[1]));
+		}
 		test.caculte();
 		int[] storageStrategy = test.bestX();
 		WorkfowSimulator(storageStrategy, true);
@@ -81,8 +116,8 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
 	LinkedList<CondorVM> list = new LinkedList<>();
 	long size = 10000;
 	int ram = 512;
-        int mips = 1000;
-        long bw = 1000;
+        int mips = VM_MIPS;
+        long bw = VM_BW;
         int pesNumber = 1;
         String vmm = "Xen";
 
@@ -98,6 +133,8 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
 
   public static double WorkfowSimulator(int[] storageStrategy, boolean printLog) {
 	double totalTime = 0.0;
+	/*Each simulation owns its context, so that several simulations can run at the same time*/
+	SimulationContext context = new SimulationContext().bind();
 	try {
             int vmNum = 20;/*number of vms;*/
             File daxFile = new File(daxPath);
@@ -114,6 +151,7 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
             Parameters.init(vmNum, daxPath, null,
                     null, op, cp, sch_method, pln_method,
                     null, 0);
+            Parameters.setDaxCachePath(daxCachePath);
             ReplicaCatalog.init(file_system);
             int num_user = 1;
             Calendar calendar = Calendar.getInstance();
@@ -124,24 +162,7 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
             datacenter0.setHybridStorage();
 
             /*Set storageStrategy for jobs. Jobs has the same type shares the same storage strategy*/
-            HashMap<String, List<Integer>> perTaskstorage = new HashMap<String, List<Integer>>();
-	    int tmpnum = 0;
-	    int currentTaskType = 0;
-	    int pointer = 0;
-	    int tmpfiles = 0;
-	    List<Integer> tmpTaskStorage = new ArrayList<>();
-	    Iterator<String> iterator = perTaskFiles.keySet().iterator();
-	    String tmpTask = null;
-	    while (iterator.hasNext()) {
-		tmpTaskStorage  = new ArrayList<>();
-		tmpTask = iterator.next();
-		tmpfiles = perTaskFiles.get(tmpTask);
-		for (int j = 0; j < tmpfiles; j++) {
-                  tmpTaskStorage.add(storageStrategy[currentTaskType]);
-                  currentTaskType++;
-                }
-		perTaskstorage.put(tmpTask, tmpTaskStorage);
-	    }
+            HashMap<String, List<Integer>> perTaskstorage = getPerTaskStorage(storageStrategy);
             datacenter0.setStorageStrategy(perTaskstorage);
 	    datacenter0.setFilesToTask(files2Task);
 
@@ -176,7 +197,86 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
 	    */
         }catch (Exception e) {
             Log.printLine("The simulation has been terminated due to an unexpected error");
-        }
+        } finally {
+	    context.unbind();
+	}
+	return totalTime;
+  }
+
+  /*
+   * Maps the storage strategies to the output files of each task type, in the order of perTaskFiles.
+   */
+  public static HashMap<String, List<Integer>> getPerTaskStorage(int[] storageStrategy) {
+	HashMap<String, List<Integer>> perTaskstorage = new HashMap<String, List<Integer>>();
+	int currentTaskType = 0;
+	Iterator<String> iterator = perTaskFiles.keySet().iterator();
+	while (iterator.hasNext()) {
+	    List<Integer> tmpTaskStorage = new ArrayList<>();
+	    String tmpTask = iterator.next();
+	    int tmpfiles = perTaskFiles.get(tmpTask);
+	    for (int j = 0; j < tmpfiles; j++) {
+		tmpTaskStorage.add(storageStrategy[currentTaskType]);
+		currentTaskType++;
+	    }
+	    perTaskstorage.put(tmpTask, tmpTaskStorage);
+	}
+	return perTaskstorage;
+  }
+
+  /*
+   * Estimates the value WorkfowSimulator() returns, the total time of the jobs, without simulating.
+   * Each task takes its runtime on one vm, plus reading its real input files from the tier where
+   * they were written and writing its output files to the tier of its strategy, with the cost
+   * formulas of HybridStorage. As in WorkflowDatacenter, a file out of tier 0 is read from the
+   * shared tier and a file in tier 0 is read through the vm bandwidth. The tiers are taken as
+   * large enough for every file and the stage-in job writes the input files of the workflow to
+   * the shared tier.
+   */
+  public static double estimateTime(int[] storageStrategy) {
+	HashMap<String, List<Integer>> perTaskstorage = getPerTaskStorage(storageStrategy);
+	int shared = costModel.getStorageNum() - 1;
+	HashMap<String, Integer> fileTier = new HashMap<>();
+	Set<String> outputNames = new HashSet<>();
+	for (Task task : taskList) {
+	    for (FileItem file : task.getFilePartition().getOutputFiles()) {
+		outputNames.add(file.getName());
+	    }
+	}
+	double totalTime = 0.0;
+	for (Task task : taskList) {
+	    for (FileItem file : task.getFilePartition().getRealInputFiles()) {
+		if (!outputNames.contains(file.getName()) && !fileTier.containsKey(file.getName())) {
+		    fileTier.put(file.getName(), shared);
+		    totalTime += costModel.predictFileWriteTime(file.getSize(), shared);
+		}
+	    }
+	}
+	for (Task task : taskList) {
+	    double time = (double) task.getCloudletLength() / VM_MIPS;
+	    FilePartition partition = task.getFilePartition();
+	    for (FileItem file : partition.getRealInputFiles()) {
+		Integer tier = fileTier.get(file.getName());
+		if (tier != null && tier == 0 && costModel.getMaxTransferRate(0) > VM_BW) {
+		    time += file.getSize() / 1e6 / VM_BW;
+		} else if (tier != null && tier == 0) {
+		    time += costModel.predictFileReadTime(file.getSize(), 0);
+		} else {
+		    time += costModel.predictFileReadTime(file.getSize(), shared);
+		}
+	    }
+	    int inputFileNum = partition.getRealInputFiles().size() + partition.getIntermediateFiles().size();
+	    List<Integer> perFileStorage = perTaskstorage.get(task.getType() + inputFileNum);
+	    int fileid = 0;
+	    for (FileItem file : partition.getOutputFiles()) {
+		int tier = perFileStorage == null ? shared : Math.min(perFileStorage.get(fileid), shared);
+		fileid++;
+		time += costModel.predictFileWriteTime(file.getSize(), tier);
+		if (!fileTier.containsKey(file.getName())) {
+		    fileTier.put(file.getName(), tier);
+		}
+	    }
+	    totalTime += time;
+	}
 	return totalTime;
   }
 
@@ -359,6 +459,7 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
             Parameters.init(vmNum, daxPath, null,
                     null, op, cp, sch_method, pln_method,
                     null, 0);
+            Parameters.setDaxCachePath(daxCachePath);
             ReplicaCatalog.init(file_system);
             int num_user = 1;
             Calendar calendar = Calendar.getInstance();
@@ -423,6 +524,16 @@ public class GeneticAlgorithmTest extends GeneticAlgorithm {
 		files2Task.put(taskFiles, tmpType);
 		//System.out.println("Debug!!! Files of task " + tmpType + " is " + taskFiles);
 	    }
+	    taskList = mtask;
+	    usedStrategyNum = 0;
+	    for (int files : perTaskFiles.values()) {
+		usedStrategyNum += files;
+	    }
+	    try {
+		costModel = new HybridStorage();
+	    } catch (Exception e) {
+		e.printStackTrace();
+	    }
 	    return perFileStrategies;
     }
 
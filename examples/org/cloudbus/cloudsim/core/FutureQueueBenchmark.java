@@ -0,0 +1,108 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Random;
+
+/**
+ * A microbenchmark of the future event queue implementations. Each run keeps a fixed number of
+ * pending events and then performs one million "hold" operations: the first event is removed and a
+ * new event is added some time after it, which is how a simulation uses the queue. The sparse load
+ * draws exponential delays, the dense load draws small integer delays so that many events share
+ * the same time, and sends some of them with {@link FutureQueue#addEventFirst(SimEvent)}.
+ * <p>
+ * The order in which the events are removed is checked against the {@link SortedSetEventQueue}.
+ * It lives in the <tt>core</tt> package because the events are created directly.
+ *
+ * @since CloudSim Toolkit 1.0
+ */
+public class FutureQueueBenchmark {
+
+	/** The number of hold operations. */
+	private static final int NUM_EVENTS = 1000000;
+
+	/** The number of pending events. */
+	private static final int NUM_PENDING = 10000;
+
+	/** The seed of the random delays. */
+	private static final long SEED = 7;
+
+	/**
+	 * Runs the benchmark.
+	 *
+	 * @param args the args, not used
+	 */
+	public static void main(String[] args) {
+		for (boolean dense : new boolean[] { false, true }) {
+			System.out.println((dense ? "Dense" : "Sparse") + " load, " + NUM_PENDING
+					+ " pending events, " + NUM_EVENTS + " events");
+			long expected = 0;
+			for (FutureQueue.Type type : FutureQueue.Type.values()) {
+				// warm up
+				run(type, dense);
+				long start = System.nanoTime();
+				long checksum = run(type, dense);
+				double seconds = (System.nanoTime() - start) / 1e9;
+				if (type == FutureQueue.Type.SORTED_SET) {
+					expected = checksum;
+				}
+				System.out.printf("%-12s %12.0f events/sec %s%n", type, NUM_EVENTS / seconds,
+						checksum == expected ? "same order" : "DIFFERENT ORDER");
+			}
+		}
+	}
+
+	/**
+	 * Performs the hold operations on a new queue.
+	 *
+	 * @param type the queue implementation
+	 * @param dense whether to use the dense load
+	 * @return a checksum of the order the events were removed
+	 */
+	private static long run(FutureQueue.Type type, boolean dense) {
+		Random random = new Random(SEED);
+		FutureQueue queue = new FutureQueue(type);
+		int tag = 0;
+		for (int i = 0; i < NUM_PENDING; i++) {
+			queue.addEvent(new SimEvent(SimEvent.SEND, delay(random, dense), 0, 0, tag++, null));
+		}
+
+		long checksum = 0;
+		for (int i = 0; i < NUM_EVENTS; i++) {
+			SimEvent first = queue.poll();
+			checksum = checksum * 31 + first.getTag();
+			SimEvent next = new SimEvent(SimEvent.SEND, first.eventTime() + delay(random, dense), 0,
+					0, tag++, null);
+			if (dense && random.nextInt(20) == 0) {
+				queue.addEventFirst(next);
+			} else {
+				queue.addEvent(next);
+			}
+		}
+		while (queue.size() > 0) {
+			checksum = checksum * 31 + queue.poll().getTag();
+		}
+		return checksum;
+	}
+
+	/**
+	 * Draws the delay of a new event.
+	 *
+	 * @param random the random generator
+	 * @param dense whether to use the dense load
+	 * @return the delay
+	 */
+	private static double delay(Random random, boolean dense) {
+		if (dense) {
+			return random.nextInt(10);
+		}
+		return -Math.log(1 - random.nextDouble()) * 100;
+	}
+
+}
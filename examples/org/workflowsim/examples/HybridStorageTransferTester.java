@@ -0,0 +1,66 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.examples;
+
+import java.util.Random;
+import org.cloudbus.cloudsim.HybridStorage;
+
+/**
+ * Checks that the transfers of a HybridStorage sharing its bandwidth all
+ * finish when they start at a large simulation time, where the finish times
+ * are rounded. The storage is driven as WorkflowDatacenter drives it: each
+ * update collects the finished transfers at the next finish time.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class HybridStorageTransferTester {
+
+    /**
+     * The most updates a transfer may need, one per transfer finished before
+     * it plus the rounding of its own finish time.
+     */
+    private static final int MAX_UPDATES = 100;
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(0);
+        for (double start : new double[]{1e4, 2e4, 5e4, 1e5}) {
+            for (int round = 0; round < 500; round++) {
+                int transferNum = 1 + round % 4;
+                check(start + random.nextDouble() * start, transferNum, random);
+            }
+        }
+        System.out.println("HybridStorageTransferTester passed");
+    }
+
+    private static void check(double now, int transferNum, Random random) throws Exception {
+        HybridStorage storage = new HybridStorage();
+        storage.setSharedBandwidth(true);
+        int tier = storage.getStorageNum() - 1;
+        double rate = storage.getMaxTransferRate(tier);
+        for (int i = 0; i < transferNum; i++) {
+            storage.startTransfer(tier, random.nextDouble() * 5000, rate, now);
+        }
+        int finished = 0;
+        for (int update = 0; update < MAX_UPDATES && finished < transferNum; update++) {
+            now = Math.max(storage.getNextTransferTime(), now);
+            finished += storage.finishTransfers(now).size();
+        }
+        if (finished != transferNum || storage.getTransferNum(tier) != 0) {
+            throw new IllegalStateException(storage.getTransferNum(tier)
+                    + " transfers never finished at time " + now);
+        }
+    }
+}
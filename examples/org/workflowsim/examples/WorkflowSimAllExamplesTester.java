@@ -49,6 +49,7 @@ public class WorkflowSimAllExamplesTester {
             WorkflowSimCostExample2.main(args);
             DynamicWorkloadExample1.main(args);
             WorkflowSimMultipleClusterExample1.main(args);
+            HybridStorageTransferTester.main(args);
 
             /*
              * Horizontal Clustering Examples
@@ -92,6 +93,7 @@ public class WorkflowSimAllExamplesTester {
             MAXMINSchedulingAlgorithmExample.main(args);
             MCTSchedulingAlgorithmExample.main(args);
             MINMINSchedulingAlgorithmExample.main(args);
+            LengthOrderedSchedulingAlgorithmTester.main(args);
         } catch (Exception e) {
             Log.printLine("ERROR: please check your workflow examples");
             e.printStackTrace();
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.examples.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.workflowsim.CondorVM;
+import org.workflowsim.Job;
+import org.workflowsim.WorkflowSimTags;
+import org.workflowsim.scheduling.BaseSchedulingAlgorithm;
+import org.workflowsim.scheduling.MaxMinSchedulingAlgorithm;
+import org.workflowsim.scheduling.MinMinSchedulingAlgorithm;
+
+/**
+ * Checks that a MinMin or MaxMin scheduler kept across runs, as
+ * WorkflowScheduler keeps it, schedules the same jobs as a new scheduler, even
+ * when the job list changes between the runs: jobs appended, a job replaced in
+ * place without the list shrinking, and a job removed then another appended.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class LengthOrderedSchedulingAlgorithmTester {
+
+    private static int jobId = 0;
+
+    public static void main(String[] args) {
+        check(MinMinSchedulingAlgorithm::new);
+        check(MaxMinSchedulingAlgorithm::new);
+        System.out.println("LengthOrderedSchedulingAlgorithmTester passed");
+    }
+
+    private static void check(Supplier<BaseSchedulingAlgorithm> reference) {
+        BaseSchedulingAlgorithm kept = reference.get();
+        List<CondorVM> vms = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            vms.add(new CondorVM(i, 0, 1000 + 100 * i, 1, 512, 1000, 10000, "Xen",
+                    new CloudletSchedulerSpaceShared()));
+        }
+        List<Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            jobs.add(newJob(1000 * (i % 3 + 1)));
+        }
+
+        schedule(kept, reference, jobs, vms);
+
+        // replaced in place: same size, the heap must not keep the old job
+        jobs.set(0, newJob(10));
+        schedule(kept, reference, jobs, vms);
+
+        // removed then appended: same size again
+        jobs.remove(jobs.size() - 1);
+        jobs.add(newJob(5));
+        schedule(kept, reference, jobs, vms);
+
+        // appended only
+        jobs.add(newJob(1));
+        jobs.add(newJob(50000));
+        while (!jobs.isEmpty()) {
+            schedule(kept, reference, jobs, vms);
+        }
+    }
+
+    /**
+     * Runs the kept scheduler and a new one on the job list, compares what
+     * they schedule, then removes the scheduled jobs from the list and frees
+     * the vms, as WorkflowScheduler does once the jobs return.
+     */
+    private static void schedule(BaseSchedulingAlgorithm kept,
+            Supplier<BaseSchedulingAlgorithm> reference, List<Job> jobs, List<CondorVM> vms) {
+        List<Integer> expected = run(reference.get(), jobs, vms);
+        for (CondorVM vm : vms) {
+            vm.setState(WorkflowSimTags.VM_STATUS_IDLE);
+        }
+        List<Integer> actual = run(kept, jobs, vms);
+        if (!expected.equals(actual)) {
+            throw new IllegalStateException(kept.getClass().getSimpleName() + " scheduled "
+                    + actual + " instead of " + expected);
+        }
+        jobs.removeAll(kept.getScheduledList());
+        for (CondorVM vm : vms) {
+            vm.setState(WorkflowSimTags.VM_STATUS_IDLE);
+        }
+    }
+
+    private static List<Integer> run(BaseSchedulingAlgorithm scheduler, List<Job> jobs,
+            List<CondorVM> vms) {
+        scheduler.setCloudletList(jobs);
+        scheduler.setVmList(vms);
+        try {
+            scheduler.run();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        List<Integer> scheduled = new ArrayList<>();
+        for (Object cloudlet : scheduler.getScheduledList()) {
+            scheduled.add(((Cloudlet) cloudlet).getCloudletId());
+        }
+        return scheduled;
+    }
+
+    private static Job newJob(long length) {
+        return new Job(jobId++, length);
+    }
+}
@@ -147,6 +147,18 @@ public abstract class CloudletScheduler {
 	 */
 	public abstract int runningCloudlets();
 
+	/**
+	 * Checks whether some cloudlets are in execution or waiting. Updating the processing of a
+	 * scheduler without such cloudlets only records the time and the mips share.
+	 * 
+	 * @return $false if there are no cloudlets to process; $true otherwise, or if unknown
+	 * @pre $none
+	 * @post $none
+	 */
+	public boolean hasPendingCloudlets() {
+		return true;
+	}
+
 	/**
 	 * Returns one cloudlet to migrate to another vm.
 	 * 
@@ -493,6 +493,18 @@ public class CloudletSchedulerSpaceShared extends CloudletScheduler {
 		return getCloudletExecList().size();
 	}
 
+	/**
+	 * Checks whether some cloudlets are in execution or waiting.
+	 * 
+	 * @return $true if there are cloudlets to process
+	 * @pre $none
+	 * @post $none
+	 */
+	@Override
+	public boolean hasPendingCloudlets() {
+		return getCloudletExecList().size() > 0 || getCloudletWaitingList().size() > 0;
+	}
+
 	/**
 	 * Returns one cloudlet to migrate to another vm.
 	 * 
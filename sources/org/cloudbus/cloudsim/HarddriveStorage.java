@@ -9,8 +9,11 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
 
@@ -23,6 +26,8 @@ import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
  * <li>avg seek time = 9 ms
  * <li>max transfer rate = 133 MB/sec
  * </ul>
+ * The files are indexed by name, so that looking a file up does not depend on the number of stored
+ * files.
  * 
  * @author Uros Cibej
  * @author Anthony Sulistio
@@ -30,11 +35,20 @@ import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
  */
 public class HarddriveStorage implements Storage {
 
-	/** a list storing the names of all the files on the harddrive. */
-	private List<String> nameList;
+	/**
+	 * the names of all the files on the harddrive, in the order of the name list, mapped to the
+	 * slot of the file.
+	 */
+	private LinkedHashMap<String, Integer> nameIndex;
+
+	/** the files stored on the harddrive, in the order they were added. Deleted files leave a null. */
+	private File[] slots;
 
-	/** a list storing all the files stored on the harddrive. */
-	private List<File> fileList;
+	/** the number of slots used, including the ones of deleted files. */
+	private int slotCount;
+
+	/** a Fenwick tree of the sizes of the files in the slots, to sum the sizes of the first files. */
+	private int[] slotSizes;
 
 	/** the name of the harddrive. */
 	private final String name;
@@ -101,8 +115,10 @@ public class HarddriveStorage implements Storage {
 	 * created.
 	 */
 	private void init() {
-		fileList = new ArrayList<File>();
-		nameList = new ArrayList<String>();
+		nameIndex = new LinkedHashMap<String, Integer>();
+		slots = new File[16];
+		slotSizes = new int[17];
+		slotCount = 0;
 		gen = null;
 		currentSize = 0;
 
@@ -141,7 +157,7 @@ public class HarddriveStorage implements Storage {
 	 */
 	@Override
 	public int getNumStoredFile() {
-		return fileList.size();
+		return nameIndex.size();
 	}
 
 	/**
@@ -205,15 +221,17 @@ public class HarddriveStorage implements Storage {
 			return true;
 		}
 
-		Iterator<File> it = fileList.iterator();
 		File file = null;
 		int deletedFileSize = 0;
 
 		// if not enough space, then if want to clear/delete some files
 		// then check whether it still have space or not
 		boolean result = false;
-		while (it.hasNext()) {
-			file = it.next();
+		for (int slot = 0; slot < slotCount; slot++) {
+			file = slots[slot];
+			if (file == null) {
+				continue;
+			}
 			if (!file.isReadOnly()) {
 				deletedFileSize += file.getSize();
 			}
@@ -360,28 +378,14 @@ public class HarddriveStorage implements Storage {
 			return obj;
 		}
 
-		Iterator<File> it = fileList.iterator();
-		int size = 0;
-		int index = 0;
-		boolean found = false;
-		File tempFile = null;
-
 		// find the file in the disk
-		while (it.hasNext()) {
-			tempFile = it.next();
-			size += tempFile.getSize();
-			if (tempFile.getName().equals(fileName)) {
-				found = true;
-				obj = tempFile;
-				break;
-			}
-
-			index++;
-		}
+		Integer slot = nameIndex.get(fileName);
 
 		// if the file is found, then determine the time taken to get it
-		if (found) {
-			obj = fileList.get(index);
+		if (slot != null) {
+			obj = slots[slot];
+			// the seek covers the files stored before it and the file itself
+			int size = getSlotsSize(slot);
 			double seekTime = getSeekTime(size);
 			double transferTime = getTransferTime(obj.getSize());
 
@@ -395,11 +399,11 @@ public class HarddriveStorage implements Storage {
 	/**
 	 * Gets the list of file names located on this storage.
 	 * 
-	 * @return a List of file names
+	 * @return a List of file names, in the order they were added or renamed
 	 */
 	@Override
 	public List<String> getFileNameList() {
-		return nameList;
+		return new ArrayList<String>(nameIndex.keySet());
 	}
 
 	/**
@@ -491,8 +495,8 @@ public class HarddriveStorage implements Storage {
 			double seekTime = getSeekTime(file.getSize());
 			double transferTime = getTransferTime(file.getSize());
 
-			fileList.add(file);               // add the file into the HD
-			nameList.add(file.getName());     // add the name to the name list
+			// add the file into the HD and the name to the name list
+			nameIndex.put(file.getName(), addSlot(file));
 			currentSize += file.getSize();    // increment the current HD size
 			result = seekTime + transferTime;  // add total time
 		}
@@ -539,20 +543,14 @@ public class HarddriveStorage implements Storage {
 			return null;
 		}
 
-		Iterator<File> it = fileList.iterator();
+		Integer slot = nameIndex.get(fileName);
 		File file = null;
-		while (it.hasNext()) {
-			file = it.next();
-			String name = file.getName();
 
-			// if a file is found then delete
-			if (fileName.equals(name)) {
-				double result = deleteFile(file);
-				file.setTransactionTime(result);
-				break;
-			} else {
-				file = null;
-			}
+		// if a file is found then delete
+		if (slot != null) {
+			file = slots[slot];
+			double result = deleteFile(file);
+			file.setTransactionTime(result);
 		}
 		return file;
 	}
@@ -589,8 +587,8 @@ public class HarddriveStorage implements Storage {
 
 		// check if the file is in the storage
 		if (contains(file)) {
-			fileList.remove(file);            // remove the file HD
-			nameList.remove(file.getName());  // remove the name from name list
+			// remove the file HD and the name from name list
+			removeSlot(nameIndex.remove(file.getName()));
 			currentSize -= file.getSize();    // decrement the current HD space
 			result = seekTime + transferTime;  // total time
 			file.setTransactionTime(result);
@@ -611,15 +609,7 @@ public class HarddriveStorage implements Storage {
 			Log.printLine(name + ".contains(): Warning - invalid file name");
 			return result;
 		}
-		// check each file in the list
-		Iterator<String> it = nameList.iterator();
-		while (it.hasNext()) {
-			String name = it.next();
-			if (name.equals(fileName)) {
-				result = true;
-				break;
-			}
-		}
+		result = nameIndex.containsKey(fileName);
 		return result;
 	}
 
@@ -658,27 +648,118 @@ public class HarddriveStorage implements Storage {
 		}
 
 		// replace the file name in the file (physical) list
-		File obj = getFile(file.getName());
+		String oldName = file.getName();
+		File obj = getFile(oldName);
 		if (obj == null) {
 			return result;
 		} else {
 			obj.setName(newName);
 		}
 
-		// replace the file name in the name list
-		Iterator<String> it = nameList.iterator();
-		while (it.hasNext()) {
-			String name = it.next();
-			if (name.equals(file.getName())) {
-				file.setTransactionTime(0);
-				nameList.remove(name);
-				nameList.add(newName);
-				result = true;
-				break;
-			}
+		// replace the file name in the name list, the file keeps its place on the disk
+		Integer slot = nameIndex.remove(oldName);
+		if (slot != null) {
+			file.setTransactionTime(0);
+			nameIndex.put(newName, slot);
+			result = true;
 		}
 
 		return result;
 	}
 
+	/**
+	 * Stores a file in a new slot.
+	 * 
+	 * @param file the file
+	 * @return the slot
+	 */
+	private int addSlot(File file) {
+		if (slotCount == slots.length) {
+			if (nameIndex.size() * 2 <= slotCount) {
+				compactSlots();
+			} else {
+				slots = Arrays.copyOf(slots, slots.length * 2);
+				buildSlotSizes();
+			}
+		}
+		int slot = slotCount++;
+		slots[slot] = file;
+		updateSlotSize(slot, file.getSize());
+		return slot;
+	}
+
+	/**
+	 * Removes the file of a slot.
+	 * 
+	 * @param slot the slot
+	 */
+	private void removeSlot(int slot) {
+		// the size the slot was given, even if the size of the file changed since
+		int size = getSlotsSize(slot) - (slot > 0 ? getSlotsSize(slot - 1) : 0);
+		updateSlotSize(slot, -size);
+		slots[slot] = null;
+	}
+
+	/**
+	 * Moves the files to the first slots, keeping their order.
+	 */
+	private void compactSlots() {
+		int[] newSlot = new int[slotCount];
+		int count = 0;
+		for (int slot = 0; slot < slotCount; slot++) {
+			if (slots[slot] != null) {
+				newSlot[slot] = count;
+				slots[count++] = slots[slot];
+			}
+		}
+		Arrays.fill(slots, count, slotCount, null);
+		slotCount = count;
+		for (Map.Entry<String, Integer> entry : nameIndex.entrySet()) {
+			entry.setValue(newSlot[entry.getValue()]);
+		}
+		buildSlotSizes();
+	}
+
+	/**
+	 * Builds the Fenwick tree of the sizes of the files in the slots.
+	 */
+	private void buildSlotSizes() {
+		slotSizes = new int[slots.length + 1];
+		for (int i = 1; i < slotSizes.length; i++) {
+			if (i <= slotCount && slots[i - 1] != null) {
+				slotSizes[i] += slots[i - 1].getSize();
+			}
+			int parent = i + (i & -i);
+			if (parent < slotSizes.length) {
+				slotSizes[parent] += slotSizes[i];
+			}
+		}
+	}
+
+	/**
+	 * Adds a size to a slot in the Fenwick tree.
+	 * 
+	 * @param slot the slot
+	 * @param size the size to add
+	 */
+	private void updateSlotSize(int slot, int size) {
+		for (int i = slot + 1; i < slotSizes.length; i += i & -i) {
+			slotSizes[i] += size;
+		}
+	}
+
+	/**
+	 * Gets the total size of the files in the slots up to a given one.
+	 * 
+	 * @param slot the last slot, included
+	 * @return the total size in MB
+	 */
+	private int getSlotsSize(int slot) {
+		int size = 0;
+		for (int i = slot + 1; i > 0; i -= i & -i) {
+			size += slotSizes[i];
+		}
+		return size;
+	}
+
 }
@@ -10,8 +10,13 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.HarddriveStorage;
@@ -19,6 +24,16 @@ import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
 
 /**
  * An implementation of a storage system. It simulates the behaviour of a typical harddrive storage.
+ * The storage systems holding each file are kept in a map, so that locating a file does not search
+ * every storage system.
+ * <p>
+ * The storage systems (tiers) are ordered from the fastest to the slowest one. By default there
+ * are three of them: a ramdisk, a local file system and a parallel file system, and a file that
+ * does not fit in a tier spills to the next one. The tiers can also be given in a configuration
+ * file (see {@link #HybridStorage(Properties)}). With a {@link StorageEvictionPolicy}, a full tier
+ * makes room for a new file by demoting its victims to the next tier, and a file that is read again
+ * may be promoted to a faster tier. The hits, misses, evictions and promotions of each tier are
+ * counted.
  * 
  * @author Peng Cheng
  * @since CloudSim Toolkit 1.0
@@ -26,17 +41,158 @@ import org.cloudbus.cloudsim.distributions.ContinuousDistribution;
 public class HybridStorage {
 
 
-        /** the first storage system*/
+        /** the storage systems, from the fastest to the slowest */
         private HarddriveStorage[] storageSystem = null;
 
+        /** the storage systems holding each file, one bit per storage system */
+        private Map<String, Integer> locations = new HashMap<String, Integer>();
+
+	/** the maximum number of storage systems, one bit each of the positive locations */
+	public static final int MAX_STORAGE_NUM = Integer.SIZE - 1;
+
+	/** the eviction policy, or <tt>null</tt> if files are never evicted */
+	private StorageEvictionPolicy evictionPolicy = null;
+
+	/** whether files that are read again are moved to a faster storage system */
+	private boolean promotion = false;
+
+	/** the number of jobs that still have to read each file, when it is known */
+	private Map<String, Integer> consumers = new HashMap<String, Integer>();
+
+	/** the number of reads served by each storage system */
+	private long[] hits;
+
+	/** the number of reads that each storage system could not serve */
+	private long[] misses;
+
+	/** the number of files demoted from each storage system to make room */
+	private long[] evictions;
+
+	/** the number of files promoted to each storage system */
+	private long[] promotions;
+
+	/** the remaining volume below which a transfer finishes at once, in MB */
+	private static final double TRANSFER_EPSILON = 1e-9;
+
 	/**
-	 * Creates a new hybrid storage.
+	 * A transfer in flight on a storage system.
+	 */
+	private static final class Transfer {
+
+		private final int id;
+
+		/** the volume left to transfer in MB */
+		private double remaining;
+
+		/** the maximum rate of the transfer in MB/sec */
+		private final double peakRate;
+
+		/** the current rate of the transfer in MB/sec */
+		private double rate;
+
+		/** the time the transfer finishes at its current rate */
+		private double finishTime;
+
+		private Transfer(int id, double volume, double peakRate) {
+			this.id = id;
+			this.remaining = volume;
+			this.peakRate = peakRate;
+		}
+	}
+
+	/** whether concurrent transfers share the bandwidth of a storage system */
+	private boolean sharedBandwidth = false;
+
+	/** the transfers in flight on each storage system */
+	private List<List<Transfer>> transfers;
+
+	/** the time the remaining volumes of each storage system were last updated */
+	private double[] transferTime;
+
+	/** the time the next transfer of each storage system finishes */
+	private double[] nextTransferTime;
+
+	/** the id of the next transfer */
+	private int nextTransferId = 0;
+
+	/**
+	 * Creates a new hybrid storage with the default ramdisk, local file system and parallel file
+	 * system.
 	 * 
 	 * @throws ParameterException when the name and the capacity are not valid
 	 */
 	public HybridStorage() throws ParameterException {
-               
-		storageSystem = new HarddriveStorage[3];
+		this(createDefaultStorageSystems());
+	}
+
+	/**
+	 * Creates a new hybrid storage.
+	 * 
+	 * @param storageSystems the storage systems, from the fastest to the slowest
+	 * @throws ParameterException when there is no storage system or more than
+	 *             {@link #MAX_STORAGE_NUM}
+	 */
+	public HybridStorage(HarddriveStorage[] storageSystems) throws ParameterException {
+		if (storageSystems == null || storageSystems.length == 0) {
+			throw new ParameterException("HybridStorage: no storage system");
+		}
+		if (storageSystems.length > MAX_STORAGE_NUM) {
+			throw new ParameterException("HybridStorage: " + storageSystems.length
+					+ " storage systems, at most " + MAX_STORAGE_NUM + " are supported");
+		}
+		storageSystem = storageSystems.clone();
+		hits = new long[storageSystem.length];
+		misses = new long[storageSystem.length];
+		evictions = new long[storageSystem.length];
+		promotions = new long[storageSystem.length];
+		transfers = new ArrayList<List<Transfer>>();
+		for (int i = 0; i < storageSystem.length; i++) {
+			transfers.add(new ArrayList<Transfer>());
+		}
+		transferTime = new double[storageSystem.length];
+		nextTransferTime = new double[storageSystem.length];
+		Arrays.fill(nextTransferTime, Double.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a new hybrid storage from a configuration, such as the one read from
+	 * <tt>config.txt</tt>. The keys are:
+	 * <ul>
+	 * <li><tt>storage.tiers</tt>: the names of the storage systems, from the fastest to the
+	 * slowest, separated by commas, at most {@link #MAX_STORAGE_NUM}. The default storage systems
+	 * are used if it is missing.
+	 * <li><tt>storage.&lt;name&gt;.capacity</tt>: the capacity in MB.
+	 * <li><tt>storage.&lt;name&gt;.rate</tt>: the maximum transfer rate in MB/sec.
+	 * <li><tt>storage.&lt;name&gt;.latency</tt> and <tt>storage.&lt;name&gt;.seek</tt>: the
+	 * latency and the average seek time in seconds, 0 by default.
+	 * <li><tt>storage.eviction</tt>: the eviction policy, see
+	 * {@link StorageEvictionPolicy#create(String)}. Files are never evicted if it is missing.
+	 * <li><tt>storage.promotion</tt>: whether files that are read again are promoted.
+	 * <li><tt>storage.bandwidth.shared</tt>: whether concurrent transfers share the bandwidth of
+	 * a storage system, see {@link #setSharedBandwidth(boolean)}.
+	 * </ul>
+	 * 
+	 * @param config the configuration
+	 * @throws ParameterException when a storage system is not valid
+	 */
+	public HybridStorage(Properties config) throws ParameterException {
+		this(createStorageSystems(config));
+		String policy = config.getProperty("storage.eviction");
+		if (policy != null && policy.trim().length() > 0) {
+			setEvictionPolicy(StorageEvictionPolicy.create(policy));
+		}
+		setPromotion(Boolean.parseBoolean(config.getProperty("storage.promotion", "false").trim()));
+		setSharedBandwidth(Boolean.parseBoolean(config.getProperty("storage.bandwidth.shared", "false").trim()));
+	}
+
+	/**
+	 * Creates the default storage systems.
+	 * 
+	 * @return the ramdisk, the local file system and the parallel file system
+	 * @throws ParameterException when the name and the capacity are not valid
+	 */
+	private static HarddriveStorage[] createDefaultStorageSystems() throws ParameterException {
+		HarddriveStorage[] storageSystem = new HarddriveStorage[3];
                 /*Init In-memory file system, 620 GB*/
                 storageSystem[0] = new HarddriveStorage("Ramdisk", 634880);
                 storageSystem[0].setMaxTransferRate(1100);
@@ -54,8 +210,97 @@ public class HybridStorage {
                 storageSystem[2].setMaxTransferRate(600);
                 storageSystem[2].setLatency(0.1);
                 storageSystem[2].setAvgSeekTime(0.1);
+		return storageSystem;
+	}
+
+	/**
+	 * Creates the storage systems given in a configuration.
+	 * 
+	 * @param config the configuration
+	 * @return the storage systems
+	 * @throws ParameterException when a storage system is not valid
+	 */
+	private static HarddriveStorage[] createStorageSystems(Properties config) throws ParameterException {
+		String tiers = config.getProperty("storage.tiers");
+		if (tiers == null || tiers.trim().length() == 0) {
+			return createDefaultStorageSystems();
+		}
+		List<HarddriveStorage> list = new ArrayList<HarddriveStorage>();
+		for (String name : tiers.split(",")) {
+			name = name.trim();
+			if (name.length() == 0) {
+				continue;
+			}
+			String prefix = "storage." + name + ".";
+			try {
+				String capacity = config.getProperty(prefix + "capacity");
+				String rate = config.getProperty(prefix + "rate");
+				if (capacity == null || rate == null) {
+					throw new ParameterException("HybridStorage: " + prefix + "capacity and " + prefix
+							+ "rate are required");
+				}
+				HarddriveStorage storage = new HarddriveStorage(name, Double.parseDouble(capacity.trim()));
+				if (!storage.setMaxTransferRate(Integer.parseInt(rate.trim()))) {
+					throw new ParameterException("HybridStorage: invalid rate of " + name);
+				}
+				storage.setLatency(Double.parseDouble(config.getProperty(prefix + "latency", "0").trim()));
+				storage.setAvgSeekTime(Double.parseDouble(config.getProperty(prefix + "seek", "0").trim()));
+				list.add(storage);
+			} catch (NumberFormatException e) {
+				throw new ParameterException("HybridStorage: invalid number for " + name + ": " + e.getMessage());
+			}
+		}
+		return list.toArray(new HarddriveStorage[list.size()]);
+	}
+
+	/**
+	 * Gets the number of storage systems.
+	 * 
+	 * @return the number of storage systems
+	 */
+	public int getStorageNum() {
+		return storageSystem.length;
+	}
+
+	/**
+	 * Sets the eviction policy. It must be set before any file is added.
+	 * 
+	 * @param policy the eviction policy, or <tt>null</tt> to never evict files
+	 */
+	public void setEvictionPolicy(StorageEvictionPolicy policy) {
+		evictionPolicy = policy;
+		if (policy != null) {
+			policy.init(storageSystem.length);
+		}
+	}
+
+	/**
+	 * Gets the eviction policy.
+	 * 
+	 * @return the eviction policy, or <tt>null</tt> if files are never evicted
+	 */
+	public StorageEvictionPolicy getEvictionPolicy() {
+		return evictionPolicy;
+	}
+
+	/**
+	 * Sets whether files that are read again are moved to the fastest storage system that can
+	 * hold them.
+	 * 
+	 * @param promotion whether to promote files
+	 */
+	public void setPromotion(boolean promotion) {
+		this.promotion = promotion;
+	}
+
+	/**
+	 * Checks whether files that are read again are promoted.
+	 * 
+	 * @return <tt>true</tt> if files are promoted
+	 */
+	public boolean isPromotion() {
+		return promotion;
 	}
-	
 
 	/**
 	 * Gets the available space in MB.
@@ -108,7 +353,11 @@ public class HybridStorage {
 	 * @return the time (in seconds) required to add the file
 	 */
 	public double addReservedFile(File file, int i) {
-		return storageSystem[i].addReservedFile(file);
+		double result = storageSystem[i].addReservedFile(file);
+		if (file != null) {
+			updateLocation(file.getName(), i);
+		}
+		return result;
 	}
 
 	/**
@@ -189,14 +438,16 @@ public class HybridStorage {
          * @return the id of storage system
          */
 	public int locateFile(String fileName) {
-          int rvalue = -1;
-          for (int i = 0; i < 3; i++) {
-            if (storageSystem[i].contains(fileName)) {
-              rvalue = i;
-              break;
-            }
+          if (fileName == null || fileName.length() == 0) {
+            // let the storage systems report the invalid name
+            contains(fileName);
+            return -1;
           }
-	  return rvalue;
+          Integer location = locations.get(fileName);
+          if (location == null) {
+            return -1;
+          }
+	  return Integer.numberOfTrailingZeros(location);
         }
 
 
@@ -252,9 +503,10 @@ public class HybridStorage {
                         return -1;
 		}
 
-                while (id < 3) {
-                  if (storageSystem[id].getAvailableSpace() >= file.getSize()) {
+                while (id < storageSystem.length) {
+                  if (storageSystem[id].getAvailableSpace() >= file.getSize() || makeRoom(id, file.getSize())) {
                     storageSystem[id].addFile(file);
+                    updateLocation(file.getName(), id);
                     rvalue = id;
                     break;
                   }
@@ -275,7 +527,9 @@ public class HybridStorage {
 	 * @return the deleted file
 	 */
 	public File deleteFile(String fileName, int i) {
-		return storageSystem[i].deleteFile(fileName);
+		File file = storageSystem[i].deleteFile(fileName);
+		updateLocation(fileName, i);
+		return file;
 	}
 
 	/**
@@ -287,7 +541,11 @@ public class HybridStorage {
 	 * @return the time taken (in seconds) for deleting the specified file
 	 */
 	public double deleteFile(File file, int i) {
-		return storageSystem[i].deleteFile(file);
+		double result = storageSystem[i].deleteFile(file);
+		if (file != null) {
+			updateLocation(file.getName(), i);
+		}
+		return result;
 	}
 
 	/**
@@ -298,10 +556,366 @@ public class HybridStorage {
 	 */
 	public boolean contains(String fileName) {
                 boolean result = false;
-                result = storageSystem[0].contains(fileName) || storageSystem[1].contains(fileName) || storageSystem[2].contains(fileName);
+                if (fileName == null || fileName.length() == 0) {
+                  for (HarddriveStorage storage : storageSystem) {
+                    result |= storage.contains(fileName);
+                  }
+                } else {
+                  result = locations.containsKey(fileName);
+                }
 		return result;
 	}
 
+	/**
+	 * Records whether a storage system holds a file after it has been changed.
+	 * 
+	 * @param fileName the name of the file
+	 * @param i the id of storage system
+	 */
+	private void updateLocation(String fileName, int i) {
+		if (fileName == null || fileName.length() == 0) {
+			return;
+		}
+		Integer location = locations.get(fileName);
+		int old = location == null ? 0 : location;
+		int bits = old;
+		if (storageSystem[i].contains(fileName)) {
+			bits |= 1 << i;
+		} else {
+			bits &= ~(1 << i);
+		}
+		if (bits == 0) {
+			locations.remove(fileName);
+		} else {
+			locations.put(fileName, bits);
+		}
+		if (evictionPolicy != null && bits != old) {
+			if ((bits & 1 << i) != 0) {
+				evictionPolicy.fileAdded(fileName, storageSystem[i].getFile(fileName).getSize(), i);
+				Integer remaining = consumers.get(fileName);
+				if (remaining != null) {
+					evictionPolicy.consumersChanged(fileName, i, remaining);
+				}
+			} else {
+				evictionPolicy.fileRemoved(fileName, i);
+			}
+		}
+	}
+
+	/**
+	 * Makes room on a storage system by demoting the victims of the eviction policy to the next
+	 * storage system. The slowest storage system never evicts files.
+	 * 
+	 * @param i the id of storage system
+	 * @param fileSize the size to be made available in MB
+	 * @return <tt>true</tt> if there is enough space, <tt>false</tt> otherwise
+	 */
+	private boolean makeRoom(int i, int fileSize) {
+		if (evictionPolicy == null || i >= storageSystem.length - 1 || fileSize > storageSystem[i].getCapacity()) {
+			return false;
+		}
+		while (storageSystem[i].getAvailableSpace() < fileSize) {
+			String victim = evictionPolicy.selectVictim(i);
+			if (victim == null || !demote(victim, i)) {
+				return false;
+			}
+			evictions[i]++;
+		}
+		return true;
+	}
+
+	/**
+	 * Moves a file to the next storage system, making room there if needed.
+	 * 
+	 * @param fileName the name of the file
+	 * @param i the id of the storage system holding the file
+	 * @return <tt>true</tt> if the file was moved, <tt>false</tt> otherwise
+	 */
+	private boolean demote(String fileName, int i) {
+		File file = storageSystem[i].getFile(fileName);
+		int next = i + 1;
+		if (file == null || next >= storageSystem.length
+				|| (storageSystem[next].getAvailableSpace() < file.getSize() && !makeRoom(next, file.getSize()))) {
+			return false;
+		}
+		move(file, i, next);
+		return true;
+	}
+
+	/**
+	 * Moves a file from a storage system to another one that has enough space.
+	 * 
+	 * @param file the file
+	 * @param from the id of the storage system holding the file
+	 * @param to the id of the target storage system
+	 */
+	private void move(File file, int from, int to) {
+		storageSystem[from].deleteFile(file);
+		updateLocation(file.getName(), from);
+		storageSystem[to].addFile(file);
+		updateLocation(file.getName(), to);
+	}
+
+	/**
+	 * Reads a file. The read is counted as a hit of the storage system holding the file and as a
+	 * miss of the faster ones, and the consumers of the file are decreased by one. If promotion is
+	 * enabled, the file is then moved to the fastest storage system that can hold it.
+	 * 
+	 * @param fileName the name of the file
+	 * @return the id of the storage system the file was read from, or -1 if it is not stored
+	 */
+	public int readFile(String fileName) {
+		int i = locateFile(fileName);
+		int faster = i == -1 ? storageSystem.length : i;
+		for (int j = 0; j < faster; j++) {
+			misses[j]++;
+		}
+		if (i == -1) {
+			return i;
+		}
+		hits[i]++;
+		Integer remaining = consumers.get(fileName);
+		if (remaining != null) {
+			remaining = Math.max(remaining - 1, 0);
+			consumers.put(fileName, remaining);
+		}
+		if (evictionPolicy != null) {
+			evictionPolicy.fileAccessed(fileName, i);
+			if (remaining != null) {
+				evictionPolicy.consumersChanged(fileName, i, remaining);
+			}
+		}
+		if (promotion && i > 0) {
+			promote(fileName, i);
+		}
+		return i;
+	}
+
+	/**
+	 * Moves a file to the fastest storage system that can hold it, making room there if needed.
+	 * 
+	 * @param fileName the name of the file
+	 * @param i the id of the storage system holding the file
+	 */
+	private void promote(String fileName, int i) {
+		int size = storageSystem[i].getFile(fileName).getSize();
+		for (int j = 0; j < i; j++) {
+			if (storageSystem[j].getAvailableSpace() >= size || makeRoom(j, size)) {
+				// making room may have demoted the file itself
+				int from = locateFile(fileName);
+				if (from > j) {
+					move(storageSystem[from].getFile(fileName), from, j);
+					promotions[j]++;
+				}
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sets the number of jobs that still have to read a file. Each {@link #readFile(String)} of the
+	 * file decreases it by one.
+	 * 
+	 * @param fileName the name of the file
+	 * @param remaining the number of consumers
+	 */
+	public void setRemainingConsumers(String fileName, int remaining) {
+		consumers.put(fileName, remaining);
+		int i = locateFile(fileName);
+		if (evictionPolicy != null && i != -1) {
+			evictionPolicy.consumersChanged(fileName, i, remaining);
+		}
+	}
+
+	/**
+	 * Sets whether concurrent transfers share the bandwidth of a storage system. In this mode the
+	 * user of the hybrid storage starts each transfer with
+	 * {@link #startTransfer(int, double, double, double)} instead of using the predicted times,
+	 * and collects the finished ones with {@link #finishTransfers(double)} at the time given by
+	 * {@link #getNextTransferTime()}.
+	 * 
+	 * @param shared whether the bandwidth is shared
+	 */
+	public void setSharedBandwidth(boolean shared) {
+		sharedBandwidth = shared;
+	}
+
+	/**
+	 * Checks whether concurrent transfers share the bandwidth of a storage system.
+	 * 
+	 * @return <tt>true</tt> if the bandwidth is shared
+	 */
+	public boolean isSharedBandwidth() {
+		return sharedBandwidth;
+	}
+
+	/**
+	 * Starts a transfer on a storage system. The maximum transfer rate of the storage system is
+	 * shared among its transfers in flight with max-min fairness: no transfer gets more than its
+	 * peak rate, and the others split what is left equally.
+	 * 
+	 * @param i the id of storage system
+	 * @param volume the volume to transfer in MB
+	 * @param peakRate the maximum rate of the transfer in MB/sec
+	 * @param now the current simulation time
+	 * @return the id of the transfer
+	 */
+	public int startTransfer(int i, double volume, double peakRate, double now) {
+		advanceTransfers(i, now);
+		Transfer transfer = new Transfer(nextTransferId++, Math.max(volume, 0), peakRate);
+		transfers.get(i).add(transfer);
+		shareBandwidth(i, now);
+		return transfer.id;
+	}
+
+	/**
+	 * Gets the time the next transfer in flight finishes.
+	 * 
+	 * @return the time, or <tt>Double.MAX_VALUE</tt> if there is no transfer in flight
+	 */
+	public double getNextTransferTime() {
+		double next = Double.MAX_VALUE;
+		for (double time : nextTransferTime) {
+			next = Math.min(next, time);
+		}
+		return next;
+	}
+
+	/**
+	 * Removes the transfers that are finished at a given time, i.e. whose finish time computed with
+	 * their current rates is not after it. The remaining volumes are not compared with zero: at a
+	 * large time the finish time is rounded, and what is left at that time may not be below any
+	 * fixed bound. Only the storage systems with a finished transfer have their rates computed
+	 * again.
+	 * 
+	 * @param now the current simulation time
+	 * @return the ids of the finished transfers
+	 */
+	public List<Integer> finishTransfers(double now) {
+		List<Integer> finished = new ArrayList<Integer>();
+		for (int i = 0; i < storageSystem.length; i++) {
+			if (nextTransferTime[i] > now) {
+				continue;
+			}
+			advanceTransfers(i, now);
+			Iterator<Transfer> it = transfers.get(i).iterator();
+			while (it.hasNext()) {
+				Transfer transfer = it.next();
+				if (transfer.finishTime <= now) {
+					finished.add(transfer.id);
+					it.remove();
+				}
+			}
+			shareBandwidth(i, now);
+		}
+		return finished;
+	}
+
+	/**
+	 * Gets the number of transfers in flight on a storage system.
+	 * 
+	 * @param i the id of storage system
+	 * @return the number of transfers
+	 */
+	public int getTransferNum(int i) {
+		return transfers.get(i).size();
+	}
+
+	/**
+	 * Decreases the remaining volumes of the transfers of a storage system up to a given time.
+	 * 
+	 * @param i the id of storage system
+	 * @param now the current simulation time
+	 */
+	private void advanceTransfers(int i, double now) {
+		double elapsed = now - transferTime[i];
+		if (elapsed > 0) {
+			for (Transfer transfer : transfers.get(i)) {
+				transfer.remaining = Math.max(transfer.remaining - transfer.rate * elapsed, 0);
+			}
+		}
+		transferTime[i] = now;
+	}
+
+	/**
+	 * Computes the max-min fair rates of the transfers of a storage system and the time the next
+	 * one finishes.
+	 * 
+	 * @param i the id of storage system
+	 * @param now the current simulation time
+	 */
+	private void shareBandwidth(int i, double now) {
+		List<Transfer> list = transfers.get(i);
+		nextTransferTime[i] = Double.MAX_VALUE;
+		if (list.isEmpty()) {
+			return;
+		}
+		List<Transfer> sorted = new ArrayList<Transfer>(list);
+		Collections.sort(sorted, (a, b) -> Double.compare(a.peakRate, b.peakRate));
+		double left = storageSystem[i].getMaxTransferRate();
+		int count = sorted.size();
+		for (Transfer transfer : sorted) {
+			transfer.rate = Math.min(transfer.peakRate, left / count);
+			left -= transfer.rate;
+			count--;
+			transfer.finishTime = transfer.remaining <= TRANSFER_EPSILON ? now
+					: transfer.rate > 0 ? now + transfer.remaining / transfer.rate : Double.MAX_VALUE;
+			nextTransferTime[i] = Math.min(nextTransferTime[i], transfer.finishTime);
+		}
+	}
+
+	/**
+	 * Gets the number of reads served by a storage system.
+	 * 
+	 * @param i the id of storage system
+	 * @return the number of hits
+	 */
+	public long getHitNum(int i) {
+		return hits[i];
+	}
+
+	/**
+	 * Gets the number of reads of files that a storage system did not hold, but a slower one did
+	 * or none did.
+	 * 
+	 * @param i the id of storage system
+	 * @return the number of misses
+	 */
+	public long getMissNum(int i) {
+		return misses[i];
+	}
+
+	/**
+	 * Gets the number of files demoted from a storage system to make room.
+	 * 
+	 * @param i the id of storage system
+	 * @return the number of evictions
+	 */
+	public long getEvictionNum(int i) {
+		return evictions[i];
+	}
+
+	/**
+	 * Gets the number of files promoted to a storage system.
+	 * 
+	 * @param i the id of storage system
+	 * @return the number of promotions
+	 */
+	public long getPromotionNum(int i) {
+		return promotions[i];
+	}
+
+	/**
+	 * Prints the hits, misses, evictions and promotions of each storage system.
+	 */
+	public void printStatistics() {
+		for (int i = 0; i < storageSystem.length; i++) {
+			Log.printLine(storageSystem[i].getName() + ": hits " + hits[i] + ", misses " + misses[i]
+					+ ", evictions " + evictions[i] + ", promotions " + promotions[i] + ", used "
+					+ storageSystem[i].getCurrentSize() + " of " + storageSystem[i].getCapacity() + " MB");
+		}
+	}
+
 	/**
 	 * Predict file write time.
 	 ** 
@@ -14,6 +14,7 @@ import java.util.Iterator;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
+import org.cloudbus.cloudsim.network.DelayMatrix_Sparse;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
@@ -29,6 +30,11 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * Links added between {@link #startBatch()} and {@link #seal()} only update the graph, the delay
+ * and bandwidth matrices are generated once when the topology is sealed. In the sparse mode (see
+ * {@link #setSparse(boolean)}), the delays are computed on demand by a {@link DelayMatrix_Sparse}
+ * instead of Floyd-Warshall over a dense matrix, and no bandwidth matrix is generated.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -42,6 +48,14 @@ public class NetworkTopology {
 
 	protected static DelayMatrix_Float delayMatrix = null;
 
+	protected static DelayMatrix_Sparse sparseDelayMatrix = null;
+
+	/** Whether the delays are computed on demand, see {@link #setSparse(boolean)}. */
+	private static boolean sparse = false;
+
+	/** Whether the matrices are only generated when the topology is sealed. */
+	private static boolean batch = false;
+
 	protected static double[][] bwMatrix = null;
 
 	protected static TopologicalGraph graph = null;
@@ -78,15 +92,76 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth between elements
 	 */
 	private static void generateMatrices() {
-		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		if (sparse) {
+			// the delays are computed when they are asked for
+			sparseDelayMatrix = new DelayMatrix_Sparse(graph, false);
+			delayMatrix = null;
+			bwMatrix = null;
+		} else {
+			// creates the delay matrix
+			delayMatrix = new DelayMatrix_Float(graph, false);
+
+			// creates the bw matrix
+			bwMatrix = createBwMatrix(graph, false);
+			sparseDelayMatrix = null;
+		}
 
 		networkEnabled = true;
 	}
 
+	/**
+	 * Starts a batch of links. The links added by {@link #addLink(int, int, double, double)} until
+	 * {@link #seal()} is called do not generate the matrices, so the delays of the topology are the
+	 * ones before the batch until then.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	public static void startBatch() {
+		batch = true;
+	}
+
+	/**
+	 * Ends a batch of links and generates the matrices of the topology.
+	 * 
+	 * @pre $none
+	 * @post $none
+	 */
+	public static void seal() {
+		batch = false;
+		if (graph != null) {
+			generateMatrices();
+		}
+	}
+
+	/**
+	 * Sets whether the delays are computed on demand with Dijkstra from each source, which suits
+	 * large sparse topologies, instead of Floyd-Warshall over a dense matrix. No bandwidth matrix
+	 * is generated in the sparse mode. Existing matrices are generated again unless a batch of
+	 * links is open.
+	 * 
+	 * @param sparse true to compute the delays on demand
+	 * @pre $none
+	 * @post $none
+	 */
+	public static void setSparse(boolean sparse) {
+		NetworkTopology.sparse = sparse;
+		if (graph != null && !batch) {
+			generateMatrices();
+		}
+	}
+
+	/**
+	 * Checks whether the delays are computed on demand.
+	 * 
+	 * @return true if the sparse mode is on
+	 * @pre $none
+	 * @post $none
+	 */
+	public static boolean isSparse() {
+		return sparse;
+	}
+
 	/**
 	 * Adds a new link in the network topology
 	 * 
@@ -124,7 +199,9 @@ public class NetworkTopology {
 		// generate a new link
 		graph.addLink(new TopologicalLink(map.get(srcId), map.get(destId), (float) lat, (float) bw));
 
-		generateMatrices();
+		if (!batch) {
+			generateMatrices();
+		}
 
 	}
 
@@ -222,7 +299,12 @@ public class NetworkTopology {
 		if (networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay;
+				if (sparseDelayMatrix != null) {
+					delay = sparseDelayMatrix.getDelay(map.get(srcID), map.get(destID));
+				} else {
+					delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				}
 
 				return delay;
 			} catch (Exception e) {
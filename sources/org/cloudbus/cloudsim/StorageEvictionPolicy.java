@@ -0,0 +1,94 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+/**
+ * The class of an eviction policy of a {@link HybridStorage}. The hybrid storage tells the policy
+ * which files are added to, read from and removed from each of its tiers, and asks it for a victim
+ * when a tier has to make room for a new file. The victim is then demoted to the next tier.
+ * 
+ * @since CloudSim Toolkit 1.0
+ */
+public abstract class StorageEvictionPolicy {
+
+	/**
+	 * Prepares the policy for a hybrid storage. It is called once, before any file is added.
+	 * 
+	 * @param tierNum the number of tiers of the hybrid storage
+	 */
+	public abstract void init(int tierNum);
+
+	/**
+	 * Called when a file is stored on a tier.
+	 * 
+	 * @param fileName the name of the file
+	 * @param fileSize the size of the file in MB
+	 * @param tier the id of the tier
+	 */
+	public abstract void fileAdded(String fileName, int fileSize, int tier);
+
+	/**
+	 * Called when a file is removed from a tier.
+	 * 
+	 * @param fileName the name of the file
+	 * @param tier the id of the tier
+	 */
+	public abstract void fileRemoved(String fileName, int tier);
+
+	/**
+	 * Called when a file is read from a tier.
+	 * 
+	 * @param fileName the name of the file
+	 * @param tier the id of the tier
+	 */
+	public abstract void fileAccessed(String fileName, int tier);
+
+	/**
+	 * Called when the number of jobs that still have to read a file changes. The default
+	 * implementation does nothing.
+	 * 
+	 * @param fileName the name of the file
+	 * @param tier the id of the tier holding the file
+	 * @param remaining the number of remaining consumers
+	 */
+	public void consumersChanged(String fileName, int tier, int remaining) {
+	}
+
+	/**
+	 * Selects the file to be evicted from a tier.
+	 * 
+	 * @param tier the id of the tier
+	 * @return the name of the file, or <tt>null</tt> if there is none
+	 */
+	public abstract String selectVictim(int tier);
+
+	/**
+	 * Creates an eviction policy from its name: <tt>LRU</tt>, <tt>LFU</tt>, <tt>SIZE</tt> or
+	 * <tt>REFCOUNT</tt>.
+	 * 
+	 * @param name the name of the policy
+	 * @return the policy
+	 * @throws ParameterException if the name is not known
+	 */
+	public static StorageEvictionPolicy create(String name) throws ParameterException {
+		switch (name.trim().toUpperCase()) {
+			case "LRU":
+				return new StorageEvictionPolicyLeastRecentlyUsed();
+			case "LFU":
+				return new StorageEvictionPolicyLeastFrequentlyUsed();
+			case "SIZE":
+				return new StorageEvictionPolicyLargestFile();
+			case "REFCOUNT":
+				return new StorageEvictionPolicyReferenceCount();
+			default:
+				throw new ParameterException("Unknown storage eviction policy: " + name);
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A size-aware eviction policy that evicts the largest file of a tier, so that as few files as
+ * possible are demoted to make room. Ties are broken by evicting the least recently used file.
+ * 
+ * @since CloudSim Toolkit 1.0
+ */
+public class StorageEvictionPolicyLargestFile extends StorageEvictionPolicy {
+
+	/**
+	 * A file of a tier with its size.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+
+		private final String name;
+
+		private final int size;
+
+		/** When the file was last used, which breaks ties. */
+		private long time;
+
+		private Entry(String name, int size, long time) {
+			this.name = name;
+			this.size = size;
+			this.time = time;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			if (size != other.size) {
+				return size > other.size ? -1 : 1;
+			}
+			return Long.compare(time, other.time);
+		}
+	}
+
+	/** The files of each tier, from the largest to the smallest. */
+	private final List<TreeSet<Entry>> tiers = new ArrayList<TreeSet<Entry>>();
+
+	/** The entries of each tier by file name. */
+	private final List<Map<String, Entry>> entries = new ArrayList<Map<String, Entry>>();
+
+	/** The logical clock of the uses. */
+	private long clock = 0;
+
+	@Override
+	public void init(int tierNum) {
+		tiers.clear();
+		entries.clear();
+		for (int i = 0; i < tierNum; i++) {
+			tiers.add(new TreeSet<Entry>());
+			entries.add(new HashMap<String, Entry>());
+		}
+	}
+
+	@Override
+	public void fileAdded(String fileName, int fileSize, int tier) {
+		Entry entry = new Entry(fileName, fileSize, clock++);
+		Entry old = entries.get(tier).put(fileName, entry);
+		if (old != null) {
+			tiers.get(tier).remove(old);
+		}
+		tiers.get(tier).add(entry);
+	}
+
+	@Override
+	public void fileRemoved(String fileName, int tier) {
+		Entry entry = entries.get(tier).remove(fileName);
+		if (entry != null) {
+			tiers.get(tier).remove(entry);
+		}
+	}
+
+	@Override
+	public void fileAccessed(String fileName, int tier) {
+		Entry entry = entries.get(tier).get(fileName);
+		if (entry != null) {
+			TreeSet<Entry> files = tiers.get(tier);
+			files.remove(entry);
+			entry.time = clock++;
+			files.add(entry);
+		}
+	}
+
+	@Override
+	public String selectVictim(int tier) {
+		TreeSet<Entry> files = tiers.get(tier);
+		return files.isEmpty() ? null : files.first().name;
+	}
+
+}
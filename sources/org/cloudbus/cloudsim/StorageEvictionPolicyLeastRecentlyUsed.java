@@ -0,0 +1,57 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * An eviction policy that evicts the file of a tier that was added or read least recently.
+ * 
+ * @since CloudSim Toolkit 1.0
+ */
+public class StorageEvictionPolicyLeastRecentlyUsed extends StorageEvictionPolicy {
+
+	/** The files of each tier, from the least to the most recently used. */
+	private final List<LinkedHashSet<String>> tiers = new ArrayList<LinkedHashSet<String>>();
+
+	@Override
+	public void init(int tierNum) {
+		tiers.clear();
+		for (int i = 0; i < tierNum; i++) {
+			tiers.add(new LinkedHashSet<String>());
+		}
+	}
+
+	@Override
+	public void fileAdded(String fileName, int fileSize, int tier) {
+		tiers.get(tier).add(fileName);
+	}
+
+	@Override
+	public void fileRemoved(String fileName, int tier) {
+		tiers.get(tier).remove(fileName);
+	}
+
+	@Override
+	public void fileAccessed(String fileName, int tier) {
+		LinkedHashSet<String> files = tiers.get(tier);
+		if (files.remove(fileName)) {
+			files.add(fileName);
+		}
+	}
+
+	@Override
+	public String selectVictim(int tier) {
+		LinkedHashSet<String> files = tiers.get(tier);
+		return files.isEmpty() ? null : files.iterator().next();
+	}
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * An eviction policy driven by the jobs of the workflow that still have to read each file. The
+ * files that no remaining job reads are evicted first, in the order their last consumer read them.
+ * When there is none, the least recently used file of the tier is evicted.
+ * 
+ * @since CloudSim Toolkit 1.0
+ */
+public class StorageEvictionPolicyReferenceCount extends StorageEvictionPolicy {
+
+	/** The files of each tier that are still needed, from the least to the most recently used. */
+	private final List<LinkedHashSet<String>> live = new ArrayList<LinkedHashSet<String>>();
+
+	/** The files of each tier that no remaining job reads. */
+	private final List<LinkedHashSet<String>> dead = new ArrayList<LinkedHashSet<String>>();
+
+	@Override
+	public void init(int tierNum) {
+		live.clear();
+		dead.clear();
+		for (int i = 0; i < tierNum; i++) {
+			live.add(new LinkedHashSet<String>());
+			dead.add(new LinkedHashSet<String>());
+		}
+	}
+
+	@Override
+	public void fileAdded(String fileName, int fileSize, int tier) {
+		if (!dead.get(tier).contains(fileName)) {
+			live.get(tier).add(fileName);
+		}
+	}
+
+	@Override
+	public void fileRemoved(String fileName, int tier) {
+		if (!live.get(tier).remove(fileName)) {
+			dead.get(tier).remove(fileName);
+		}
+	}
+
+	@Override
+	public void fileAccessed(String fileName, int tier) {
+		LinkedHashSet<String> files = live.get(tier);
+		if (files.remove(fileName)) {
+			files.add(fileName);
+		}
+	}
+
+	@Override
+	public void consumersChanged(String fileName, int tier, int remaining) {
+		if (remaining <= 0 && live.get(tier).remove(fileName)) {
+			dead.get(tier).add(fileName);
+		}
+	}
+
+	@Override
+	public String selectVictim(int tier) {
+		LinkedHashSet<String> files = dead.get(tier);
+		if (files.isEmpty()) {
+			files = live.get(tier);
+		}
+		return files.isEmpty() ? null : files.iterator().next();
+	}
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * An {@link EventQueue} implemented as a calendar queue (R. Brown, 1988). Events are hashed by time
+ * into buckets ("days") of a fixed width, each bucket is kept sorted and the queue walks the
+ * buckets as the simulation time advances. When most of the events fall within a dense time
+ * horizon, adding and removing an event take constant time on average.
+ * <p>
+ * The number of buckets follows the number of events and the bucket width is estimated from the
+ * separation of the first events every time the buckets are resized.
+ *
+ * @since CloudSim Toolkit 1.0
+ * @see FutureQueue
+ */
+public class CalendarEventQueue implements EventQueue {
+
+	/** The minimal number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The number of events used to estimate the bucket width. */
+	private static final int WIDTH_SAMPLE = 25;
+
+	/**
+	 * A bucket of the calendar. The events are sorted and kept between <tt>head</tt> (inclusive)
+	 * and <tt>tail</tt> (exclusive).
+	 */
+	private static final class Bucket {
+
+		private double[] times = new double[4];
+
+		private long[] serials = new long[4];
+
+		private long[] seqs = new long[4];
+
+		/** The virtual bucket (time divided by the width) of each event. */
+		private long[] days = new long[4];
+
+		private SimEvent[] events = new SimEvent[4];
+
+		private int head;
+
+		private int tail;
+
+		private int size() {
+			return tail - head;
+		}
+
+		private void insert(double time, long serial, long seq, long day, SimEvent event) {
+			if (tail == events.length) {
+				if (head > 0) {
+					shift(head, tail, -head);
+					tail -= head;
+					head = 0;
+				} else {
+					int capacity = events.length * 2;
+					times = Arrays.copyOf(times, capacity);
+					serials = Arrays.copyOf(serials, capacity);
+					seqs = Arrays.copyOf(seqs, capacity);
+					days = Arrays.copyOf(days, capacity);
+					events = Arrays.copyOf(events, capacity);
+				}
+			}
+			// most of the events are added after the ones already there
+			int pos = tail;
+			while (pos > head
+					&& HeapEventQueue.precedes(time, serial, seq, times[pos - 1], serials[pos - 1],
+							seqs[pos - 1])) {
+				pos--;
+			}
+			shift(pos, tail, 1);
+			tail++;
+			times[pos] = time;
+			serials[pos] = serial;
+			seqs[pos] = seq;
+			days[pos] = day;
+			events[pos] = event;
+		}
+
+		private void removeAt(int pos) {
+			if (pos == head) {
+				events[head++] = null;
+			} else {
+				shift(pos + 1, tail, -1);
+				events[--tail] = null;
+			}
+			if (head == tail) {
+				head = 0;
+				tail = 0;
+			}
+		}
+
+		private void shift(int from, int to, int offset) {
+			System.arraycopy(times, from, times, from + offset, to - from);
+			System.arraycopy(serials, from, serials, from + offset, to - from);
+			System.arraycopy(seqs, from, seqs, from + offset, to - from);
+			System.arraycopy(days, from, days, from + offset, to - from);
+			System.arraycopy(events, from, events, from + offset, to - from);
+		}
+	}
+
+	/** The buckets. */
+	private Bucket[] buckets;
+
+	/** The width of a bucket. */
+	private double width;
+
+	/**
+	 * The virtual bucket the search starts from. No event is in an earlier virtual bucket.
+	 */
+	private long currentDay;
+
+	/** The number of events. */
+	private int size;
+
+	/**
+	 * Creates a new empty queue with a bucket width of one time unit.
+	 */
+	public CalendarEventQueue() {
+		this(1.0);
+	}
+
+	/**
+	 * Creates a new empty queue.
+	 *
+	 * @param width the initial bucket width
+	 */
+	public CalendarEventQueue(double width) {
+		if (!(width > 0) || Double.isInfinite(width)) {
+			throw new IllegalArgumentException("The bucket width should be positive, but is:" + width);
+		}
+		this.width = width;
+		this.buckets = newBuckets(MIN_BUCKETS);
+		this.currentDay = 0;
+		this.size = 0;
+	}
+
+	@Override
+	public void add(SimEvent event, long serial, long seq) {
+		double time = event.eventTime();
+		long day = day(time);
+		if (size == 0 || day < currentDay) {
+			currentDay = day;
+		}
+		buckets[index(day)].insert(time, serial, seq, day, event);
+		size++;
+		if (size > 2 * buckets.length) {
+			resize(buckets.length * 2);
+		}
+	}
+
+	@Override
+	public SimEvent peek() {
+		Bucket bucket = locate();
+		return bucket == null ? null : bucket.events[bucket.head];
+	}
+
+	@Override
+	public SimEvent poll() {
+		Bucket bucket = locate();
+		if (bucket == null) {
+			return null;
+		}
+		SimEvent first = bucket.events[bucket.head];
+		bucket.removeAt(bucket.head);
+		size--;
+		shrink();
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		Bucket bucket = buckets[index(day(event.eventTime()))];
+		for (int i = bucket.head; i < bucket.tail; i++) {
+			if (bucket.events[i] == event) {
+				bucket.removeAt(i);
+				size--;
+				shrink();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<SimEvent> filter) {
+		int previousSize = size;
+		for (Bucket bucket : buckets) {
+			for (int i = bucket.tail - 1; i >= bucket.head; i--) {
+				if (filter.test(bucket.events[i])) {
+					bucket.removeAt(i);
+					size--;
+				}
+			}
+		}
+		if (size == previousSize) {
+			return false;
+		}
+		shrink();
+		return true;
+	}
+
+	@Override
+	public SimEvent[] toArray() {
+		return sorted().toArray();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		buckets = newBuckets(MIN_BUCKETS);
+		currentDay = 0;
+		size = 0;
+	}
+
+	/**
+	 * Finds the bucket holding the first event. The search walks the buckets one day at a time
+	 * starting from the current day; if a whole year goes by without finding the event, the first
+	 * events of all the buckets are compared instead.
+	 *
+	 * @return the bucket or <tt>null</tt> if the queue is empty
+	 */
+	private Bucket locate() {
+		if (size == 0) {
+			return null;
+		}
+		long day = currentDay;
+		for (int i = 0; i < buckets.length; i++, day++) {
+			Bucket bucket = buckets[index(day)];
+			if (bucket.size() > 0 && bucket.days[bucket.head] == day) {
+				currentDay = day;
+				return bucket;
+			}
+		}
+
+		Bucket first = null;
+		for (Bucket bucket : buckets) {
+			if (bucket.size() == 0) {
+				continue;
+			}
+			int h = bucket.head;
+			if (first == null
+					|| HeapEventQueue.precedes(bucket.times[h], bucket.serials[h], bucket.seqs[h],
+							first.times[first.head], first.serials[first.head], first.seqs[first.head])) {
+				first = bucket;
+			}
+		}
+		currentDay = first.days[first.head];
+		return first;
+	}
+
+	/**
+	 * Halves the number of buckets when there are too few events.
+	 */
+	private void shrink() {
+		if (buckets.length > MIN_BUCKETS && size < buckets.length / 2) {
+			resize(buckets.length / 2);
+		}
+	}
+
+	/**
+	 * Changes the number of buckets, estimates a new bucket width and hashes the events again.
+	 *
+	 * @param numBuckets the new number of buckets
+	 */
+	private void resize(int numBuckets) {
+		HeapEventQueue all = sorted();
+		int n = all.size();
+		double[] times = new double[n];
+		long[] serials = new long[n];
+		long[] seqs = new long[n];
+		SimEvent[] events = new SimEvent[n];
+		for (int i = 0; i < n; i++) {
+			times[i] = all.firstTime();
+			serials[i] = all.firstSerial();
+			seqs[i] = all.firstSeq();
+			events[i] = all.poll();
+		}
+
+		width = estimateWidth(times);
+		buckets = newBuckets(numBuckets);
+		// the events are added in order, so that each insertion is an append
+		for (int i = 0; i < n; i++) {
+			long day = day(times[i]);
+			if (i == 0) {
+				currentDay = day;
+			}
+			buckets[index(day)].insert(times[i], serials[i], seqs[i], day, events[i]);
+		}
+	}
+
+	/**
+	 * Estimates the bucket width as three times the average separation of the first events,
+	 * ignoring separations larger than twice the average.
+	 *
+	 * @param times the event times in order
+	 * @return the new width
+	 */
+	private double estimateWidth(double[] times) {
+		int n = Math.min(times.length, WIDTH_SAMPLE + 1);
+		if (n < 2) {
+			return width;
+		}
+		double average = (times[n - 1] - times[0]) / (n - 1);
+		if (!(average > 0) || Double.isInfinite(average)) {
+			return width;
+		}
+		double total = 0;
+		int count = 0;
+		for (int i = 1; i < n; i++) {
+			double gap = times[i] - times[i - 1];
+			if (gap <= 2 * average) {
+				total += gap;
+				count++;
+			}
+		}
+		if (total <= 0) {
+			return 3 * average;
+		}
+		return 3 * total / count;
+	}
+
+	/**
+	 * Copies all the events into a heap.
+	 *
+	 * @return the heap
+	 */
+	private HeapEventQueue sorted() {
+		HeapEventQueue heap = new HeapEventQueue(size);
+		for (Bucket bucket : buckets) {
+			for (int i = bucket.head; i < bucket.tail; i++) {
+				heap.add(bucket.events[i], bucket.serials[i], bucket.seqs[i]);
+			}
+		}
+		return heap;
+	}
+
+	/**
+	 * Gets the virtual bucket of a given time.
+	 *
+	 * @param time the time
+	 * @return the virtual bucket
+	 */
+	private long day(double time) {
+		return (long) Math.floor(time / width);
+	}
+
+	/**
+	 * Gets the bucket of a given virtual bucket.
+	 *
+	 * @param day the virtual bucket
+	 * @return the bucket index
+	 */
+	private int index(long day) {
+		return (int) Math.floorMod(day, (long) buckets.length);
+	}
+
+	/**
+	 * Creates empty buckets.
+	 *
+	 * @param numBuckets the number of buckets
+	 * @return the buckets
+	 */
+	private static Bucket[] newBuckets(int numBuckets) {
+		Bucket[] buckets = new Bucket[numBuckets];
+		for (int i = 0; i < numBuckets; i++) {
+			buckets[i] = new Bucket();
+		}
+		return buckets;
+	}
+
+}
@@ -8,15 +8,23 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateAny;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link Simulation}. The events are kept
+ * in a linked list in time order and, in addition, in one list per destination entity (its
+ * mailbox), so looking up the events of one entity does not walk the events of the others.
+ * Optionally, each mailbox also keeps one list per event tag, so that {@link PredicateType}
+ * lookups only visit the events with the given tags.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
@@ -24,65 +32,410 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The global list. */
+	private static final int ALL = 0;
+
+	/** The mailbox list. */
+	private static final int BOX = 1;
+
+	/** The tag list. */
+	private static final int TAG = 2;
+
+	/**
+	 * A list of events, linked through the nodes at a given level.
+	 */
+	private static final class Chain {
+
+		private final int level;
+
+		private Node first;
+
+		private Node last;
+
+		private int size;
+
+		private Chain(int level) {
+			this.level = level;
+		}
+	}
+
+	/**
+	 * An event and its links in the global list, its mailbox and its tag list.
+	 */
+	private static final class Node {
+
+		private final SimEvent event;
+
+		/** The insertion order, which breaks ties between events with the same time. */
+		private final long seq;
+
+		private final Node[] prev = new Node[3];
+
+		private final Node[] next = new Node[3];
+
+		private final Chain[] chains = new Chain[3];
+
+		private Node(SimEvent event, long seq) {
+			this.event = event;
+			this.seq = seq;
+		}
+
+		private boolean before(Node other) {
+			double time = event.eventTime();
+			double otherTime = other.event.eventTime();
+			return time < otherTime || (time == otherTime && seq < other.seq);
+		}
+	}
+
+	/**
+	 * The deferred events of one destination entity.
+	 */
+	private static final class Mailbox {
+
+		private final Chain events = new Chain(BOX);
+
+		/** The events by tag, or <tt>null</tt> if tags are not indexed. */
+		private final Map<Integer, Chain> byTag;
+
+		private Mailbox(boolean indexTags) {
+			byTag = indexTags ? new HashMap<Integer, Chain>() : null;
+		}
+	}
+
+	/** The events in time order. */
+	private final Chain all = new Chain(ALL);
+
+	/** The mailboxes, indexed by destination id. */
+	private Mailbox[] mailboxes = new Mailbox[16];
+
+	/** Whether the mailboxes index the events by tag. */
+	private final boolean indexTags;
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The sequence number of the next event. */
+	private long seq = 0;
+
+	/**
+	 * Creates a new deferred queue whose mailboxes index the events by tag.
+	 */
+	public DeferredQueue() {
+		this(true);
+	}
+
+	/**
+	 * Creates a new deferred queue.
+	 *
+	 * @param indexTags whether the mailboxes index the events by tag
+	 */
+	public DeferredQueue(boolean indexTags) {
+		this.indexTags = indexTags;
+	}
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
-		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
-			return;
-		}
-
-		ListIterator<SimEvent> iterator = list.listIterator();
-		SimEvent event;
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if (event.eventTime() > eventTime) {
-				iterator.previous();
-				iterator.add(newEvent);
-				return;
+		Node node = new Node(newEvent, seq++);
+		insert(all, node);
+		Mailbox mailbox = mailbox(newEvent.getDestination(), true);
+		insert(mailbox.events, node);
+		if (mailbox.byTag != null) {
+			Chain chain = mailbox.byTag.get(newEvent.getTag());
+			if (chain == null) {
+				chain = new Chain(TAG);
+				mailbox.byTag.put(newEvent.getTag(), chain);
 			}
+			insert(chain, node);
 		}
-
-		list.add(newEvent);
 	}
 
 	/**
 	 * Returns an iterator to the events in the queue.
-	 * 
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		return new ChainIterator(all.first, ALL);
+	}
+
+	/**
+	 * Returns an iterator to the events sent to a given entity, in time order.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the iterator
+	 */
+	public Iterator<SimEvent> iterator(int destination) {
+		Mailbox mailbox = mailbox(destination, false);
+		return new ChainIterator(mailbox == null ? null : mailbox.events.first, BOX);
+	}
+
+	/**
+	 * Counts the events sent to a given entity that match a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the number of events
+	 */
+	public int count(int destination, Predicate p) {
+		Mailbox mailbox = mailbox(destination, false);
+		if (mailbox == null) {
+			return 0;
+		}
+		if (p instanceof PredicateAny) {
+			return mailbox.events.size;
+		}
+		int count = 0;
+		if (mailbox.byTag != null && p instanceof PredicateType) {
+			int[] tags = distinct(((PredicateType) p).getTags());
+			for (int tag : tags) {
+				Chain chain = mailbox.byTag.get(tag);
+				if (chain != null) {
+					count += chain.size;
+				}
+			}
+			return count;
+		}
+		for (Node node = mailbox.events.first; node != null; node = node.next[BOX]) {
+			if (p.match(node.event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Gets the first event sent to a given entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the event or <tt>null</tt> if none matches
+	 */
+	public SimEvent first(int destination, Predicate p) {
+		Node node = find(destination, p);
+		return node == null ? null : node.event;
+	}
+
+	/**
+	 * Removes the first event sent to a given entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the event or <tt>null</tt> if none matches
+	 */
+	public SimEvent removeFirst(int destination, Predicate p) {
+		Node node = find(destination, p);
+		if (node == null) {
+			return null;
+		}
+		unlink(node);
+		return node.event;
+	}
+
+	/**
+	 * Gets the last event of the queue.
+	 *
+	 * @return the event or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent last() {
+		return all.last == null ? null : all.last.event;
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return all.size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		all.first = null;
+		all.last = null;
+		all.size = 0;
+		Arrays.fill(mailboxes, null);
+	}
+
+	/**
+	 * Finds the first event sent to a given entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the node or <tt>null</tt> if none matches
+	 */
+	private Node find(int destination, Predicate p) {
+		Mailbox mailbox = mailbox(destination, false);
+		if (mailbox == null) {
+			return null;
+		}
+		if (p instanceof PredicateAny) {
+			return mailbox.events.first;
+		}
+		if (mailbox.byTag != null && p instanceof PredicateType) {
+			Node first = null;
+			for (int tag : ((PredicateType) p).getTags()) {
+				Chain chain = mailbox.byTag.get(tag);
+				if (chain != null && chain.first != null && (first == null || chain.first.before(first))) {
+					first = chain.first;
+				}
+			}
+			return first;
+		}
+		for (Node node = mailbox.events.first; node != null; node = node.next[BOX]) {
+			if (p.match(node.event)) {
+				return node;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the mailbox of a given entity.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param create whether to create the mailbox if it does not exist
+	 * @return the mailbox or <tt>null</tt>
+	 */
+	private Mailbox mailbox(int destination, boolean create) {
+		if (destination < 0) {
+			if (create) {
+				throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+			}
+			return null;
+		}
+		if (destination >= mailboxes.length) {
+			if (!create) {
+				return null;
+			}
+			mailboxes = Arrays.copyOf(mailboxes, Math.max(destination + 1, mailboxes.length * 2));
+		}
+		Mailbox mailbox = mailboxes[destination];
+		if (mailbox == null && create) {
+			mailbox = new Mailbox(indexTags);
+			mailboxes[destination] = mailbox;
+		}
+		return mailbox;
+	}
+
+	/**
+	 * Inserts a node after all the events of a list with the same or an earlier time.
+	 *
+	 * @param chain the list
+	 * @param node the node
+	 */
+	private static void insert(Chain chain, Node node) {
+		int level = chain.level;
+		double eventTime = node.event.eventTime();
+		// events are almost always added at the end
+		Node previous = chain.last;
+		while (previous != null && previous.event.eventTime() > eventTime) {
+			previous = previous.prev[level];
+		}
+		Node next = previous == null ? chain.first : previous.next[level];
+		node.prev[level] = previous;
+		node.next[level] = next;
+		if (previous == null) {
+			chain.first = node;
+		} else {
+			previous.next[level] = node;
+		}
+		if (next == null) {
+			chain.last = node;
+		} else {
+			next.prev[level] = node;
+		}
+		node.chains[level] = chain;
+		chain.size++;
+	}
+
+	/**
+	 * Removes a node from all its lists.
+	 *
+	 * @param node the node
+	 */
+	private static void unlink(Node node) {
+		for (int level = ALL; level <= TAG; level++) {
+			Chain chain = node.chains[level];
+			if (chain == null) {
+				continue;
+			}
+			Node previous = node.prev[level];
+			Node next = node.next[level];
+			if (previous == null) {
+				chain.first = next;
+			} else {
+				previous.next[level] = next;
+			}
+			if (next == null) {
+				chain.last = previous;
+			} else {
+				next.prev[level] = previous;
+			}
+			node.chains[level] = null;
+			chain.size--;
+		}
+	}
+
+	/**
+	 * Removes the duplicates of a tag array.
+	 *
+	 * @param tags the tags
+	 * @return the distinct tags
+	 */
+	private static int[] distinct(int[] tags) {
+		if (tags.length < 2) {
+			return tags;
+		}
+		return Arrays.stream(tags).distinct().toArray();
+	}
+
+	/**
+	 * An iterator following the nodes of one level. Removing an event removes it from all the
+	 * lists.
+	 */
+	private static final class ChainIterator implements Iterator<SimEvent> {
+
+		private final int level;
+
+		private Node next;
+
+		private Node last;
+
+		private ChainIterator(Node first, int level) {
+			this.next = first;
+			this.level = level;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public SimEvent next() {
+			if (next == null) {
+				throw new NoSuchElementException();
+			}
+			last = next;
+			next = next.next[level];
+			return last.event;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			unlink(last);
+			last = null;
+		}
 	}
 
-}
\ No newline at end of file
+}
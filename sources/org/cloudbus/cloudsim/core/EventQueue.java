@@ -0,0 +1,81 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.function.Predicate;
+
+/**
+ * The storage behind a {@link FutureQueue}. Events are ordered by their time, then by their serial
+ * and then by the order in which they were added (the sequence number), which is the order
+ * {@link FutureQueue} has always used.
+ *
+ * @since CloudSim Toolkit 1.0
+ * @see FutureQueue
+ */
+public interface EventQueue {
+
+	/**
+	 * Adds an event to the queue.
+	 *
+	 * @param event the event
+	 * @param serial the serial of the event
+	 * @param seq the sequence number of the event, unique and increasing
+	 */
+	void add(SimEvent event, long serial, long seq);
+
+	/**
+	 * Gets the first event of the queue without removing it.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes the first event of the queue.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	SimEvent poll();
+
+	/**
+	 * Removes an event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if the event was in the queue
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Removes all the events matching a filter.
+	 *
+	 * @param filter the filter
+	 * @return true, if at least one event has been removed
+	 */
+	boolean removeIf(Predicate<SimEvent> filter);
+
+	/**
+	 * Gets all the events in the queue, in order.
+	 *
+	 * @return the events
+	 */
+	SimEvent[] toArray();
+
+	/**
+	 * Returns the number of events in the queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes all the events from the queue.
+	 */
+	void clear();
+
+}
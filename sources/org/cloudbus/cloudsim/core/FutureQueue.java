@@ -10,90 +10,210 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
- * 
+ * This class implements the future event queue used by {@link Simulation}. The events are stored
+ * in an {@link EventQueue}, by default an array-based 4-ary heap. Whatever the implementation, the
+ * events are ordered by time, then by serial and then by the order they were added.
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
- * @see java.util.TreeSet
+ * @see EventQueue
  */
 public class FutureQueue {
 
-	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	/**
+	 * The available event queue implementations.
+	 */
+	public enum Type {
+		/** A {@link SortedSetEventQueue}. */
+		SORTED_SET,
+		/** A {@link HeapEventQueue}. */
+		HEAP,
+		/** A {@link CalendarEventQueue}. */
+		CALENDAR;
+
+		/**
+		 * Creates an empty event queue of this type.
+		 *
+		 * @return the event queue
+		 */
+		public EventQueue create() {
+			switch (this) {
+				case SORTED_SET:
+					return new SortedSetEventQueue();
+				case CALENDAR:
+					return new CalendarEventQueue();
+				default:
+					return new HeapEventQueue();
+			}
+		}
+	}
+
+	/** The events. */
+	private final EventQueue queue;
 
 	/** The serial. */
 	private long serial = 0;
 
+	/** The sequence number of the next event. */
+	private long seq = 0;
+
+	/**
+	 * Creates a new future queue backed by a heap.
+	 */
+	public FutureQueue() {
+		this(Type.HEAP);
+	}
+
+	/**
+	 * Creates a new future queue.
+	 *
+	 * @param type the event queue implementation
+	 */
+	public FutureQueue(Type type) {
+		this(type.create());
+	}
+
+	/**
+	 * Creates a new future queue.
+	 *
+	 * @param queue the empty event queue storing the events
+	 */
+	public FutureQueue(EventQueue queue) {
+		this.queue = queue;
+	}
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
-		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		long eventSerial = serial++;
+		newEvent.setSerial(eventSerial);
+		queue.add(newEvent, eventSerial, seq++);
 	}
 
 	/**
 	 * Add a new event to the head of the queue.
-	 * 
+	 *
 	 * @param newEvent The event to be put in the queue.
 	 */
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		queue.add(newEvent, 0, seq++);
+	}
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent peek() {
+		return queue.peek();
+	}
+
+	/**
+	 * Removes the first event of the queue.
+	 *
+	 * @return the first event or <tt>null</tt> if the queue is empty
+	 */
+	public SimEvent poll() {
+		return queue.poll();
 	}
 
 	/**
-	 * Returns an iterator to the queue.
-	 * 
+	 * Returns an iterator to the queue. The iterator walks a copy of the queue taken when it is
+	 * created, in order; removing an event through the iterator removes it from the queue.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return sortedSet.iterator();
+		final SimEvent[] events = queue.toArray();
+		return new Iterator<SimEvent>() {
+
+			private int next = 0;
+
+			private SimEvent last = null;
+
+			@Override
+			public boolean hasNext() {
+				return next < events.length;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (next >= events.length) {
+					throw new NoSuchElementException();
+				}
+				last = events[next++];
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				queue.remove(last);
+				last = null;
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return queue.size();
 	}
 
 	/**
 	 * Removes the event from the queue.
-	 * 
+	 *
 	 * @param event the event
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		return queue.remove(event);
 	}
 
 	/**
 	 * Removes all the events from the queue.
-	 * 
+	 *
 	 * @param events the events
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= queue.remove(event);
+		}
+		return changed;
+	}
+
+	/**
+	 * Removes all the events matching a filter from the queue.
+	 *
+	 * @param filter the filter
+	 * @return true, if at least one event has been removed
+	 */
+	public boolean removeIf(Predicate<SimEvent> filter) {
+		return queue.removeIf(filter);
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		sortedSet.clear();
+		queue.clear();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,286 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * An {@link EventQueue} backed by an array-based 4-ary heap. The keys of the events (time, serial
+ * and sequence number) are kept in primitive arrays next to the events, so adding an event does
+ * not allocate anything but, from time to time, larger arrays.
+ * <p>
+ * Removing an arbitrary event takes linear time. The simulation only does that when an event is
+ * cancelled.
+ *
+ * @since CloudSim Toolkit 1.0
+ * @see FutureQueue
+ */
+public class HeapEventQueue implements EventQueue {
+
+	/** The number of children of a node. */
+	private static final int ARITY = 4;
+
+	/** The event times. */
+	private double[] times;
+
+	/** The event serials. */
+	private long[] serials;
+
+	/** The event sequence numbers. */
+	private long[] seqs;
+
+	/** The events. */
+	private SimEvent[] events;
+
+	/** The number of events. */
+	private int size;
+
+	/**
+	 * Creates a new empty queue.
+	 */
+	public HeapEventQueue() {
+		this(64);
+	}
+
+	/**
+	 * Creates a new empty queue.
+	 *
+	 * @param capacity the initial capacity
+	 */
+	public HeapEventQueue(int capacity) {
+		capacity = Math.max(capacity, 1);
+		times = new double[capacity];
+		serials = new long[capacity];
+		seqs = new long[capacity];
+		events = new SimEvent[capacity];
+		size = 0;
+	}
+
+	/**
+	 * Checks whether an event key comes before another one.
+	 *
+	 * @param time the time of the first event
+	 * @param serial the serial of the first event
+	 * @param seq the sequence number of the first event
+	 * @param otherTime the time of the second event
+	 * @param otherSerial the serial of the second event
+	 * @param otherSeq the sequence number of the second event
+	 * @return true, if the first event comes first
+	 */
+	static boolean precedes(double time, long serial, long seq, double otherTime, long otherSerial,
+			long otherSeq) {
+		if (time != otherTime) {
+			return time < otherTime;
+		}
+		if (serial != otherSerial) {
+			return serial < otherSerial;
+		}
+		return seq < otherSeq;
+	}
+
+	@Override
+	public void add(SimEvent event, long serial, long seq) {
+		if (size == events.length) {
+			int capacity = size + (size >> 1) + 1;
+			times = Arrays.copyOf(times, capacity);
+			serials = Arrays.copyOf(serials, capacity);
+			seqs = Arrays.copyOf(seqs, capacity);
+			events = Arrays.copyOf(events, capacity);
+		}
+		siftUp(size++, event.eventTime(), serial, seq, event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : events[0];
+	}
+
+	/**
+	 * Gets the time of the first event. The queue should not be empty.
+	 *
+	 * @return the time
+	 */
+	double firstTime() {
+		return times[0];
+	}
+
+	/**
+	 * Gets the serial of the first event. The queue should not be empty.
+	 *
+	 * @return the serial
+	 */
+	long firstSerial() {
+		return serials[0];
+	}
+
+	/**
+	 * Gets the sequence number of the first event. The queue should not be empty.
+	 *
+	 * @return the sequence number
+	 */
+	long firstSeq() {
+		return seqs[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = events[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		for (int i = 0; i < size; i++) {
+			if (events[i] == event) {
+				removeAt(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public boolean removeIf(Predicate<SimEvent> filter) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if (!filter.test(events[i])) {
+				times[kept] = times[i];
+				serials[kept] = serials[i];
+				seqs[kept] = seqs[i];
+				events[kept] = events[i];
+				kept++;
+			}
+		}
+		if (kept == size) {
+			return false;
+		}
+		Arrays.fill(events, kept, size, null);
+		size = kept;
+		// rebuild the heap bottom-up
+		for (int i = (size - 2) / ARITY; i >= 0; i--) {
+			siftDown(i, times[i], serials[i], seqs[i], events[i]);
+		}
+		return true;
+	}
+
+	@Override
+	public SimEvent[] toArray() {
+		HeapEventQueue copy = new HeapEventQueue(size);
+		System.arraycopy(times, 0, copy.times, 0, size);
+		System.arraycopy(serials, 0, copy.serials, 0, size);
+		System.arraycopy(seqs, 0, copy.seqs, 0, size);
+		System.arraycopy(events, 0, copy.events, 0, size);
+		copy.size = size;
+
+		SimEvent[] sorted = new SimEvent[size];
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = copy.poll();
+		}
+		return sorted;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(events, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Removes the event at a given position of the heap.
+	 *
+	 * @param index the position
+	 */
+	private void removeAt(int index) {
+		int last = --size;
+		if (index == last) {
+			events[last] = null;
+			return;
+		}
+		double time = times[last];
+		long serial = serials[last];
+		long seq = seqs[last];
+		SimEvent event = events[last];
+		events[last] = null;
+		siftDown(index, time, serial, seq, event);
+		if (events[index] == event) {
+			siftUp(index, time, serial, seq, event);
+		}
+	}
+
+	/**
+	 * Moves an event up from a given position until its parent comes before it.
+	 */
+	private void siftUp(int index, double time, long serial, long seq, SimEvent event) {
+		while (index > 0) {
+			int parent = (index - 1) / ARITY;
+			if (!precedes(time, serial, seq, times[parent], serials[parent], seqs[parent])) {
+				break;
+			}
+			move(parent, index);
+			index = parent;
+		}
+		set(index, time, serial, seq, event);
+	}
+
+	/**
+	 * Moves an event down from a given position until it comes before all its children.
+	 */
+	private void siftDown(int index, double time, long serial, long seq, SimEvent event) {
+		while (true) {
+			int child = index * ARITY + 1;
+			if (child >= size) {
+				break;
+			}
+			int min = child;
+			int end = Math.min(child + ARITY, size);
+			for (int i = child + 1; i < end; i++) {
+				if (precedes(times[i], serials[i], seqs[i], times[min], serials[min], seqs[min])) {
+					min = i;
+				}
+			}
+			if (!precedes(times[min], serials[min], seqs[min], time, serial, seq)) {
+				break;
+			}
+			move(min, index);
+			index = min;
+		}
+		set(index, time, serial, seq, event);
+	}
+
+	/**
+	 * Copies the event at a position to another position.
+	 */
+	private void move(int from, int to) {
+		times[to] = times[from];
+		serials[to] = serials[from];
+		seqs[to] = seqs[from];
+		events[to] = events[from];
+	}
+
+	/**
+	 * Stores an event at a position.
+	 */
+	private void set(int index, double time, long serial, long seq, SimEvent event) {
+		times[index] = time;
+		serials[index] = serial;
+		seqs[index] = seq;
+		events[index] = event;
+	}
+
+}
@@ -42,6 +42,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The simulation context this entity is bound to. */
+	private final SimulationContext context;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -55,7 +58,8 @@ public abstract class SimEntity implements Cloneable {
 		id = -1;
 		state = RUNNABLE;
 		
-		CloudSim.addEntity(this);
+		context = SimulationContext.current();
+		context.addEntity(this);
 	}
 
 	/**
@@ -76,6 +80,15 @@ public abstract class SimEntity implements Cloneable {
 		return id;
 	}
 
+	/**
+	 * Get the simulation context this entity is bound to.
+	 * 
+	 * @return The simulation context
+	 */
+	public SimulationContext getContext() {
+		return context;
+	}
+
 	// The schedule functions
 
 	/**
@@ -88,10 +101,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		context.send(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -116,7 +129,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(String dest, double delay, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), delay, tag, data);
+		schedule(context.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -163,7 +176,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleNow(String dest, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), 0, tag, data);
+		schedule(context.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -187,10 +200,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.sendFirst(id, dest, delay, tag, data);
+		context.sendFirst(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -215,7 +228,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(String dest, double delay, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), delay, tag, data);
+		scheduleFirst(context.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -262,7 +275,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirstNow(String dest, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), 0, tag, data);
+		scheduleFirst(context.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -285,10 +298,10 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		context.pause(id, delay);
 	}
 
 	/**
@@ -298,7 +311,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of matching events
 	 */
 	public int numEventsWaiting(Predicate p) {
-		return CloudSim.waiting(id, p);
+		return context.waiting(id, p);
 	}
 
 	/**
@@ -307,7 +320,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of events
 	 */
 	public int numEventsWaiting() {
-		return CloudSim.waiting(id, CloudSim.SIM_ANY);
+		return context.waiting(id, CloudSim.SIM_ANY);
 	}
 
 	/**
@@ -317,11 +330,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 
-		return CloudSim.select(id, p);
+		return context.select(id, p);
 	}
 
 	/**
@@ -331,11 +344,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The number of events cancelled (0 or 1)
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return context.cancel(id, p);
 	}
 
 	/**
@@ -346,7 +359,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return null;
 		}
 		if (numEventsWaiting(p) > 0) {
@@ -362,11 +375,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @param p The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!context.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		context.wait(id, p);
 		state = WAITING;
 	}
 
@@ -576,7 +589,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void send(String entityName, double delay, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), delay, cloudSimTag, data);
+		send(context.getEntityId(entityName), delay, cloudSimTag, data);
 	}
 
 	/**
@@ -644,7 +657,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void sendNow(String entityName, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), 0, cloudSimTag, data);
+		send(context.getEntityId(entityName), 0, cloudSimTag, data);
 	}
 
 	/**
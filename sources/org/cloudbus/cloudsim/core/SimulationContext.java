@@ -0,0 +1,1079 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * SimulationContext owns the state of one simulation: the clock, the future and deferred event
+ * queues, the entity registry and any other per-simulation state attached to it (e.g. simulation
+ * parameters or a replica catalog). Several contexts can run at the same time in one JVM, each of
+ * them on its own thread, without sharing any mutable state.
+ * <p>
+ * An entity is bound to the context that is current when the entity is created. The current
+ * context of a thread is the one bound with {@link #bind()}, or the default context if none has
+ * been bound. The static methods of {@link CloudSim} delegate to the current context, so a
+ * simulation that never binds a context keeps using the default one.
+ *
+ * @since CloudSim Toolkit 1.0
+ */
+public class SimulationContext {
+
+	/** The context used by threads that have not bound a context. */
+	private static final SimulationContext DEFAULT = new SimulationContext();
+
+	/** The context bound to each thread. */
+	private static final ThreadLocal<SimulationContext> BOUND = new ThreadLocal<SimulationContext>();
+
+	/**
+	 * Whether any thread has ever bound a context. A thread only sees its own binding, so until it
+	 * has bound a context itself the thread local lookup can be skipped.
+	 */
+	private static boolean contextsBound = false;
+
+	/** The number of attachment keys created so far. */
+	private static final AtomicInteger numKeys = new AtomicInteger();
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/**
+	 * A key of a per-context attachment.
+	 *
+	 * @param <T> the type of the attachment
+	 */
+	public static final class Key<T> {
+
+		/** The slot of the attachment. */
+		private final int index;
+
+		/** Creates the attachment of a context that does not have it yet. */
+		private final Supplier<T> factory;
+
+		/**
+		 * Creates a new key.
+		 *
+		 * @param index the slot of the attachment
+		 * @param factory creates the attachment of a context
+		 */
+		private Key(int index, Supplier<T> factory) {
+			this.index = index;
+			this.factory = factory;
+		}
+	}
+
+	/**
+	 * Creates a new attachment key. Keys are usually kept in a static final field of the class
+	 * owning the attached state.
+	 *
+	 * @param <T> the type of the attachment
+	 * @param factory creates the attachment the first time a context is asked for it
+	 * @return the key
+	 */
+	public static <T> Key<T> newKey(Supplier<T> factory) {
+		if (factory == null) {
+			throw new IllegalArgumentException("The attachment factory can't be null.");
+		}
+		return new Key<T>(numKeys.getAndIncrement(), factory);
+	}
+
+	/**
+	 * Gets the context of the calling thread.
+	 *
+	 * @return the bound context, or the default context if none has been bound
+	 */
+	public static SimulationContext current() {
+		if (contextsBound) {
+			SimulationContext context = BOUND.get();
+			if (context != null) {
+				return context;
+			}
+		}
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the default context, i.e. the context used by the static {@link CloudSim} API.
+	 *
+	 * @return the default context
+	 */
+	public static SimulationContext getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Binds a context to the calling thread.
+	 *
+	 * @param context the context, or <tt>null</tt> to fall back to the default context
+	 * @return the context bound before
+	 */
+	private static SimulationContext swap(SimulationContext context) {
+		SimulationContext previous = current();
+		if (context == null || context == DEFAULT) {
+			// falling back to the default context is the same as binding it
+			if (contextsBound) {
+				BOUND.remove();
+			}
+		} else {
+			contextsBound = true;
+			BOUND.set(context);
+		}
+		return previous;
+	}
+
+	/**
+	 * Binds this context to the calling thread. Entities created and static {@link CloudSim} calls
+	 * made afterwards by this thread use this context.
+	 *
+	 * @return this context
+	 */
+	public SimulationContext bind() {
+		swap(this);
+		return this;
+	}
+
+	/**
+	 * Unbinds this context from the calling thread, which falls back to the default context.
+	 */
+	public void unbind() {
+		if (current() == this) {
+			swap(null);
+		}
+	}
+
+	/** The id of CIS entity. */
+	private int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	@SuppressWarnings("unused")
+	private int shutdownId = -1;
+
+	/** The CIS object. */
+	private CloudInformationService cis = null;
+
+	/** The trace flag. */
+	@SuppressWarnings("unused")
+	private boolean traceFlag = false;
+
+	/** The calendar. */
+	private Calendar calendar = null;
+
+	/** The termination time. */
+	private double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	private double minTimeBetweenEvents = 0.1;
+
+	/** The entities. */
+	private List<SimEntity> entities;
+
+	/** The future event queue. */
+	private FutureQueue future;
+
+	/** The implementation of the future event queue. */
+	private FutureQueue.Type futureQueueType = FutureQueue.Type.HEAP;
+
+	/** The deferred event queue. */
+	private DeferredQueue deferred;
+
+	/** The simulation clock. */
+	private double clock;
+
+	/** Flag for checking if the simulation is running. */
+	private boolean running;
+
+	/** The entities by name. */
+	private Map<String, SimEntity> entitiesByName;
+
+	// The predicates used in entity wait methods
+	/** The wait predicates. */
+	private Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	private boolean paused = false;
+
+	/** The pause at. */
+	private long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	private boolean abruptTerminate = false;
+
+	/** The per-context attachments, indexed by key. */
+	private Object[] attachments = new Object[4];
+
+	/**
+	 * Sets the implementation of the future event queue. It is used from the next
+	 * {@link #init(int, Calendar, boolean)} on.
+	 *
+	 * @param type the implementation
+	 */
+	public void setFutureQueueType(FutureQueue.Type type) {
+		futureQueueType = type;
+	}
+
+	/**
+	 * Gets the implementation of the future event queue.
+	 *
+	 * @return the implementation
+	 */
+	public FutureQueue.Type getFutureQueueType() {
+		return futureQueueType;
+	}
+
+	/**
+	 * Gets the attachment of this context for a given key, creating it if this context does not
+	 * have it yet. Attachments are kept across {@link #init(int, Calendar, boolean)}.
+	 *
+	 * @param <T> the type of the attachment
+	 * @param key the key
+	 * @return the attachment
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Key<T> key) {
+		if (key.index >= attachments.length) {
+			attachments = Arrays.copyOf(attachments, Math.max(key.index + 1, attachments.length * 2));
+		}
+		Object value = attachments[key.index];
+		if (value == null) {
+			value = key.factory.get();
+			attachments[key.index] = value;
+		}
+		return (T) value;
+	}
+
+	/**
+	 * Initialises all the common attributes.
+	 *
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 * @pre $none
+	 * @post $none
+	 */
+	private void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
+			throws Exception {
+		initialize();
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialises the simulation of this context. The CloudSim entities created here are bound to
+	 * this context.
+	 *
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @see CloudSim#init(int, Calendar, boolean)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag) {
+		SimulationContext previous = swap(this);
+		try {
+			initCommonVariable(cal, traceFlag, numUser);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (IllegalArgumentException s) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(s.getMessage());
+		} catch (Exception e) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(e.getMessage());
+		} finally {
+			swap(previous);
+		}
+	}
+
+	/**
+	 * Initialises the simulation of this context.
+	 *
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded.
+	 * @see CloudSim#init(int, Calendar, boolean, double)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+		if (periodBetweenEvents <= 0) {
+			throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+		}
+
+		init(numUser, cal, traceFlag);
+		minTimeBetweenEvents = periodBetweenEvents;
+	}
+
+	/**
+	 * Starts the simulation of this context. The context is bound to the calling thread while the
+	 * simulation runs.
+	 *
+	 * @return the last clock value
+	 * @throws NullPointerException This happens when this context has not been initialised
+	 * @see CloudSim#startSimulation()
+	 * @pre $none
+	 * @post $none
+	 */
+	public double startSimulation() throws NullPointerException {
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+		try {
+			double clock = run();
+
+			// reset all the simulation variables
+			cisId = -1;
+			shutdownId = -1;
+			cis = null;
+			calendar = null;
+			traceFlag = false;
+
+			return clock;
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new NullPointerException("CloudSim.startCloudSimulation() :"
+					+ " Error - you haven't initialized CloudSim.");
+		}
+	}
+
+	/**
+	 * Stops the simulation of this context.
+	 *
+	 * @throws NullPointerException This happens when the simulation can't be stopped
+	 * @see CloudSim#stopSimulation()
+	 * @pre $none
+	 * @post $none
+	 */
+	public void stopSimulation() throws NullPointerException {
+		try {
+			finishSimulation();
+			runStop();
+		} catch (IllegalArgumentException e) {
+			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
+					+ "Error - can't stop Cloud Simulation.");
+		}
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation.
+	 *
+	 * @return true, if successful; false otherwise.
+	 */
+	public boolean terminateSimulation() {
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded.
+	 * @return the minimum time between events.
+	 */
+	public double getMinTimeBetweenEvents() {
+		return minTimeBetweenEvents;
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 *
+	 * @return a new copy of Calendar object or if the context hasn't been initialized
+	 * @pre $none
+	 * @post $none
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 *
+	 * @return the Entity ID or if it is not found
+	 * @pre $none
+	 * @post $result >= -1
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Gets the list of all Cloud resources registered in the Cloud Information Service of this
+	 * context.
+	 *
+	 * @return A List containing CloudResource ID (as an Integer object) or if a CIS entity hasn't
+	 *         been created before
+	 * @pre $none
+	 * @post $none
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should be called at the
+	 * start of the simulation.
+	 */
+	protected void initialize() {
+		Log.printLine("Initialising...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		future = new FutureQueue(futureQueueType);
+		deferred = new DeferredQueue();
+		waitPredicates = new HashMap<Integer, Predicate>();
+		clock = 0;
+		running = false;
+	}
+
+	// Public access methods
+
+	/**
+	 * Get the current simulation time.
+	 *
+	 * @return the simulation time
+	 */
+	public double clock() {
+		return clock;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 *
+	 * @return The number of entities
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 *
+	 * @param id the entity's unique id number
+	 * @return The entity, or if it could not be found
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 *
+	 * @param name The entity's name
+	 * @return The entity's unique id number
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 *
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(int entityID) {
+		try {
+			return getEntity(entityID).getName();
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 *
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @pre entityID > 0
+	 * @post $none
+	 */
+	public String getEntityName(Integer entityID) {
+		if (entityID != null) {
+			return getEntityName(entityID.intValue());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a list of entities created for the simulation.
+	 *
+	 * @return the entity iterator
+	 */
+	public List<SimEntity> getEntityList() {
+		// create a new list to prevent the user from changing
+		// the list of entities used by Simulation
+		List<SimEntity> list = new LinkedList<SimEntity>();
+		list.addAll(entities);
+		return list;
+	}
+
+	// Public update methods
+
+	/**
+	 * Add a new entity to the simulation. This is present for compatibility with existing
+	 * simulations since entities are automatically added to the simulation upon instantiation.
+	 *
+	 * @param e The new entity
+	 */
+	public void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (e == null)
+			Log.printLine("Debug!!! CloudSim. Entity is null");
+
+		if (running) {
+			// Post an event to make this entity
+			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			if (entities == null)
+				Log.printLine("Debug!!! CloudSim. entities is null");
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 *
+	 * @param e The new entity
+	 */
+	protected void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	/**
+	 * Internal method used to run one tick of the simulation. This method should <b>not</b> be
+	 * called in simulations.
+	 *
+	 * @return true, if successful otherwise
+	 */
+	public boolean runClockTick() {
+		SimEntity ent;
+		boolean queue_empty;
+
+		int entities_size = entities.size();
+
+		for (int i = 0; i < entities_size; i++) {
+			ent = entities.get(i);
+			if (ent.getState() == SimEntity.RUNNABLE) {
+				ent.run();
+				//printMessage("Run entity: " + ent.getName());
+			}
+		}
+
+		// If there are more future events then deal with them
+		if (future.size() > 0) {
+			queue_empty = false;
+			SimEvent first = future.poll();
+			processEvent(first);
+
+			// Check if next events are at same time...
+			SimEvent next = future.peek();
+			while (next != null && next.eventTime() == first.eventTime()) {
+				processEvent(future.poll());
+				next = future.peek();
+			}
+
+		} else {
+			queue_empty = true;
+			running = false;
+			printMessage("Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
+	 */
+	public void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Used to hold an entity for some time.
+	 *
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void hold(int src, long delay) {
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
+		future.addEvent(e);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 *
+	 * @param src the src
+	 * @param delay the delay
+	 */
+	public void pause(int src, double delay) {
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
+		future.addEvent(e);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void send(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEvent(e);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 *
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 */
+	public void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEventFirst(e);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting. The predicate used to wait for an event is now passed
+	 * to Sim_system. Only events that satisfy the predicate will be passed to the entity. This is
+	 * done to avoid unnecessary context switches.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 */
+	public void wait(int src, Predicate p) {
+		entities.get(src).setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			waitPredicates.put(src, p);
+		}
+	}
+
+	/**
+	 * Checks if events for a specific entity are present in the deferred event queue.
+	 *
+	 * @param d the d
+	 * @param p the p
+	 * @return the int
+	 */
+	public int waiting(int d, Predicate p) {
+		return deferred.count(d, p);
+	}
+
+	/**
+	 * Selects an event matching a predicate.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent select(int src, Predicate p) {
+		SimEvent ev = deferred.removeFirst(src, p);
+		if (ev == null) {
+			// when nothing matches, the last deferred event is returned (and kept), as the
+			// former linear scan did; PowerDatacenter relies on this for VM migrations
+			ev = deferred.last();
+		}
+		return ev;
+	}
+
+	/**
+	 * Find first deferred event matching a predicate.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent findFirstDeferred(int src, Predicate p) {
+		SimEvent ev = deferred.first(src, p);
+		if (ev == null) {
+			// same fallback as select(int, Predicate)
+			ev = deferred.last();
+		}
+		return ev;
+	}
+
+	/**
+	 * Removes an event from the event queue.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		SimEvent ev = null;
+		Iterator<SimEvent> iter = future.iterator();
+		while (iter.hasNext()) {
+			ev = iter.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				iter.remove();
+				break;
+			}
+		}
+
+		return ev;
+	}
+
+	/**
+	 * Removes all events that match a given predicate from the future event queue returns true if
+	 * at least one event has been cancelled; false otherwise.
+	 *
+	 * @param src the src
+	 * @param p the p
+	 * @return true, if successful
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		int previousSize = future.size();
+		future.removeIf(ev -> ev.getSource() == src && p.match(ev));
+		return previousSize < future.size();
+	}
+
+	//
+	// Private internal methods
+	//
+
+	/**
+	 * Processes an event.
+	 *
+	 * @param e the e
+	 */
+	private void processEvent(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		clock = e.eventTime();
+
+		// Ok now process it
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.CREATE:
+				SimEntity newe = (SimEntity) e.getData();
+				addEntityDynamically(newe);
+				break;
+
+			case SimEvent.SEND:
+				// Check for matching wait
+				dest = e.getDestination();
+				if (dest < 0) {
+					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+				} else {
+					int tag = e.getTag();
+					dest_ent = entities.get(dest);
+					if (dest_ent.getState() == SimEntity.WAITING) {
+						Integer destObj = Integer.valueOf(dest);
+						Predicate p = waitPredicates.get(destObj);
+						if ((p == null) || (tag == 9999) || (p.match(e))) {
+							dest_ent.setEventBuffer((SimEvent) e.clone());
+							dest_ent.setState(SimEntity.RUNNABLE);
+							waitPredicates.remove(destObj);
+						} else {
+							deferred.addEvent(e);
+						}
+					} else {
+						deferred.addEvent(e);
+					}
+				}
+				break;
+
+			case SimEvent.HOLD_DONE:
+				src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				} else {
+					entities.get(src).setState(SimEntity.RUNNABLE);
+				}
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Internal method used to start the simulation. This method should <b>not</b> be used by user
+	 * simulations.
+	 */
+	public void runStart() {
+		running = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Check if the simulation is still running. This method should be used by entities to check if
+	 * they should continue executing.
+	 *
+	 * @return if the simulation is still running, otherwise
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation.
+	 *
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation at a given time.
+	 *
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 */
+	public boolean pauseSimulation(long time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to resume the simulation that has previously been paused.
+	 *
+	 * @return if the simulation has been restarted or or otherwise.
+	 */
+	public boolean resumeSimulation() {
+		paused = false;
+
+		if (pauseAt <= clock) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running. This should be called after all the entities have been setup
+	 * and added, and their ports linked. The context is bound to the calling thread until the
+	 * simulation stops.
+	 *
+	 * @return the double last clock value
+	 */
+	public double run() {
+		SimulationContext previous = swap(this);
+		try {
+			if (!running) {
+				runStart();
+			}
+			while (true) {
+				if (runClockTick() || abruptTerminate) {
+					break;
+				}
+
+				// this block allows termination of simulation at a specific time
+				if (terminateAt > 0.0 && clock >= terminateAt) {
+					terminateSimulation();
+					clock = terminateAt;
+					break;
+				}
+
+				if (pauseAt != -1
+						&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.peek().eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+					pauseSimulation();
+					clock = pauseAt;
+				}
+
+				while (paused) {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+						e.printStackTrace();
+					}
+				}
+			}
+
+			return clock;
+		} finally {
+			swap(previous);
+		}
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate. This method should <b>not</b> be used
+	 * in user simulations.
+	 */
+	public void finishSimulation() {
+		SimulationContext previous = swap(this);
+		try {
+			// Allow all entities to exit their body method
+			if (!abruptTerminate) {
+				for (SimEntity ent : entities) {
+					if (ent.getState() != SimEntity.FINISHED) {
+						ent.run();
+					}
+				}
+			}
+
+			for (SimEntity ent : entities) {
+				ent.shutdownEntity();
+			}
+		} finally {
+			swap(previous);
+		}
+
+		// reset all the simulation variables
+		// Private data members
+		entities = null;
+		entitiesByName = null;
+		future = null;
+		deferred = null;
+		clock = 0L;
+		running = false;
+
+		waitPredicates = null;
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 *
+	 * @param message the message
+	 */
+	private void printMessage(String message) {
+		Log.printLine(message);
+	}
+
+	/**
+	 * Checks if is paused.
+	 *
+	 * @return true, if is paused
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * An {@link EventQueue} that uses a {@link TreeSet} in order to store the events, ordered by
+ * {@link SimEvent#compareTo(SimEvent)}. This is how {@link FutureQueue} stored its events before
+ * the heap based queue was added.
+ *
+ * @since CloudSim Toolkit 1.0
+ * @see FutureQueue
+ * @see java.util.TreeSet
+ */
+public class SortedSetEventQueue implements EventQueue {
+
+	/** The sorted set. */
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	@Override
+	public void add(SimEvent event, long serial, long seq) {
+		sortedSet.add(event);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return sortedSet.isEmpty() ? null : sortedSet.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		return sortedSet.pollFirst();
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	@Override
+	public boolean removeIf(Predicate<SimEvent> filter) {
+		return sortedSet.removeIf(filter);
+	}
+
+	@Override
+	public SimEvent[] toArray() {
+		return sortedSet.toArray(new SimEvent[sortedSet.size()]);
+	}
+
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
@@ -0,0 +1,194 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class represents a delay-topology like {@link DelayMatrix_Float}, for large sparse graphs.
+ * The links are kept as adjacency lists and the delays from a source node are computed with
+ * Dijkstra the first time they are asked for, then cached. Building it takes O(n + l) and each
+ * source takes O(l log n) once, instead of the O(n^3) of Floyd-Warshall over a dense matrix.
+ * <p>
+ * The delays are the ones of {@link DelayMatrix_Float}: a link with a delay of 0 is no link, a
+ * later link between the same nodes replaces the former one, the delay from a node to itself is 0
+ * and the delay between unconnected nodes is {@link Float#MAX_VALUE}. They can only differ by the
+ * rounding of the float sums along the paths.
+ *
+ * @since CloudSim Toolkit 1.0
+ */
+public class DelayMatrix_Sparse {
+
+	/**
+	 * number of nodes in the distance-aware-topology
+	 */
+	protected int mTotalNodeNum = 0;
+
+	/**
+	 * the neighbours of each node, the ones of node i are at mFirstLink[i] to mFirstLink[i + 1] - 1
+	 */
+	private int[] mFirstLink;
+
+	private int[] mNeighbour;
+
+	private float[] mLinkDelay;
+
+	/**
+	 * the delays from each source node, null until they are asked for
+	 */
+	private final AtomicReferenceArray<float[]> mDelays;
+
+	/**
+	 * this constructor creates an correct initialized sparse delay-matrix
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if an directed matrix should be computed, false otherwise
+	 */
+	public DelayMatrix_Sparse(TopologicalGraph graph, boolean directed) {
+		mTotalNodeNum = graph.getNumberOfNodes();
+		mDelays = new AtomicReferenceArray<float[]>(mTotalNodeNum);
+		createAdjacencyLists(graph, directed);
+	}
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @param destID the id of the destination-node
+	 * @return the delay-count between the given two nodes
+	 */
+	public float getDelay(int srcID, int destID) {
+		// check the nodeIDs against internal array-boundarys
+		if (srcID > mTotalNodeNum || destID > mTotalNodeNum) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+
+		float[] delays = mDelays.get(srcID);
+		if (delays == null) {
+			delays = calculateShortestPaths(srcID);
+			// another thread may have cached the same delays meanwhile, both are equal
+			mDelays.set(srcID, delays);
+		}
+		return delays[destID];
+	}
+
+	/**
+	 * creates the adjacency lists of the given graph
+	 *
+	 * @param graph this graph contains all node and link information
+	 * @param directed defines to create directed or undirected adjacency lists
+	 */
+	private void createAdjacencyLists(TopologicalGraph graph, boolean directed) {
+		// the links keyed by source and destination node; a later link between the same nodes
+		// replaces the former one, as in the dense matrix
+		Map<Long, Float> links = new LinkedHashMap<Long, Float>();
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			links.put(getLinkKey(edge.getSrcNodeID(), edge.getDestNodeID()), edge.getLinkDelay());
+			if (!directed) {
+				links.put(getLinkKey(edge.getDestNodeID(), edge.getSrcNodeID()), edge.getLinkDelay());
+			}
+		}
+
+		// as in FloydWarshall_Float, a delay of 0 means that there is no link
+		mFirstLink = new int[mTotalNodeNum + 1];
+		for (Map.Entry<Long, Float> link : links.entrySet()) {
+			if (link.getValue() != 0) {
+				mFirstLink[getLinkSrc(link.getKey()) + 1]++;
+			}
+		}
+		for (int node = 0; node < mTotalNodeNum; ++node) {
+			mFirstLink[node + 1] += mFirstLink[node];
+		}
+		int linkNum = mFirstLink[mTotalNodeNum];
+		mNeighbour = new int[linkNum];
+		mLinkDelay = new float[linkNum];
+		int[] next = new int[mTotalNodeNum];
+		System.arraycopy(mFirstLink, 0, next, 0, mTotalNodeNum);
+		for (Map.Entry<Long, Float> link : links.entrySet()) {
+			if (link.getValue() != 0) {
+				int src = getLinkSrc(link.getKey());
+				mNeighbour[next[src]] = getLinkDest(link.getKey());
+				mLinkDelay[next[src]] = link.getValue();
+				next[src]++;
+			}
+		}
+	}
+
+	private static long getLinkKey(int src, int dest) {
+		return (long) src << 32 | (dest & 0xFFFFFFFFL);
+	}
+
+	private static int getLinkSrc(long key) {
+		return (int) (key >>> 32);
+	}
+
+	private static int getLinkDest(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * calculates the delays from one node to all the others with Dijkstra
+	 *
+	 * @param srcID the id of the source-node
+	 * @return the delays
+	 */
+	private float[] calculateShortestPaths(int srcID) {
+		float[] delays = new float[mTotalNodeNum];
+		for (int node = 0; node < mTotalNodeNum; ++node) {
+			delays[node] = Float.MAX_VALUE;
+		}
+		delays[srcID] = 0;
+
+		boolean[] settled = new boolean[mTotalNodeNum];
+		PriorityQueue<Path> queue = new PriorityQueue<Path>();
+		queue.add(new Path(srcID, 0));
+		while (!queue.isEmpty()) {
+			Path path = queue.poll();
+			int node = path.node;
+			if (settled[node]) {
+				continue;
+			}
+			settled[node] = true;
+			for (int link = mFirstLink[node]; link < mFirstLink[node + 1]; ++link) {
+				int neighbour = mNeighbour[link];
+				float delay = delays[node] + mLinkDelay[link];
+				if (!settled[neighbour] && delay < delays[neighbour]) {
+					delays[neighbour] = delay;
+					queue.add(new Path(neighbour, delay));
+				}
+			}
+		}
+		return delays;
+	}
+
+	/**
+	 * a node and the delay of a path to it
+	 */
+	private static final class Path implements Comparable<Path> {
+
+		private final int node;
+
+		private final float delay;
+
+		private Path(int node, float delay) {
+			this.node = node;
+			this.delay = delay;
+		}
+
+		@Override
+		public int compareTo(Path other) {
+			return Float.compare(delay, other.delay);
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * An index of the hosts of a VM allocation policy by available MIPS, used while the policy places
+ * VMs. It also keeps the CPU utilization in MIPS of each host, as computed by the policy, so that
+ * it is not computed again for each VM to place.
+ * <p>
+ * The index does not watch the hosts: every host whose VMs are created or destroyed while the index
+ * is in use must be updated with {@link #update(PowerHost)}. A host whose available MIPS is lower
+ * than the total MIPS requested by a VM is not suitable for it (see
+ * {@link org.cloudbus.cloudsim.Host#isSuitableForVm(org.cloudbus.cloudsim.Vm)}), so the candidates
+ * are the same hosts as the ones of a full scan, without the unsuitable ones.
+ *
+ * @since CloudSim Toolkit 1.0
+ */
+public class PowerHostIndex {
+
+	/** The hosts, in the order of the host list of the policy. */
+	private final List<PowerHost> hosts;
+
+	/** The position of each host in the host list. */
+	private final Map<PowerHost, Integer> positions;
+
+	/** The current entry of each host. */
+	private final Entry[] entries;
+
+	/** The entries sorted by available mips. */
+	private final TreeSet<Entry> entriesByMips = new TreeSet<Entry>();
+
+	/** The utilization of the CPU in MIPS of each host. */
+	private final double[] utilizationOfCpuMips;
+
+	/** The policy that computes the utilization of the hosts. */
+	private final PowerVmAllocationPolicyMigrationAbstract policy;
+
+	/**
+	 * Instantiates a new power host index.
+	 *
+	 * @param hosts the host list of the policy
+	 * @param policy the policy that computes the utilization of the hosts
+	 */
+	public PowerHostIndex(List<PowerHost> hosts, PowerVmAllocationPolicyMigrationAbstract policy) {
+		this.hosts = hosts;
+		this.policy = policy;
+		int hostNum = hosts.size();
+		positions = new HashMap<PowerHost, Integer>(hostNum * 2);
+		entries = new Entry[hostNum];
+		utilizationOfCpuMips = new double[hostNum];
+		for (int i = 0; i < hostNum; i++) {
+			PowerHost host = hosts.get(i);
+			positions.put(host, i);
+			index(host, i);
+		}
+	}
+
+	/**
+	 * Updates the available mips and the utilization of a host, after its VMs have changed.
+	 *
+	 * @param host the host
+	 */
+	public void update(PowerHost host) {
+		Integer position = positions.get(host);
+		if (position != null) {
+			entriesByMips.remove(entries[position]);
+			index(host, position);
+		}
+	}
+
+	/**
+	 * Gets the hosts whose available mips are at least the requested mips, in the order of the host
+	 * list.
+	 *
+	 * @param requestedMips the requested mips
+	 * @return the candidate hosts
+	 */
+	public List<PowerHost> getHostsWithAvailableMips(double requestedMips) {
+		if (!(requestedMips > 0)) {
+			return new ArrayList<PowerHost>(hosts);
+		}
+		BitSet candidates = new BitSet(hosts.size());
+		for (Entry entry : entriesByMips.tailSet(new Entry(requestedMips, -1), true)) {
+			candidates.set(entry.position);
+		}
+		List<PowerHost> candidateHosts = new ArrayList<PowerHost>(candidates.cardinality());
+		for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+			candidateHosts.add(hosts.get(i));
+		}
+		return candidateHosts;
+	}
+
+	/**
+	 * Gets the utilization of the CPU in MIPS of a host, as of its last update.
+	 *
+	 * @param host the host
+	 * @return the utilization of the CPU in MIPS, or -1 if the host is not indexed
+	 */
+	public double getUtilizationOfCpuMips(PowerHost host) {
+		Integer position = positions.get(host);
+		if (position == null) {
+			return -1;
+		}
+		return utilizationOfCpuMips[position];
+	}
+
+	private void index(PowerHost host, int position) {
+		entries[position] = new Entry(host.getVmScheduler().getAvailableMips(), position);
+		entriesByMips.add(entries[position]);
+		utilizationOfCpuMips[position] = policy.computeUtilizationOfCpuMips(host);
+	}
+
+	/**
+	 * The available mips of a host and its position, ordered by available mips then position.
+	 */
+	private static final class Entry implements Comparable<Entry> {
+
+		private final double availableMips;
+
+		private final int position;
+
+		private Entry(double availableMips, int position) {
+			this.availableMips = availableMips;
+			this.position = position;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int result = Double.compare(availableMips, other.availableMips);
+			if (result == 0) {
+				result = position < other.position ? -1 : (position == other.position ? 0 : 1);
+			}
+			return result;
+		}
+	}
+
+}
@@ -15,6 +15,7 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -56,20 +57,84 @@ public class PowerHostUtilizationHistory extends PowerHost {
 		super(id, ramProvisioner, bwProvisioner, storage, peList, vmScheduler, powerModel);
 	}
 
+	/** The host utilization history computed last. */
+	private double[] utilizationHistory;
+
+	/** The vms whose histories the last utilization history was computed from. */
+	private PowerVm[] historyVms = new PowerVm[0];
+
+	/** The mips of these vms. */
+	private double[] historyVmMips = new double[0];
+
+	/** The number of values added to the history of each of these vms. */
+	private long[] historyVmAddedNums = new long[0];
+
+	/** The total mips of the host. */
+	private double historyHostMips;
+
 	/**
 	 * Gets the host utilization history.
 	 * 
 	 * @return the host utilization history
 	 */
 	protected double[] getUtilizationHistory() {
-		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
+		return getCachedUtilizationHistory().clone();
+	}
+
+	/**
+	 * Gets the host utilization history without copying it. It is only computed again when the vms
+	 * of the host, their mips or their histories have changed since the last call, so the returned
+	 * array must not be modified.
+	 * 
+	 * @return the host utilization history
+	 */
+	protected double[] getCachedUtilizationHistory() {
+		List<PowerVm> vms = this.<PowerVm> getVmList();
 		double hostMips = getTotalMips();
-		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
+		if (utilizationHistory != null && isUtilizationHistoryUpToDate(vms, hostMips)) {
+			return utilizationHistory;
+		}
+
+		double[] history = new double[PowerVm.HISTORY_LENGTH];
+		int vmNum = vms.size();
+		historyVms = new PowerVm[vmNum];
+		historyVmMips = new double[vmNum];
+		historyVmAddedNums = new long[vmNum];
+		for (int v = 0; v < vmNum; v++) {
+			PowerVm vm = vms.get(v);
+			DoubleRingBuffer vmHistory = vm.getUtilizationHistory();
+			for (int i = 0; i < vmHistory.size(); i++) {
+				history[i] += vmHistory.getDouble(i) * vm.getMips() / hostMips;
+			}
+			historyVms[v] = vm;
+			historyVmMips[v] = vm.getMips();
+			historyVmAddedNums[v] = vmHistory.getAddedNum();
+		}
+		historyHostMips = hostMips;
+		utilizationHistory = MathUtil.trimZeroTail(history);
+		return utilizationHistory;
+	}
+
+	/**
+	 * Checks whether the vms, their mips, their histories and the host mips are still the ones the
+	 * last utilization history was computed from.
+	 * 
+	 * @param vms the vms of the host
+	 * @param hostMips the total mips of the host
+	 * @return true, if the last utilization history can be reused
+	 */
+	private boolean isUtilizationHistoryUpToDate(List<PowerVm> vms, double hostMips) {
+		if (hostMips != historyHostMips || vms.size() != historyVms.length) {
+			return false;
+		}
+		for (int v = 0; v < historyVms.length; v++) {
+			PowerVm vm = vms.get(v);
+			if (vm != historyVms[v] || vm.getMips() != historyVmMips[v]
+					|| vm.getUtilizationHistory().getAddedNum() != historyVmAddedNums[v]) {
+				return false;
 			}
 		}
-		return MathUtil.trimZeroTail(utilizationHistory);
+		return true;
 	}
 
 }
@@ -8,12 +8,12 @@
 
 package org.cloudbus.cloudsim.power;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -37,7 +37,7 @@ public class PowerVm extends Vm {
 	public static final int HISTORY_LENGTH = 30;
 
 	/** The utilization history. */
-	private final List<Double> utilizationHistory = new LinkedList<Double>();
+	private final DoubleRingBuffer utilizationHistory = new DoubleRingBuffer(HISTORY_LENGTH);
 
 	/** The previous time. */
 	private double previousTime;
@@ -116,7 +116,7 @@ public class PowerVm extends Vm {
 			double median = MathUtil.median(getUtilizationHistory());
 			double[] deviationSum = new double[n];
 			for (int i = 0; i < n; i++) {
-				deviationSum[i] = Math.abs(median - getUtilizationHistory().get(i));
+				deviationSum[i] = Math.abs(median - getUtilizationHistory().getDouble(i));
 			}
 			mad = MathUtil.median(deviationSum);
 		}
@@ -136,7 +136,7 @@ public class PowerVm extends Vm {
 				n = getUtilizationHistory().size();
 			}
 			for (int i = 0; i < n; i++) {
-				mean += getUtilizationHistory().get(i);
+				mean += getUtilizationHistory().getDouble(i);
 			}
 			mean /= n;
 		}
@@ -157,7 +157,7 @@ public class PowerVm extends Vm {
 				n = getUtilizationHistory().size();
 			}
 			for (int i = 0; i < n; i++) {
-				double tmp = getUtilizationHistory().get(i) * getMips() - mean;
+				double tmp = getUtilizationHistory().getDouble(i) * getMips() - mean;
 				variance += tmp * tmp;
 			}
 			variance /= n;
@@ -171,18 +171,15 @@ public class PowerVm extends Vm {
 	 * @param utilization the utilization
 	 */
 	public void addUtilizationHistoryValue(final double utilization) {
-		getUtilizationHistory().add(0, utilization);
-		if (getUtilizationHistory().size() > HISTORY_LENGTH) {
-			getUtilizationHistory().remove(HISTORY_LENGTH);
-		}
+		getUtilizationHistory().addFirst(utilization);
 	}
 
 	/**
-	 * Gets the utilization history.
+	 * Gets the utilization history, newest first. It keeps the last {@link #HISTORY_LENGTH} values.
 	 * 
 	 * @return the utilization history
 	 */
-	protected List<Double> getUtilizationHistory() {
+	protected DoubleRingBuffer getUtilizationHistory() {
 		return utilizationHistory;
 	}
 
@@ -23,6 +23,7 @@ import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.power.lists.PowerVmList;
 import org.cloudbus.cloudsim.util.ExecutionTimeMeasurer;
+import org.cloudbus.cloudsim.util.WindowStatistics;
 
 /**
  * The class of an abstract power-aware VM allocation policy that dynamically optimizes the VM
@@ -68,6 +69,12 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	/** The execution time history total. */
 	private final List<Double> executionTimeHistoryTotal = new LinkedList<Double>();
 
+	/** The statistics computed over the host utilization histories. */
+	private final WindowStatistics windowStatistics = new WindowStatistics();
+
+	/** The index of the hosts while the vms to migrate are placed, null otherwise. */
+	private PowerHostIndex hostIndex;
+
 	/**
 	 * Instantiates a new power vm allocation policy migration abstract.
 	 * 
@@ -107,13 +114,18 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 
 		Log.printLine("Reallocation of VMs from the over-utilized hosts:");
 		ExecutionTimeMeasurer.start("optimizeAllocationVmReallocation");
-		List<Map<String, Object>> migrationMap = getNewVmPlacement(vmsToMigrate, new HashSet<Host>(
-				overUtilizedHosts));
-		getExecutionTimeHistoryVmReallocation().add(
-				ExecutionTimeMeasurer.end("optimizeAllocationVmReallocation"));
-		Log.printLine();
+		hostIndex = new PowerHostIndex(this.<PowerHost> getHostList(), this);
+		List<Map<String, Object>> migrationMap;
+		try {
+			migrationMap = getNewVmPlacement(vmsToMigrate, new HashSet<Host>(overUtilizedHosts));
+			getExecutionTimeHistoryVmReallocation().add(
+					ExecutionTimeMeasurer.end("optimizeAllocationVmReallocation"));
+			Log.printLine();
 
-		migrationMap.addAll(getMigrationMapFromUnderUtilizedHosts(overUtilizedHosts));
+			migrationMap.addAll(getMigrationMapFromUnderUtilizedHosts(overUtilizedHosts));
+		} finally {
+			hostIndex = null;
+		}
 
 		restoreAllocation();
 
@@ -213,7 +225,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		double minPower = Double.MAX_VALUE;
 		PowerHost allocatedHost = null;
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
+		for (PowerHost host : getCandidateHosts(vm)) {
 			if (excludedHosts.contains(host)) {
 				continue;
 			}
@@ -251,9 +263,36 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			isHostOverUtilizedAfterAllocation = isHostOverUtilized(host);
 			host.vmDestroy(vm);
 		}
+		updateHostIndex(host);
 		return isHostOverUtilizedAfterAllocation;
 	}
 
+	/**
+	 * Gets the hosts to consider for a vm. While the vms to migrate are placed, these are the hosts
+	 * that have enough available mips, otherwise all the hosts.
+	 * 
+	 * @param vm the vm
+	 * @return the candidate hosts, in the order of the host list
+	 */
+	protected List<PowerHost> getCandidateHosts(Vm vm) {
+		if (hostIndex == null) {
+			return this.<PowerHost> getHostList();
+		}
+		return hostIndex.getHostsWithAvailableMips(vm.getCurrentRequestedTotalMips());
+	}
+
+	/**
+	 * Updates the index of the hosts after the vms of a host have been created or destroyed while
+	 * the vms to migrate are placed.
+	 * 
+	 * @param host the host
+	 */
+	protected void updateHostIndex(PowerHost host) {
+		if (hostIndex != null) {
+			hostIndex.update(host);
+		}
+	}
+
 	/**
 	 * Find host for vm.
 	 * 
@@ -299,6 +338,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			PowerHost allocatedHost = findHostForVm(vm, excludedHosts);
 			if (allocatedHost != null) {
 				allocatedHost.vmCreate(vm);
+				updateHostIndex(allocatedHost);
 				Log.printLine("VM #" + vm.getId() + " allocated to host #" + allocatedHost.getId());
 
 				Map<String, Object> migrate = new HashMap<String, Object>();
@@ -326,6 +366,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			PowerHost allocatedHost = findHostForVm(vm, excludedHosts);
 			if (allocatedHost != null) {
 				allocatedHost.vmCreate(vm);
+				updateHostIndex(allocatedHost);
 				Log.printLine("VM #" + vm.getId() + " allocated to host #" + allocatedHost.getId());
 
 				Map<String, Object> migrate = new HashMap<String, Object>();
@@ -335,7 +376,9 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 			} else {
 				Log.printLine("Not all VMs can be reallocated from the host, reallocation cancelled");
 				for (Map<String, Object> map : migrationMap) {
-					((Host) map.get("host")).vmDestroy((Vm) map.get("vm"));
+					PowerHost host = (PowerHost) map.get("host");
+					host.vmDestroy((Vm) map.get("vm"));
+					updateHostIndex(host);
 				}
 				migrationMap.clear();
 				break;
@@ -570,6 +613,24 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 * @return the utilization of the CPU in MIPS
 	 */
 	protected double getUtilizationOfCpuMips(PowerHost host) {
+		if (hostIndex != null) {
+			double hostUtilizationMips = hostIndex.getUtilizationOfCpuMips(host);
+			if (hostUtilizationMips != -1) {
+				return hostUtilizationMips;
+			}
+		}
+		return computeUtilizationOfCpuMips(host);
+	}
+
+	/**
+	 * Computes the utilization of the CPU in MIPS for the current potentially allocated VMs, without
+	 * the index of the hosts.
+	 *
+	 * @param host the host
+	 *
+	 * @return the utilization of the CPU in MIPS
+	 */
+	protected double computeUtilizationOfCpuMips(PowerHost host) {
 		double hostUtilizationMips = 0;
 		for (Vm vm2 : host.getVmList()) {
 			if (host.getVmsMigratingIn().contains(vm2)) {
@@ -608,6 +669,16 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		return vmSelectionPolicy;
 	}
 
+	/**
+	 * Gets the statistics computed over the host utilization histories, whose buffers are reused
+	 * between the calls.
+	 * 
+	 * @return the window statistics
+	 */
+	protected WindowStatistics getWindowStatistics() {
+		return windowStatistics;
+	}
+
 	/**
 	 * Gets the utilization history.
 	 * 
@@ -105,9 +105,9 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 	 * @return the host utilization iqr
 	 */
 	protected double getHostUtilizationIqr(PowerHostUtilizationHistory host) throws IllegalArgumentException {
-		double[] data = host.getUtilizationHistory();
+		double[] data = host.getCachedUtilizationHistory();
 		if (MathUtil.countNonZeroBeginning(data) >= 12) { // 12 has been suggested as a safe value
-			return MathUtil.iqr(data);
+			return getWindowStatistics().iqr(data);
 		}
 		throw new IllegalArgumentException();
 	}
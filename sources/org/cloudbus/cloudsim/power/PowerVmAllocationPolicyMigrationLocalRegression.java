@@ -12,7 +12,6 @@ import java.util.List;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Vm;
-import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
  * The Local Regression (LR) VM allocation policy.
@@ -39,6 +38,9 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	/** The fallback vm allocation policy. */
 	private PowerVmAllocationPolicyMigrationAbstract fallbackVmAllocationPolicy;
 
+	/** The latest utilization values of a host, oldest first, reused between the hosts. */
+	private final double[] utilizationHistoryReversed = new double[10]; // we use 10 to make the regression responsive enough to latest values
+
 	/**
 	 * Instantiates a new power vm allocation policy migration local regression.
 	 * 
@@ -90,12 +92,11 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
-		double[] utilizationHistory = _host.getUtilizationHistory();
-		int length = 10; // we use 10 to make the regression responsive enough to latest values
+		double[] utilizationHistory = _host.getCachedUtilizationHistory();
+		int length = utilizationHistoryReversed.length;
 		if (utilizationHistory.length < length) {
 			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
 		}
-		double[] utilizationHistoryReversed = new double[length];
 		for (int i = 0; i < length; i++) {
 			utilizationHistoryReversed[i] = utilizationHistory[length - i - 1];
 		}
@@ -121,7 +122,7 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	 * @return the parameter estimates
 	 */
 	protected double[] getParameterEstimates(double[] utilizationHistoryReversed) {
-		return MathUtil.getLoessParameterEstimates(utilizationHistoryReversed);
+		return getWindowStatistics().getLoessParameterEstimates(utilizationHistoryReversed);
 	}
 
 	/**
@@ -11,7 +11,6 @@ package org.cloudbus.cloudsim.power;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Host;
-import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
  * The Local Regression Robust (LRR) VM allocation policy.
@@ -80,7 +79,7 @@ public class PowerVmAllocationPolicyMigrationLocalRegressionRobust extends
 	 */
 	@Override
 	protected double[] getParameterEstimates(double[] utilizationHistoryReversed) {
-		return MathUtil.getRobustLoessParameterEstimates(utilizationHistoryReversed);
+		return getWindowStatistics().getRobustLoessParameterEstimates(utilizationHistoryReversed);
 	}
 
 }
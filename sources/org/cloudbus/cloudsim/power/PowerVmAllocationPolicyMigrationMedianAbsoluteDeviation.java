@@ -105,9 +105,9 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	 * @return the host utilization mad
 	 */
 	protected double getHostUtilizationMad(PowerHostUtilizationHistory host) throws IllegalArgumentException {
-		double[] data = host.getUtilizationHistory();
+		double[] data = host.getCachedUtilizationHistory();
 		if (MathUtil.countNonZeroBeginning(data) >= 12) { // 12 has been suggested as a safe value
-			return MathUtil.mad(data);
+			return getWindowStatistics().mad(data);
 		}
 		throw new IllegalArgumentException();
 	}
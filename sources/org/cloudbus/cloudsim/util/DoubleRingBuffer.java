@@ -0,0 +1,111 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A fixed-capacity list of primitive doubles, newest first. Adding a value when the list is full
+ * drops the oldest one. Adding a value and getting the value at an index take constant time,
+ * unlike a linked list, and the values are not boxed.
+ *
+ * @since CloudSim Toolkit 1.0
+ */
+public class DoubleRingBuffer extends AbstractList<Double> implements RandomAccess {
+
+	/** The values, the newest one is at head. */
+	private final double[] values;
+
+	/** The index of the newest value. */
+	private int head = 0;
+
+	/** The number of values. */
+	private int size = 0;
+
+	/** The number of values added since the list was created. */
+	private long addedNum = 0;
+
+	/**
+	 * Creates an empty ring buffer.
+	 *
+	 * @param capacity the maximum number of values
+	 */
+	public DoubleRingBuffer(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be positive");
+		}
+		values = new double[capacity];
+	}
+
+	/**
+	 * Adds a value at the beginning of the list, and drops the last value if the list is full.
+	 *
+	 * @param value the value
+	 */
+	public void addFirst(double value) {
+		head = head == 0 ? values.length - 1 : head - 1;
+		values[head] = value;
+		if (size < values.length) {
+			size++;
+		}
+		addedNum++;
+	}
+
+	/**
+	 * Gets a value.
+	 *
+	 * @param index the index of the value, 0 being the newest one
+	 * @return the value
+	 */
+	public double getDouble(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int i = head + index;
+		return values[i < values.length ? i : i - values.length];
+	}
+
+	/**
+	 * Gets the number of values added since the list was created, which tells whether the list has
+	 * changed.
+	 *
+	 * @return the number of values added
+	 */
+	public long getAddedNum() {
+		return addedNum;
+	}
+
+	/**
+	 * Gets the maximum number of values.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return values.length;
+	}
+
+	@Override
+	public Double get(int index) {
+		return getDouble(index);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		head = 0;
+		size = 0;
+		addedNum++;
+	}
+
+}
@@ -0,0 +1,235 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.Arrays;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+/**
+ * The statistics of {@link MathUtil} used on utilization histories, computed over reused buffers.
+ * The windows are short (see {@link org.cloudbus.cloudsim.power.PowerVm#HISTORY_LENGTH}), so the
+ * order statistics are computed by sorting a copy of the window, which allocates nothing once the
+ * buffers have grown to the window length. The results are the same as the ones of
+ * {@link MathUtil#mad(double[])}, {@link MathUtil#iqr(double[])},
+ * {@link MathUtil#getLoessParameterEstimates(double[])} and
+ * {@link MathUtil#getRobustLoessParameterEstimates(double[])}, and the data is never modified.
+ * <p>
+ * An instance is not thread-safe, each allocation policy uses its own.
+ *
+ * @since CloudSim Toolkit 1.0
+ */
+public class WindowStatistics {
+
+	/** The sorted copy of a window. */
+	private double[] sorted = new double[0];
+
+	/** The absolute deviations or residuals of a window. */
+	private double[] deviations = new double[0];
+
+	/** The x values, from 1 to n. */
+	private double[] x = new double[0];
+
+	/** The tricube weights of the length of x. */
+	private double[] tricubeWeights = new double[0];
+
+	/** The weights of the second pass of the robust regression. */
+	private double[] bisquareWeights = new double[0];
+
+	private final SimpleRegression tricubeRegression = new SimpleRegression();
+
+	private final SimpleRegression bisquareRegression = new SimpleRegression();
+
+	/**
+	 * Gets the median, as {@link MathUtil#median(double[])}.
+	 *
+	 * @param data the data
+	 * @return the median
+	 */
+	public double median(final double[] data) {
+		return sortedMedian(sort(data, data.length), data.length);
+	}
+
+	/**
+	 * Gets the mad, as {@link MathUtil#mad(double[])}.
+	 *
+	 * @param data the data
+	 * @return the mad
+	 */
+	public double mad(final double[] data) {
+		double mad = 0;
+		int n = data.length;
+		if (n > 0) {
+			double median = median(data);
+			deviations = ensureLength(deviations, n);
+			for (int i = 0; i < n; i++) {
+				deviations[i] = Math.abs(median - data[i]);
+			}
+			mad = sortedMedian(sort(deviations, n), n);
+		}
+		return mad;
+	}
+
+	/**
+	 * Gets the IQR, as {@link MathUtil#iqr(double[])} but without sorting the data.
+	 *
+	 * @param data the data
+	 * @return the IQR
+	 */
+	public double iqr(final double[] data) {
+		int n = data.length;
+		double[] values = sort(data, n);
+		int q1 = (int) Math.round(0.25 * (n + 1)) - 1;
+		int q3 = (int) Math.round(0.75 * (n + 1)) - 1;
+		return values[q3] - values[q1];
+	}
+
+	/**
+	 * Gets the loess parameter estimates, as {@link MathUtil#getLoessParameterEstimates(double[])}.
+	 *
+	 * @param y the y
+	 * @return the loess parameter estimates
+	 */
+	public double[] getLoessParameterEstimates(final double[] y) {
+		prepareRegression(y.length);
+		regress(tricubeRegression, y, tricubeWeights);
+		return tricubeRegression.regress().getParameterEstimates();
+	}
+
+	/**
+	 * Gets the robust loess parameter estimates, as
+	 * {@link MathUtil#getRobustLoessParameterEstimates(double[])}.
+	 *
+	 * @param y the y
+	 * @return the robust loess parameter estimates
+	 */
+	public double[] getRobustLoessParameterEstimates(final double[] y) {
+		int n = y.length;
+		prepareRegression(n);
+		regress(tricubeRegression, y, tricubeWeights);
+		deviations = ensureLength(deviations, n);
+		for (int i = 0; i < n; i++) {
+			deviations[i] = y[i] - tricubeRegression.predict(x[i]);
+		}
+
+		// the tricube bisquare weights of MathUtil
+		double[] absResiduals = sort(deviations, n);
+		for (int i = 0; i < n; i++) {
+			absResiduals[i] = Math.abs(deviations[i]);
+		}
+		Arrays.sort(absResiduals, 0, n);
+		double s6 = sortedMedian(absResiduals, n) * 6;
+		bisquareWeights = ensureLength(bisquareWeights, n);
+		for (int i = 2; i < n; i++) {
+			double k = Math.pow(1 - Math.pow(deviations[i] / s6, 2), 2);
+			if (k > 0) {
+				bisquareWeights[i] = (1 / k) * tricubeWeights[i];
+			} else {
+				bisquareWeights[i] = Double.MAX_VALUE;
+			}
+		}
+		bisquareWeights[0] = bisquareWeights[1] = bisquareWeights[2];
+
+		regress(bisquareRegression, y, bisquareWeights);
+		// MathUtil falls back to the tricube estimates when these are compared equal to NaN,
+		// which never happens, so these estimates are always returned
+		return bisquareRegression.regress().getParameterEstimates();
+	}
+
+	/**
+	 * Fills x and the tricube weights for a window length.
+	 *
+	 * @param n the window length
+	 */
+	private void prepareRegression(int n) {
+		if (x.length == n) {
+			return;
+		}
+		x = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = i + 1;
+		}
+		tricubeWeights = MathUtil.getTricubeWeigts(n);
+	}
+
+	/**
+	 * Fills a regression as {@link MathUtil#createWeigthedLinearRegression(double[], double[],
+	 * double[])} does.
+	 *
+	 * @param regression the regression, cleared first
+	 * @param y the y
+	 * @param weigths the weights, as long as y
+	 */
+	private void regress(SimpleRegression regression, final double[] y, final double[] weigths) {
+		int n = y.length;
+		// As to Flanagan's documentation they perform weigthed regression if the
+		// number or non-zero weigths is more than 40%
+		int numZeroWeigths = 0;
+		for (int i = 0; i < n; i++) {
+			if (weigths[i] <= 0) {
+				numZeroWeigths++;
+			}
+		}
+		boolean weighted = numZeroWeigths >= 0.4 * n;
+		regression.clear();
+		for (int i = 0; i < n; i++) {
+			if (weighted) {
+				regression.addData(Math.sqrt(weigths[i]) * x[i], Math.sqrt(weigths[i]) * y[i]);
+			} else {
+				regression.addData(x[i], y[i]);
+			}
+		}
+	}
+
+	/**
+	 * Copies the beginning of an array to the sort buffer and sorts it.
+	 *
+	 * @param data the data
+	 * @param n the number of values to sort
+	 * @return the sort buffer
+	 */
+	private double[] sort(final double[] data, int n) {
+		sorted = ensureLength(sorted, n);
+		System.arraycopy(data, 0, sorted, 0, n);
+		Arrays.sort(sorted, 0, n);
+		return sorted;
+	}
+
+	/**
+	 * Gets the median of sorted values, with the default estimation of
+	 * {@link org.apache.commons.math3.stat.descriptive.rank.Percentile}.
+	 *
+	 * @param values the sorted values
+	 * @param n the number of values
+	 * @return the median
+	 */
+	private static double sortedMedian(final double[] values, int n) {
+		if (n == 0) {
+			return Double.NaN;
+		}
+		if (n == 1) {
+			return values[0];
+		}
+		double pos = 50 * (n + 1.0) / 100;
+		double fpos = Math.floor(pos);
+		int intPos = (int) fpos;
+		double dif = pos - fpos;
+		if (pos >= n) {
+			return values[n - 1];
+		}
+		double lower = values[intPos - 1];
+		double upper = values[intPos];
+		return lower + dif * (upper - lower);
+	}
+
+	private static double[] ensureLength(double[] buffer, int n) {
+		return buffer.length >= n ? buffer : new double[n];
+	}
+
+}
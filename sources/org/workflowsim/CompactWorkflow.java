@@ -0,0 +1,542 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.workflowsim.utils.Parameters.FileType;
+
+/**
+ * CompactWorkflow is the task graph of one DAX file in a compact binary form.
+ * Tasks, files and dependencies are kept in arrays: the files of a task and
+ * the parents of a child element are stored in compressed sparse row (CSR)
+ * form, and every string appears once in a string table. It keeps what the
+ * DAX file says, before the replica catalog, the runtime scale or the task
+ * ids come into play, so that the same CompactWorkflow can be turned into
+ * tasks by WorkflowParser any number of times. The messages printed while the
+ * DAX file was parsed are kept as well.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class CompactWorkflow {
+
+    /**
+     * The first bytes of the binary form ("WFCW")
+     */
+    private static final int MAGIC = 0x57464357;
+    /**
+     * The version of the binary form
+     */
+    private static final int VERSION = 1;
+    /**
+     * The index of a missing string
+     */
+    private static final int NULL = -1;
+    private static final FileType[] FILE_TYPES = FileType.values();
+
+    /**
+     * The string table
+     */
+    private final String[] strings;
+    /**
+     * The name (DAX id) of each task
+     */
+    private final int[] taskName;
+    /**
+     * The type (DAX name) of each task
+     */
+    private final int[] taskType;
+    /**
+     * The length of each task, before the runtime scale
+     */
+    private final long[] taskLength;
+    /**
+     * The files of task i are fileStart[i] to fileStart[i + 1] - 1
+     */
+    private final int[] fileStart;
+    private final int[] fileName;
+    private final double[] fileSize;
+    private final byte[] fileType;
+    /**
+     * The child task of each child element
+     */
+    private final int[] groupChild;
+    /**
+     * The parents of child element g are parentStart[g] to parentStart[g + 1]
+     * - 1
+     */
+    private final int[] parentStart;
+    private final int[] parents;
+    /**
+     * The messages, and whether each one ends a line
+     */
+    private final int[] messageText;
+    private final byte[] messageLine;
+
+    private CompactWorkflow(String[] strings, int[] taskName, int[] taskType,
+            long[] taskLength, int[] fileStart, int[] fileName, double[] fileSize,
+            byte[] fileType, int[] groupChild, int[] parentStart, int[] parents,
+            int[] messageText, byte[] messageLine) {
+        this.strings = strings;
+        this.taskName = taskName;
+        this.taskType = taskType;
+        this.taskLength = taskLength;
+        this.fileStart = fileStart;
+        this.fileName = fileName;
+        this.fileSize = fileSize;
+        this.fileType = fileType;
+        this.groupChild = groupChild;
+        this.parentStart = parentStart;
+        this.parents = parents;
+        this.messageText = messageText;
+        this.messageLine = messageLine;
+    }
+
+    /**
+     * Gets the number of tasks
+     *
+     * @return the number of tasks
+     */
+    public int getTaskNum() {
+        return taskName.length;
+    }
+
+    /**
+     * Gets the name (DAX id) of a task
+     *
+     * @param task the task index
+     * @return the name
+     */
+    public String getTaskName(int task) {
+        return string(taskName[task]);
+    }
+
+    /**
+     * Gets the type (DAX name) of a task
+     *
+     * @param task the task index
+     * @return the type
+     */
+    public String getTaskType(int task) {
+        return string(taskType[task]);
+    }
+
+    /**
+     * Gets the length of a task, before the runtime scale
+     *
+     * @param task the task index
+     * @return the length
+     */
+    public long getTaskLength(int task) {
+        return taskLength[task];
+    }
+
+    /**
+     * Gets the index of the first file of a task. The files of a task are
+     * getFileStart(task) to getFileStart(task + 1) - 1.
+     *
+     * @param task the task index, up to the number of tasks
+     * @return the file index
+     */
+    public int getFileStart(int task) {
+        return fileStart[task];
+    }
+
+    /**
+     * Gets the name of a file
+     *
+     * @param file the file index
+     * @return the name
+     */
+    public String getFileName(int file) {
+        return string(fileName[file]);
+    }
+
+    /**
+     * Gets the size of a file
+     *
+     * @param file the file index
+     * @return the size
+     */
+    public double getFileSize(int file) {
+        return fileSize[file];
+    }
+
+    /**
+     * Gets the type of a file
+     *
+     * @param file the file index
+     * @return the type
+     */
+    public FileType getFileType(int file) {
+        return FILE_TYPES[fileType[file]];
+    }
+
+    /**
+     * Gets the number of child elements with at least one known parent
+     *
+     * @return the number of child elements
+     */
+    public int getChildNum() {
+        return groupChild.length;
+    }
+
+    /**
+     * Gets the task of a child element
+     *
+     * @param child the child element index
+     * @return the task index
+     */
+    public int getChild(int child) {
+        return groupChild[child];
+    }
+
+    /**
+     * Gets the index of the first parent of a child element. The parents of
+     * a child element are getParentStart(child) to getParentStart(child + 1)
+     * - 1.
+     *
+     * @param child the child element index, up to the number of child
+     * elements
+     * @return the parent index
+     */
+    public int getParentStart(int child) {
+        return parentStart[child];
+    }
+
+    /**
+     * Gets a parent task
+     *
+     * @param parent the parent index
+     * @return the task index
+     */
+    public int getParent(int parent) {
+        return parents[parent];
+    }
+
+    /**
+     * Gets the number of messages
+     *
+     * @return the number of messages
+     */
+    public int getMessageNum() {
+        return messageText.length;
+    }
+
+    /**
+     * Gets the text of a message
+     *
+     * @param message the message index
+     * @return the text
+     */
+    public String getMessage(int message) {
+        return string(messageText[message]);
+    }
+
+    /**
+     * Checks whether a message ends a line
+     *
+     * @param message the message index
+     * @return whether it ends a line
+     */
+    public boolean isMessageLine(int message) {
+        return messageLine[message] != 0;
+    }
+
+    /**
+     * Gets a string of the string table
+     *
+     * @param index the index, or NULL
+     * @return the string
+     */
+    private String string(int index) {
+        return index == NULL ? null : strings[index];
+    }
+
+    /**
+     * Writes the binary form
+     *
+     * @param out the output stream
+     * @throws IOException if it cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(strings.length);
+        data.writeInt(taskName.length);
+        data.writeInt(fileName.length);
+        data.writeInt(groupChild.length);
+        data.writeInt(parents.length);
+        data.writeInt(messageText.length);
+        for (String string : strings) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+        writeInts(data, taskName);
+        writeInts(data, taskType);
+        for (long length : taskLength) {
+            data.writeLong(length);
+        }
+        writeInts(data, fileStart);
+        writeInts(data, fileName);
+        for (double size : fileSize) {
+            data.writeDouble(size);
+        }
+        data.write(fileType);
+        writeInts(data, groupChild);
+        writeInts(data, parentStart);
+        writeInts(data, parents);
+        writeInts(data, messageText);
+        data.write(messageLine);
+        data.flush();
+    }
+
+    private static void writeInts(DataOutputStream data, int[] values) throws IOException {
+        for (int value : values) {
+            data.writeInt(value);
+        }
+    }
+
+    /**
+     * Reads the binary form from a file, through a memory mapping of it
+     *
+     * @param path the file
+     * @return the workflow or null if the file is not of the current version
+     * @throws IOException if it cannot be read
+     */
+    public static CompactWorkflow read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    /**
+     * Reads the binary form from a buffer
+     *
+     * @param buffer the buffer
+     * @return the workflow or null if the buffer is not of the current
+     * version
+     */
+    public static CompactWorkflow read(ByteBuffer buffer) {
+        if (buffer.remaining() < 32 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return null;
+        }
+        int stringNum = buffer.getInt();
+        int taskNum = buffer.getInt();
+        int fileNum = buffer.getInt();
+        int childNum = buffer.getInt();
+        int parentNum = buffer.getInt();
+        int messageNum = buffer.getInt();
+        String[] strings = new String[stringNum];
+        for (int i = 0; i < stringNum; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        int[] taskName = readInts(buffer, taskNum);
+        int[] taskType = readInts(buffer, taskNum);
+        long[] taskLength = new long[taskNum];
+        buffer.asLongBuffer().get(taskLength);
+        buffer.position(buffer.position() + 8 * taskNum);
+        int[] fileStart = readInts(buffer, taskNum + 1);
+        int[] fileName = readInts(buffer, fileNum);
+        double[] fileSize = new double[fileNum];
+        buffer.asDoubleBuffer().get(fileSize);
+        buffer.position(buffer.position() + 8 * fileNum);
+        byte[] fileType = new byte[fileNum];
+        buffer.get(fileType);
+        int[] groupChild = readInts(buffer, childNum);
+        int[] parentStart = readInts(buffer, childNum + 1);
+        int[] parents = readInts(buffer, parentNum);
+        int[] messageText = readInts(buffer, messageNum);
+        byte[] messageLine = new byte[messageNum];
+        buffer.get(messageLine);
+        return new CompactWorkflow(strings, taskName, taskType, taskLength, fileStart,
+                fileName, fileSize, fileType, groupChild, parentStart, parents,
+                messageText, messageLine);
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * length);
+        return values;
+    }
+
+    /**
+     * Builder collects the tasks, files, dependencies and messages of a DAX
+     * file as WorkflowParser creates them. Tasks are referred to by their
+     * index in the file.
+     */
+    public static class Builder {
+
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> stringIndex = new HashMap<>();
+        private int[] taskName = new int[16];
+        private int[] taskType = new int[16];
+        private long[] taskLength = new long[16];
+        private int[] fileStart = new int[17];
+        private int taskNum = 0;
+        private int[] fileName = new int[16];
+        private double[] fileSize = new double[16];
+        private byte[] fileType = new byte[16];
+        private int fileNum = 0;
+        private int[] groupChild = new int[16];
+        private int[] parentStart = new int[17];
+        private int childNum = 0;
+        private int[] parents = new int[16];
+        private int parentNum = 0;
+        private int[] messageText = new int[4];
+        private byte[] messageLine = new byte[4];
+        private int messageNum = 0;
+
+        /**
+         * Adds a file of the next task
+         *
+         * @param name the file name
+         * @param size the file size
+         * @param type the file type
+         */
+        public void addFile(String name, double size, FileType type) {
+            if (fileNum == fileName.length) {
+                fileName = Arrays.copyOf(fileName, fileNum * 2);
+                fileSize = Arrays.copyOf(fileSize, fileNum * 2);
+                fileType = Arrays.copyOf(fileType, fileNum * 2);
+            }
+            fileName[fileNum] = intern(name);
+            fileSize[fileNum] = size;
+            fileType[fileNum] = (byte) type.ordinal();
+            fileNum++;
+        }
+
+        /**
+         * Adds a task with the files added since the previous task
+         *
+         * @param name the name (DAX id)
+         * @param type the type (DAX name)
+         * @param length the length, before the runtime scale
+         */
+        public void addTask(String name, String type, long length) {
+            if (taskNum == taskName.length) {
+                taskName = Arrays.copyOf(taskName, taskNum * 2);
+                taskType = Arrays.copyOf(taskType, taskNum * 2);
+                taskLength = Arrays.copyOf(taskLength, taskNum * 2);
+                fileStart = Arrays.copyOf(fileStart, taskNum * 2 + 1);
+            }
+            taskName[taskNum] = intern(name);
+            taskType[taskNum] = intern(type);
+            taskLength[taskNum] = length;
+            taskNum++;
+            fileStart[taskNum] = fileNum;
+        }
+
+        /**
+         * Starts a child element
+         *
+         * @param child the index of the child task
+         */
+        public void addChild(int child) {
+            // drop the previous child element if none of its parents is known
+            if (childNum > 0 && parentStart[childNum] == parentStart[childNum - 1]) {
+                childNum--;
+            }
+            if (childNum == groupChild.length) {
+                groupChild = Arrays.copyOf(groupChild, childNum * 2);
+                parentStart = Arrays.copyOf(parentStart, childNum * 2 + 1);
+            }
+            groupChild[childNum] = child;
+            childNum++;
+            parentStart[childNum] = parentNum;
+        }
+
+        /**
+         * Adds a parent of the current child element
+         *
+         * @param parent the index of the parent task
+         */
+        public void addParent(int parent) {
+            if (parentNum == parents.length) {
+                parents = Arrays.copyOf(parents, parentNum * 2);
+            }
+            parents[parentNum++] = parent;
+            parentStart[childNum] = parentNum;
+        }
+
+        /**
+         * Adds a message printed while parsing
+         *
+         * @param text the text
+         * @param line whether it ends a line
+         */
+        public void addMessage(String text, boolean line) {
+            if (messageNum == messageText.length) {
+                messageText = Arrays.copyOf(messageText, messageNum * 2);
+                messageLine = Arrays.copyOf(messageLine, messageNum * 2);
+            }
+            messageText[messageNum] = intern(text);
+            messageLine[messageNum] = (byte) (line ? 1 : 0);
+            messageNum++;
+        }
+
+        /**
+         * Builds the workflow
+         *
+         * @return the workflow
+         */
+        public CompactWorkflow build() {
+            int children = childNum;
+            if (children > 0 && parentStart[children] == parentStart[children - 1]) {
+                children--;
+            }
+            return new CompactWorkflow(strings.toArray(new String[strings.size()]),
+                    Arrays.copyOf(taskName, taskNum), Arrays.copyOf(taskType, taskNum),
+                    Arrays.copyOf(taskLength, taskNum), Arrays.copyOf(fileStart, taskNum + 1),
+                    Arrays.copyOf(fileName, fileNum), Arrays.copyOf(fileSize, fileNum),
+                    Arrays.copyOf(fileType, fileNum), Arrays.copyOf(groupChild, children),
+                    Arrays.copyOf(parentStart, children + 1), Arrays.copyOf(parents, parentNum),
+                    Arrays.copyOf(messageText, messageNum), Arrays.copyOf(messageLine, messageNum));
+        }
+
+        private int intern(String string) {
+            if (string == null) {
+                return NULL;
+            }
+            Integer index = stringIndex.get(string);
+            if (index == null) {
+                index = strings.size();
+                strings.add(string);
+                stringIndex.put(string, index);
+            }
+            return index;
+        }
+    }
+}
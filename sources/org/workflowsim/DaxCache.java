@@ -0,0 +1,124 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * DaxCache keeps the CompactWorkflow of parsed DAX files in a directory. An
+ * entry is named after the SHA-256 hash of the content of the DAX file, so
+ * an entry is found again whatever the path of the file and a DAX file that
+ * changes gets a new entry. Entries are written to a temporary file first and
+ * then renamed, so that several simulations may share the directory.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class DaxCache {
+
+    /**
+     * The suffix of the entries
+     */
+    private static final String SUFFIX = ".wfc";
+    /**
+     * The cache directory
+     */
+    private final Path directory;
+
+    /**
+     * Initialize a DaxCache
+     *
+     * @param directory the cache directory, created if it does not exist
+     */
+    public DaxCache(String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Gets the key of a DAX file
+     *
+     * @param daxPath the path to the DAX file
+     * @return the hexadecimal SHA-256 hash of its content
+     * @throws IOException if it cannot be read
+     */
+    public String getKey(String daxPath) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (FileChannel channel = FileChannel.open(Paths.get(daxPath), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            digest.update(buffer);
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16));
+            key.append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Gets the workflow of a key
+     *
+     * @param key the key
+     * @return the workflow or null if there is no (valid) entry
+     */
+    public CompactWorkflow get(String key) {
+        Path entry = directory.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(entry)) {
+            return null;
+        }
+        try {
+            return CompactWorkflow.read(entry);
+        } catch (IOException | RuntimeException e) {
+            //A truncated or corrupted entry is simply written again
+            return null;
+        }
+    }
+
+    /**
+     * Stores the workflow of a key
+     *
+     * @param key the key
+     * @param workflow the workflow
+     * @throws IOException if it cannot be written
+     */
+    public void put(String key, CompactWorkflow workflow) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, key, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                workflow.write(out);
+            }
+            Files.move(temp, directory.resolve(key + SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
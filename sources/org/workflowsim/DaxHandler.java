@@ -0,0 +1,63 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+/**
+ * DaxHandler receives the elements of a DAX file in document order. The
+ * attribute values are passed as they are found in the file (null if
+ * missing), it is up to the handler to interpret them.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public interface DaxHandler {
+
+    /**
+     * A job element starts
+     *
+     * @param id the id attribute
+     * @param name the name attribute
+     * @param runtime the runtime attribute
+     */
+    void startJob(String id, String name, String runtime);
+
+    /**
+     * A uses element of the current job
+     *
+     * @param file the name attribute (DAX 3.3) or the file attribute (DAX 3.0)
+     * @param link the link attribute
+     * @param size the size attribute
+     */
+    void uses(String file, String link, String size);
+
+    /**
+     * The current job element ends
+     */
+    void endJob();
+
+    /**
+     * A child element starts
+     *
+     * @param ref the ref attribute
+     */
+    void child(String ref);
+
+    /**
+     * A parent of the current child element
+     *
+     * @param ref the ref attribute
+     */
+    void parent(String ref);
+}
@@ -0,0 +1,153 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * DaxRecording is a DaxHandler that keeps the elements it receives so that
+ * they can be passed to another handler later, in the same order. It lets a
+ * DAX file be read by one thread and turned into tasks by another one, which
+ * is how WorkflowParser reads several DAX files at a time while still
+ * creating the tasks (and their ids) in the order of the files.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class DaxRecording implements DaxHandler {
+
+    private static final byte START_JOB = 0;
+    private static final byte USES = 1;
+    private static final byte END_JOB = 2;
+    private static final byte CHILD = 3;
+    private static final byte PARENT = 4;
+
+    /**
+     * The elements received
+     */
+    private byte[] elements;
+    /**
+     * The number of elements received
+     */
+    private int size;
+    /**
+     * The attribute values of the elements, in order
+     */
+    private final List<String> values;
+    /**
+     * The exception that stopped the reading, if any
+     */
+    private Exception failure;
+
+    /**
+     * Initialize an empty DaxRecording
+     */
+    public DaxRecording() {
+        this.elements = new byte[64];
+        this.size = 0;
+        this.values = new ArrayList<>();
+    }
+
+    @Override
+    public void startJob(String id, String name, String runtime) {
+        add(START_JOB);
+        values.add(id);
+        values.add(name);
+        values.add(runtime);
+    }
+
+    @Override
+    public void uses(String file, String link, String size) {
+        add(USES);
+        values.add(file);
+        values.add(link);
+        values.add(size);
+    }
+
+    @Override
+    public void endJob() {
+        add(END_JOB);
+    }
+
+    @Override
+    public void child(String ref) {
+        add(CHILD);
+        values.add(ref);
+    }
+
+    @Override
+    public void parent(String ref) {
+        add(PARENT);
+        values.add(ref);
+    }
+
+    /**
+     * Records the exception that stopped the reading
+     *
+     * @param e the exception
+     */
+    public void setFailure(Exception e) {
+        this.failure = e;
+    }
+
+    /**
+     * Passes the elements received to a handler
+     *
+     * @param handler the handler
+     * @throws Exception the exception that stopped the reading, once the
+     * elements read before it have been passed
+     */
+    public void replay(DaxHandler handler) throws Exception {
+        int v = 0;
+        for (int i = 0; i < size; i++) {
+            switch (elements[i]) {
+                case START_JOB:
+                    handler.startJob(values.get(v), values.get(v + 1), values.get(v + 2));
+                    v += 3;
+                    break;
+                case USES:
+                    handler.uses(values.get(v), values.get(v + 1), values.get(v + 2));
+                    v += 3;
+                    break;
+                case END_JOB:
+                    handler.endJob();
+                    break;
+                case CHILD:
+                    handler.child(values.get(v++));
+                    break;
+                case PARENT:
+                    handler.parent(values.get(v++));
+                    break;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Adds an element
+     *
+     * @param element the element
+     */
+    private void add(byte element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+    }
+}
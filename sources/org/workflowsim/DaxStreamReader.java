@@ -0,0 +1,135 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * DaxStreamReader reads a DAX file with StAX in a single pass and passes its
+ * jobs, files and dependencies to a DaxHandler as they are read. Unlike
+ * building a JDOM document, the memory used does not grow with the size of
+ * the file. A reader holds no state, so several files may be read at the same
+ * time by different threads.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public final class DaxStreamReader {
+
+    /**
+     * The depth of the job and child elements (the root is at depth 1)
+     */
+    private static final int TOP = 2;
+
+    private DaxStreamReader() {
+    }
+
+    /**
+     * Reads a DAX file
+     *
+     * @param path the path to the DAX file
+     * @param handler the handler of the elements
+     * @throws IOException if the file cannot be read
+     * @throws XMLStreamException if the file is not valid
+     */
+    public static void read(String path, DaxHandler handler)
+            throws IOException, XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        try (InputStream in = new BufferedInputStream(new FileInputStream(path))) {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            try {
+                read(reader, handler);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the elements of a DAX document
+     *
+     * @param reader the reader
+     * @param handler the handler of the elements
+     * @throws XMLStreamException if the document is not valid
+     */
+    private static void read(XMLStreamReader reader, DaxHandler handler)
+            throws XMLStreamException {
+        int depth = 0;
+        boolean inJob = false;
+        boolean inChild = false;
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    if (depth == TOP) {
+                        switch (reader.getLocalName().toLowerCase()) {
+                            case "job":
+                                inJob = true;
+                                handler.startJob(attribute(reader, "id"),
+                                        attribute(reader, "name"),
+                                        attribute(reader, "runtime"));
+                                break;
+                            case "child":
+                                inChild = true;
+                                handler.child(attribute(reader, "ref"));
+                                break;
+                        }
+                    } else if (depth == TOP + 1) {
+                        if (inJob && reader.getLocalName().toLowerCase().equals("uses")) {
+                            String file = attribute(reader, "name");//DAX version 3.3
+                            if (file == null) {
+                                file = attribute(reader, "file");//DAX version 3.0
+                            }
+                            handler.uses(file, attribute(reader, "link"),
+                                    attribute(reader, "size"));
+                        } else if (inChild) {
+                            handler.parent(attribute(reader, "ref"));
+                        }
+                    }
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == TOP) {
+                        if (inJob) {
+                            handler.endJob();
+                        }
+                        inJob = false;
+                        inChild = false;
+                    }
+                    depth--;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Gets an attribute without namespace of the current element
+     *
+     * @param reader the reader
+     * @param name the attribute name
+     * @return the value or null if missing
+     */
+    private static String attribute(XMLStreamReader reader, String name) {
+        return reader.getAttributeValue(null, name);
+    }
+}
@@ -39,6 +39,11 @@ public class FileItem {
 
     private FileType type;
 
+    /**
+     * The id of the file name in the ReplicaCatalog, -1 if not interned
+     */
+    private int id = -1;
+
     public void setMemFreeSpace(double space) {
         memFreeSpace = space;
     }
@@ -75,6 +80,14 @@ public class FileItem {
     public FileType getType() {
         return this.type;
     }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return this.id;
+    }
     
     /**
      * If a input file has an output file it does not need stage-in For
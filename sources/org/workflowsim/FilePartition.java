@@ -0,0 +1,190 @@
+/**
+ * Copyright 2014-2015 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.workflowsim.utils.Parameters.FileType;
+
+/**
+ * FilePartition splits a file list into its real input files, its output files
+ * and its intermediate files (input files that are also output files of the
+ * list, see FileItem.isRealInputFile). It is computed in one pass over the
+ * list, so the files can be classified without comparing each file with the
+ * whole list. It also keeps a 64-bit hash of the file names, which identifies
+ * the file list of a task type.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class FilePartition {
+
+    /**
+     * The file list
+     */
+    private final List<FileItem> fileList;
+    /**
+     * The size of the file list when it was partitioned
+     */
+    private final int size;
+    /**
+     * The indexes of the real input files in the file list
+     */
+    private final BitSet realInputs = new BitSet();
+    private final List<FileItem> realInputFiles = new ArrayList<>();
+    private final List<FileItem> outputFiles = new ArrayList<>();
+    private final List<FileItem> intermediateFiles = new ArrayList<>();
+    /**
+     * The hash of the file names, see hashNames
+     */
+    private final long namesHash;
+
+    /**
+     * The initial value of a names hash (64-bit FNV-1a)
+     */
+    private static final long HASH_OFFSET = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    /**
+     * Partitions a file list
+     *
+     * @param fileList, the file list
+     */
+    public FilePartition(List<FileItem> fileList) {
+        this.fileList = fileList;
+        this.size = fileList.size();
+        this.namesHash = hashNames(fileList);
+        Set<String> outputNames = new HashSet<>();
+        for (FileItem file : fileList) {
+            if (file.getType() == FileType.OUTPUT) {
+                outputNames.add(file.getName());
+                outputFiles.add(file);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            FileItem file = fileList.get(i);
+            if (file.getType() == FileType.INPUT) {
+                if (outputNames.contains(file.getName())) {
+                    intermediateFiles.add(file);
+                } else {
+                    realInputs.set(i);
+                    realInputFiles.add(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether this partition still describes a file list, that is
+     * whether it is the same list and no file was added to it
+     *
+     * @param list, the file list
+     * @return whether the partition is up to date
+     */
+    public boolean isPartitionOf(List<FileItem> list) {
+        return list == fileList && list.size() == size;
+    }
+
+    /**
+     * Gets the hash of the file names of the list
+     *
+     * @return the hash
+     */
+    public long getNamesHash() {
+        return namesHash;
+    }
+
+    /**
+     * Hashes the names of a file list. The hash is the one of the names
+     * concatenated, so it matches hashNames(String) of that concatenation.
+     *
+     * @param fileList, the file list
+     * @return the hash
+     */
+    public static long hashNames(List<FileItem> fileList) {
+        long hash = HASH_OFFSET;
+        for (FileItem file : fileList) {
+            hash = hash(hash, file.getName());
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes file names that are already concatenated
+     *
+     * @param names, the concatenated names
+     * @return the hash
+     */
+    public static long hashNames(String names) {
+        return hash(HASH_OFFSET, names);
+    }
+
+    /**
+     * Adds the characters of a string to a hash
+     *
+     * @param hash, the hash so far
+     * @param s, the string
+     * @return the new hash
+     */
+    private static long hash(long hash, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            hash ^= s.charAt(i);
+            hash *= HASH_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Checks whether the file at an index of the list is a real input file
+     *
+     * @param index, the index in the file list
+     * @return whether it is a real input file
+     */
+    public boolean isRealInputFile(int index) {
+        return realInputs.get(index);
+    }
+
+    /**
+     * Gets the real input files, in the order of the file list
+     *
+     * @return the real input files
+     */
+    public List<FileItem> getRealInputFiles() {
+        return Collections.unmodifiableList(realInputFiles);
+    }
+
+    /**
+     * Gets the output files, in the order of the file list
+     *
+     * @return the output files
+     */
+    public List<FileItem> getOutputFiles() {
+        return Collections.unmodifiableList(outputFiles);
+    }
+
+    /**
+     * Gets the input files that are output files of the list too, in the
+     * order of the file list
+     *
+     * @return the intermediate files
+     */
+    public List<FileItem> getIntermediateFiles() {
+        return Collections.unmodifiableList(intermediateFiles);
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * JobReleaseIndex keeps track of the pending jobs of a WorkflowEngine and
+ * releases a job once all of its parents have returned. Each pending job keeps
+ * a counter of parents that have not returned yet, the returned job ids are
+ * kept in a bitset and only the children of a returned job are revisited.
+ * Ready jobs are released in the order they were added to the index, which is
+ * the same order a full scan over the job list would release them.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class JobReleaseIndex {
+
+    /**
+     * The pending state of one job
+     */
+    private static class Entry {
+
+        private final Job job;
+        private final long order;
+        private int remaining;
+
+        Entry(Job job, long order) {
+            this.job = job;
+            this.order = order;
+        }
+    }
+
+    /**
+     * The ids of all the jobs that have returned
+     */
+    private final BitSet returnedIds;
+    /**
+     * The pending jobs (not yet released)
+     */
+    private final Map<Job, Entry> pending;
+    /**
+     * Parent id to the pending children still waiting for it
+     */
+    private final Map<Integer, List<Entry>> waiting;
+    /**
+     * The ready jobs ordered by the time they were added
+     */
+    private final PriorityQueue<Entry> ready;
+    /**
+     * The order assigned to the next job
+     */
+    private long nextOrder;
+
+    /**
+     * Initialize a JobReleaseIndex
+     */
+    public JobReleaseIndex() {
+        this.returnedIds = new BitSet();
+        this.pending = new IdentityHashMap<>();
+        this.waiting = new HashMap<>();
+        this.ready = new PriorityQueue<>(11, (a, b) -> Long.compare(a.order, b.order));
+        this.nextOrder = 0;
+    }
+
+    /**
+     * Adds a list of jobs to the index
+     *
+     * @param list the jobs
+     */
+    public void addAll(List<? extends Job> list) {
+        for (Job job : list) {
+            add(job);
+        }
+    }
+
+    /**
+     * Adds a job to the index. It becomes ready immediately if all of its
+     * parents have returned.
+     *
+     * @param job the job
+     */
+    public void add(Job job) {
+        Entry entry = new Entry(job, nextOrder++);
+        pending.put(job, entry);
+        index(entry);
+    }
+
+    /**
+     * Recomputes the parents a pending job waits for. It should be called when
+     * the parent list of a pending job has been changed, i.e. when a failed
+     * job is reclustered into retry jobs.
+     *
+     * @param job the job
+     */
+    public void refresh(Job job) {
+        Entry entry = pending.get(job);
+        if (entry == null) {
+            return;
+        }
+        ready.remove(entry);
+        List<?> parents = job.getParentList();
+        for (Object parent : parents) {
+            List<Entry> children = waiting.get(((Task) parent).getCloudletId());
+            if (children != null) {
+                children.remove(entry);
+            }
+        }
+        index(entry);
+    }
+
+    /**
+     * Marks a job as returned and updates the children waiting for it
+     *
+     * @param id the job id
+     */
+    public void jobReturned(int id) {
+        if (returnedIds.get(id)) {
+            return;
+        }
+        returnedIds.set(id);
+        List<Entry> children = waiting.remove(id);
+        if (children == null) {
+            return;
+        }
+        for (Entry entry : children) {
+            entry.remaining--;
+            if (entry.remaining == 0) {
+                ready.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Removes all the ready jobs from the index
+     *
+     * @return the released jobs, in the order they were added
+     */
+    public List<Job> pollReady() {
+        List<Job> released = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            Entry entry = ready.poll();
+            /**
+             * A job whose id has already returned is never released again, it
+             * stays pending.
+             */
+            if (!returnedIds.get(entry.job.getCloudletId())) {
+                pending.remove(entry.job);
+                released.add(entry.job);
+            }
+        }
+        return released;
+    }
+
+    /**
+     * Checks whether a job is still pending
+     *
+     * @param job the job
+     * @return whether it has not been released yet
+     */
+    public boolean isPending(Job job) {
+        return pending.containsKey(job);
+    }
+
+    /**
+     * Gets the number of pending jobs
+     *
+     * @return the number of pending jobs
+     */
+    public int size() {
+        return pending.size();
+    }
+
+    /**
+     * Removes all the pending jobs. The returned job ids are kept.
+     */
+    public void clear() {
+        pending.clear();
+        waiting.clear();
+        ready.clear();
+    }
+
+    /**
+     * Counts the distinct parents that have not returned and registers the
+     * entry as a waiting child of each of them.
+     *
+     * @param entry the entry
+     */
+    private void index(Entry entry) {
+        entry.remaining = 0;
+        List<?> parents = entry.job.getParentList();
+        for (Object parent : parents) {
+            int parentId = ((Task) parent).getCloudletId();
+            if (returnedIds.get(parentId)) {
+                continue;
+            }
+            List<Entry> children = waiting.get(parentId);
+            if (children == null) {
+                children = new ArrayList<>();
+                waiting.put(parentId, children);
+            }
+            //the same parent may be listed twice
+            if (children.isEmpty() || children.get(children.size() - 1) != entry) {
+                children.add(entry);
+                entry.remaining++;
+            }
+        }
+        if (entry.remaining == 0) {
+            ready.add(entry);
+        }
+    }
+}
@@ -46,6 +46,10 @@ public class Task extends Cloudlet {
      * The list of all files (input data and ouput data)
      */
     private List<FileItem> fileList;
+    /*
+     * The partition of the file list, null until it is used.
+     */
+    private FilePartition filePartition;
     /*
      * The priority used for research. Not used in current version. 
      */
@@ -248,6 +252,7 @@ public class Task extends Cloudlet {
      */
     public void addFile(FileItem file) {
         this.fileList.add(file);
+        this.filePartition = null;
     }
 
     /**
@@ -257,6 +262,20 @@ public class Task extends Cloudlet {
      */
     public void setFileList(List<FileItem> list) {
         this.fileList = list;
+        this.filePartition = null;
+    }
+
+    /**
+     * Gets the real input, output and intermediate files of the file list.
+     * The partition is computed once and again only if the list changes.
+     *
+     * @return the partition of the file list
+     */
+    public FilePartition getFilePartition() {
+        if (this.filePartition == null || !this.filePartition.isPartitionOf(this.fileList)) {
+            this.filePartition = new FilePartition(this.fileList);
+        }
+        return this.filePartition;
     }
 
     /**
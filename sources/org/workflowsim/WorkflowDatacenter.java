@@ -15,12 +15,20 @@
  */
 package org.workflowsim;
 
-import java.util.Iterator;
+import java.io.FileInputStream;
+import java.util.BitSet;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletScheduler;
+import org.cloudbus.cloudsim.CloudletSchedulerSpaceShared;
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
@@ -52,8 +60,73 @@ public class WorkflowDatacenter extends Datacenter {
     private HybridStorage mHybridStorage = null;
     private HashMap<String, List<Integer>> mStorageStrategy = null;
     private HashMap<String, String> mFiles2Task = null;
+    /**
+     * The storage strategies by task type id, and the task type id of each
+     * file list by the hash of its file names (see FilePartition).
+     */
+    private List<List<Integer>> mStrategyTable = null;
+    private Map<Long, Integer> mFileSetTypes = null;
     private int currentJobID = 0;
     private String mtaskType = null;
+    /**
+     * The transfers on the shared storage of the job being submitted, as
+     * {volume, peak rate}, when its bandwidth is shared.
+     */
+    private final List<double[]> mPendingTransfers = new ArrayList<>();
+    /**
+     * The jobs waiting for a transfer, by the id of the transfer.
+     */
+    private final Map<Integer, StagingJob> mStagingJobs = new HashMap<>();
+    /**
+     * The id of this datacenter in the ReplicaCatalog, -1 until it is used.
+     */
+    private int mSiteId = -1;
+    /**
+     * The time of the last FILE_TRANSFER_UPDATE event sent.
+     */
+    private double mTransferEventTime = -1;
+
+    /**
+     * A job waiting for its transfers on the shared storage before it is
+     * submitted to its vm. Its transfers run one after another.
+     */
+    private static class StagingJob {
+
+        private final Job job;
+        /**
+         * The transfer time that does not depend on the other transfers.
+         */
+        private final double fixedTime;
+        private final double startTime;
+        private final LinkedList<double[]> transfers;
+
+        StagingJob(Job job, double fixedTime, double startTime, List<double[]> transfers) {
+            this.job = job;
+            this.fixedTime = fixedTime;
+            this.startTime = startTime;
+            this.transfers = new LinkedList<>(transfers);
+        }
+    }
+    /**
+     * Whether only the vms with cloudlets to process are updated, see
+     * updateCloudletProcessing().
+     */
+    private boolean indexedCompletion = true;
+    /**
+     * The vms of all hosts in host order, null until the next update lists
+     * them again.
+     */
+    private Vm[] mVms = null;
+    private Host[] mVmHosts = null;
+    private Map<Vm, Integer> mVmIndex = null;
+    /**
+     * The vms with cloudlets in execution or waiting.
+     */
+    private final BitSet mBusyVms = new BitSet();
+    /**
+     * The vms updated since their finished cloudlets were last collected.
+     */
+    private final BitSet mDirtyVms = new BitSet();
 
     public WorkflowDatacenter(String name,
             DatacenterCharacteristics characteristics,
@@ -63,6 +136,18 @@ public class WorkflowDatacenter extends Datacenter {
         super(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval);
     }
 
+    /**
+     * Gets the id of this datacenter as a site of the ReplicaCatalog.
+     *
+     * @return the site id
+     */
+    private int getSiteId() {
+        if (mSiteId < 0) {
+            mSiteId = ReplicaCatalog.getSiteId(getName());
+        }
+        return mSiteId;
+    }
+
     /**
      * Init HybridStorage.
      */
@@ -74,11 +159,38 @@ public class WorkflowDatacenter extends Datacenter {
       }
     }
 
+    /**
+     * Init HybridStorage with the tiers, the eviction policy and the promotion
+     * given in a config file such as config.txt. The first tier is local to
+     * the vms and the last one is shared.
+     *
+     * @param configPath the path of the config file
+     */
+    public void setHybridStorage(String configPath) {
+        try (FileInputStream in = new FileInputStream(configPath)) {
+            Properties config = new Properties();
+            config.load(in);
+            mHybridStorage = new HybridStorage(config);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets the HybridStorage, for instance to print its statistics.
+     *
+     * @return the HybridStorage
+     */
+    public HybridStorage getHybridStorage() {
+        return mHybridStorage;
+    }
+
     /**
      * Init storage strategy.
      */
     public void setStorageStrategy(HashMap<String, List<Integer>> strategy) {
       mStorageStrategy = strategy;
+      indexStorageStrategy();
     }
 
 
@@ -89,8 +201,59 @@ public class WorkflowDatacenter extends Datacenter {
     /**
      * Init the relation betwen files and task.
      */
+    /**
+     * Sets whether only the vms with cloudlets to process are updated on each
+     * event. The results are the same either way.
+     *
+     * @param indexed whether to index the vms
+     */
+    public void setIndexedCompletion(boolean indexed) {
+        catchUpIdleVms();
+        this.indexedCompletion = indexed;
+        this.mVms = null;
+    }
+
     public void setFilesToTask(HashMap<String, String> relations) {
       mFiles2Task = relations;
+      indexStorageStrategy();
+    }
+
+    /**
+     * Resolves the file lists of mFiles2Task to the storage strategies of
+     * their task types, so that a job finds its strategy from the hash of
+     * its file names instead of concatenating them. The strategies are the
+     * lists of mStorageStrategy, which are updated in place.
+     */
+    private void indexStorageStrategy() {
+        if (mStorageStrategy == null || mFiles2Task == null) {
+            return;
+        }
+        mStrategyTable = new ArrayList<>();
+        mFileSetTypes = new HashMap<>();
+        Map<String, Integer> typeIds = new HashMap<>();
+        for (Map.Entry<String, String> entry : mFiles2Task.entrySet()) {
+            Integer typeId = typeIds.get(entry.getValue());
+            if (typeId == null) {
+                typeId = mStrategyTable.size();
+                typeIds.put(entry.getValue(), typeId);
+                mStrategyTable.add(mStorageStrategy.get(entry.getValue()));
+            }
+            mFileSetTypes.put(FilePartition.hashNames(entry.getKey()), typeId);
+        }
+    }
+
+    /**
+     * Gets the storage strategy of a job from its file list.
+     *
+     * @param files, the file list
+     * @param task, the job, whose file list may be the given one
+     * @return the storage strategy, or null if its task type is unknown
+     */
+    private List<Integer> resolveStorageStrategy(List<FileItem> files, Task task) {
+        long hash = files == task.getFileList()
+                ? task.getFilePartition().getNamesHash() : FilePartition.hashNames(files);
+        Integer typeId = mFileSetTypes.get(hash);
+        return typeId == null ? null : mStrategyTable.get(typeId);
     }
 
     /**
@@ -169,6 +332,7 @@ public class WorkflowDatacenter extends Datacenter {
             /**
              * Stage-in file && Shared based on the file.system
              */
+            mPendingTransfers.clear();
             if (job.getClassType() == ClassType.STAGE_IN.value) {
 		Log.printLine("Job " + currentJobID + ", "+ mtaskType + " is STAGE_IN job");
                 fileTransferTime += stageInFile2FileSystem(job);
@@ -182,16 +346,13 @@ public class WorkflowDatacenter extends Datacenter {
                 fileTransferTime += processDataStageInForComputeJob(job.getFileList(), job);
                 //Log.printLine("Job ID: " + job.getCloudletId() + " file transferTime is " + fileTransferTime);
             }
-	    job.setIOTime(fileTransferTime);
-            CloudletScheduler scheduler = vm.getCloudletScheduler();
-            double estimatedFinishTime = scheduler.cloudletSubmit(job, fileTransferTime);
-            updateTaskExecTime(job, vm);
-
-            // if this cloudlet is in the exec queue
-            if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
-                send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+            if (mPendingTransfers.isEmpty()) {
+                submitJob(job, vm, fileTransferTime);
             } else {
-                Log.printLine("Warning: You schedule cloudlet to a busy VM");
+                /*The job waits for its transfers on the shared storage*/
+                startNextTransfer(new StagingJob(job, fileTransferTime, CloudSim.clock(), mPendingTransfers));
+                mPendingTransfers.clear();
+                scheduleTransferUpdate(true);
             }
 
             if (ack) {
@@ -212,6 +373,120 @@ public class WorkflowDatacenter extends Datacenter {
         checkCloudletCompletion();
     }
 
+    /**
+     * Submits a job to its vm once its files are staged in.
+     *
+     * @param job, the job
+     * @param vm, the vm of the job
+     * @param fileTransferTime, the time the job still spends on transfers
+     */
+    private void submitJob(Job job, CondorVM vm, double fileTransferTime) {
+        job.setIOTime(fileTransferTime);
+        catchUpVm(vm);
+        CloudletScheduler scheduler = vm.getCloudletScheduler();
+        double estimatedFinishTime = scheduler.cloudletSubmit(job, fileTransferTime);
+        updateTaskExecTime(job, vm);
+
+        // if this cloudlet is in the exec queue
+        if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+            send(getId(), estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+        } else {
+            Log.printLine("Warning: You schedule cloudlet to a busy VM");
+        }
+    }
+
+    /**
+     * Gets the time of a storage operation. When the bandwidth of the
+     * storage is shared, an operation on the shared tier is recorded as a
+     * pending transfer of the job instead, and only its latency is returned.
+     *
+     * @param time, the time of the operation alone on the storage
+     * @param storageID, the tier of the operation
+     * @return the time to add to the transfer time of the job
+     */
+    private double storageTime(double time, int storageID) {
+        if (!mHybridStorage.isSharedBandwidth() || storageID != mHybridStorage.getStorageNum() - 1) {
+            return time;
+        }
+        double latency = Math.min(mHybridStorage.getLatency(storageID), time);
+        double rate = mHybridStorage.getMaxTransferRate(storageID);
+        mPendingTransfers.add(new double[]{(time - latency) * rate, rate});
+        return latency;
+    }
+
+    /**
+     * Starts the next transfer of a staging job, or submits the job to its vm
+     * when it has no transfer left.
+     *
+     * @param staging, the staging job
+     */
+    private void startNextTransfer(StagingJob staging) {
+        double[] transfer = staging.transfers.poll();
+        if (transfer != null) {
+            int id = mHybridStorage.startTransfer(mHybridStorage.getStorageNum() - 1,
+                    transfer[0], transfer[1], CloudSim.clock());
+            mStagingJobs.put(id, staging);
+            return;
+        }
+        Job job = staging.job;
+        Host host = getVmAllocationPolicy().getHost(job.getVmId(), job.getUserId());
+        CondorVM vm = (CondorVM) host.getVm(job.getVmId(), job.getUserId());
+        submitJob(job, vm, staging.fixedTime);
+        job.setIOTime(staging.fixedTime + CloudSim.clock() - staging.startTime);
+    }
+
+    /**
+     * Sends a FILE_TRANSFER_UPDATE event for the next transfer to finish, if
+     * none is pending at an earlier time. Without progress, the event is not
+     * sent at the current time again, so that the clock always moves on.
+     *
+     * @param progress, whether transfers have been started or finished since
+     * the last update
+     */
+    private void scheduleTransferUpdate(boolean progress) {
+        double next = mHybridStorage.getNextTransferTime();
+        if (next == Double.MAX_VALUE) {
+            return;
+        }
+        double now = CloudSim.clock();
+        if (!progress && next <= now) {
+            next = Math.nextUp(now);
+        }
+        if (mTransferEventTime < now || next < mTransferEventTime) {
+            mTransferEventTime = Math.max(next, now);
+            send(getId(), mTransferEventTime - now, WorkflowSimTags.FILE_TRANSFER_UPDATE);
+        }
+    }
+
+    /**
+     * Collects the finished transfers, starts the next transfers of their
+     * jobs and submits the jobs that have none left.
+     */
+    protected void processFileTransferUpdate() {
+        updateCloudletProcessing();
+        if (CloudSim.clock() >= mTransferEventTime) {
+            mTransferEventTime = -1;
+        }
+        List<Integer> finished = mHybridStorage.finishTransfers(CloudSim.clock());
+        for (int id : finished) {
+            StagingJob staging = mStagingJobs.remove(id);
+            if (staging != null) {
+                startNextTransfer(staging);
+            }
+        }
+        scheduleTransferUpdate(!finished.isEmpty());
+        checkCloudletCompletion();
+    }
+
+    @Override
+    protected void processOtherEvent(SimEvent ev) {
+        if (ev != null && ev.getTag() == WorkflowSimTags.FILE_TRANSFER_UPDATE) {
+            processFileTransferUpdate();
+        } else {
+            super.processOtherEvent(ev);
+        }
+    }
+
     /**
      * Update the submission time/exec time of a job
      *
@@ -229,6 +504,27 @@ public class WorkflowDatacenter extends Datacenter {
         }
     }
 
+    /**
+     * Counts the children of a job that read a file it produces, which are
+     * the jobs that will still read the file.
+     *
+     * @param job, the producer of the file
+     * @param fileName, the name of the file
+     * @return the number of consumers
+     */
+    private int countConsumers(Job job, String fileName) {
+        int count = 0;
+        for (Task child : job.getChildList()) {
+            for (FileItem file : child.getFileList()) {
+                if (file.getType() == FileType.INPUT && file.getName().equals(fileName)) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
      * Stage in files for a stage-in job. For a local file system (such as
      * condor-io) add files to the local storage; For a shared file system (such
@@ -244,21 +540,21 @@ public class WorkflowDatacenter extends Datacenter {
 	int fileid = 0;
         try {
           for (FileItem file : fList) {
-            ReplicaCatalog.addFileToStorage(file.getName(), this.getName());
+            ReplicaCatalog.addFileToSite(ReplicaCatalog.getFileId(file), getSiteId());
             int fsize = (int) file.getSize()/1024/1024;
             int myid = -1;
 	    if (fsize == 0)
 		fsize = 1;
             if (!mHybridStorage.contains(file.getName())) {
 		  /*All files of stage_in job are storaed in PFS*/
-		  myid = mHybridStorage.addFile(new File(file.getName(), fsize), 2);
+		  myid = mHybridStorage.addFile(new File(file.getName(), fsize), mHybridStorage.getStorageNum() - 1);
 		  //Log.printLine("Debug!!! Stage in file " + file.getName());
             } else {
                   Log.printLine("Hybrid storage has contained file " + file.getName() + ", do not add again");
             }
             if (myid != -1) {
               //Log.printLine("addFile to storage once");
-              time += mHybridStorage.predictFileWriteTime(file.getSize(), myid);
+              time += storageTime(mHybridStorage.predictFileWriteTime(file.getSize(), myid), myid);
             } else {
                Log.printLine("Failed to add file with return value: " + myid);
             }
@@ -279,29 +575,25 @@ public class WorkflowDatacenter extends Datacenter {
      */
     protected double processDataStageInForComputeJob(List<FileItem> requiredFiles, Job job) throws Exception {
         double time = 0.0;
-        String myfiles = "";
-        for (FileItem file : requiredFiles) {
-            myfiles += file.getName();
-        }
-        String tasktype = mFiles2Task.get(myfiles);
+        List<Integer> strategy = resolveStorageStrategy(requiredFiles, job);
         int fileid = 0;
-        for (FileItem file : requiredFiles) {
+        FilePartition partition = requiredFiles == job.getFileList()
+                ? job.getFilePartition() : new FilePartition(requiredFiles);
+        for (int index = 0; index < requiredFiles.size(); index++) {
+            FileItem file = requiredFiles.get(index);
             //The input file is not an output File 
-            if (file.isRealInputFile(requiredFiles)) {
+            if (partition.isRealInputFile(index)) {
                 double maxBwth = 0.0;
-		
-                List siteList = ReplicaCatalog.getStorageList(file.getName());
-		if (siteList == null) {
+		int fileId = ReplicaCatalog.getFileId(file);
+		int siteNum = ReplicaCatalog.getSiteNum(fileId);
+		if (siteNum == 0) {
 		  Log.printLine("siteList is null for file " + file.getName());
 		  System.exit(-1);
 		}
-                if (siteList.isEmpty()) {
-                    throw new Exception(file.getName() + " does not exist");
-                }
 		
 		int storageID = -1;
 		if (file.getName() != null) {
-         		storageID = mHybridStorage.locateFile(file.getName());
+         		storageID = mHybridStorage.readFile(file.getName());
 		}
 
 		if (storageID == -1) {
@@ -315,33 +607,35 @@ public class WorkflowDatacenter extends Datacenter {
                         Vm vm = host.getVm(vmId, userId);
 
                         boolean requiredFileStagein = true;
-                        for (Iterator it = siteList.iterator(); it.hasNext();) {
-			    //site is where one replica of this data is located at
-                            String site = (String) it.next();
-                            if (site.equals(this.getName())) {
-                                continue;
-                            }
-			    //This file is already in the local vm and thus it is no need to transfer
-                            if (site.equals(Integer.toString(vmId))) {
-                                requiredFileStagein = false;
-                                time += mHybridStorage.predictFileReadTime(file.getSize(), storageID);
-                                break;
-                            }
-			    
-                            double bwth;
-
-                           if (site.equals(Parameters.SOURCE)) {
-			     //transfers from the source to the VM is limited to the VM bw only
-                             bwth = vm.getBw();
-                           } else {
-                             //transfers between two VMs is limited to both VMs
-                             bwth = Math.min(vm.getBw(), getVmAllocationPolicy().getHost(Integer.parseInt(site), userId).getVm(Integer.parseInt(site), userId).getBw());
-                           }
-                           if (bwth > maxBwth) {
-                                maxBwth = bwth;
+			//This file is already in the local vm and thus it is no need to transfer
+                        if (ReplicaCatalog.isFileOnVm(fileId, vmId)) {
+                            requiredFileStagein = false;
+                            time += mHybridStorage.predictFileReadTime(file.getSize(), storageID);
+                        } else {
+                            int dcSiteId = getSiteId();
+                            int sourceSiteId = ReplicaCatalog.getSiteId(Parameters.SOURCE);
+                            for (int i = 0; i < siteNum; i++) {
+			        //site is where one replica of this data is located at
+                                int siteId = ReplicaCatalog.getSiteId(fileId, i);
+                                if (siteId == dcSiteId) {
+                                    continue;
+                                }
+                                double bwth;
+
+                                if (siteId == sourceSiteId) {
+			            //transfers from the source to the VM is limited to the VM bw only
+                                    bwth = vm.getBw();
+                                } else {
+                                    //transfers between two VMs is limited to both VMs
+                                    int siteVmId = ReplicaCatalog.getVmId(siteId);
+                                    bwth = Math.min(vm.getBw(), getVmAllocationPolicy().getHost(siteVmId, userId).getVm(siteVmId, userId).getBw());
+                                }
+                                if (bwth > maxBwth) {
+                                    maxBwth = bwth;
+                                }
                             }
                         }
-			ReplicaCatalog.addFileToStorage(file.getName(), Integer.toString(vmId));
+			ReplicaCatalog.addFileToVm(fileId, vmId);
 			
 			if (requiredFileStagein) {
 				if (mHybridStorage.getMaxTransferRate(storageID) > maxBwth) {
@@ -351,27 +645,35 @@ public class WorkflowDatacenter extends Datacenter {
 					time += mHybridStorage.predictFileReadTime(file.getSize(), storageID);
 				}
 			}
-		} else if ((storageID == 1) || (storageID == 2)) {
-			ReplicaCatalog.addFileToStorage(file.getName(), this.getName());
-			time += mHybridStorage.predictFileReadTime(file.getSize(), 2);
+		} else {
+			int shared = mHybridStorage.getStorageNum() - 1;
+			ReplicaCatalog.addFileToSite(fileId, getSiteId());
+			time += storageTime(mHybridStorage.predictFileReadTime(file.getSize(), shared), shared);
+			if (mHybridStorage.locateFile(file.getName()) == 0) {
+				/*The file has been promoted to the memory of this vm*/
+				ReplicaCatalog.addFileToVm(fileId, job.getVmId());
+			}
                 }
 		
             } else if (file.getType() == FileType.OUTPUT) {
                 /*Add output file to shared storage*/
-                int myid = mStorageStrategy.get(tasktype).get(fileid);
-                time += mHybridStorage.predictFileWriteTime(file.getSize(), myid);
+                int myid = strategy.get(fileid);
+                time += storageTime(mHybridStorage.predictFileWriteTime(file.getSize(), myid), myid);
                 double memSpace = mHybridStorage.getAvailableSpace(0);
                 file.setMemFreeSpace(memSpace);
                 int fsize = (int) file.getSize()/1024/1024;
                 if (fsize == 0)
                      fsize = 1;
                 if (!mHybridStorage.contains(file.getName())) {
-                    myid = mHybridStorage.addFile(new File(file.getName(), fsize), mStorageStrategy.get(tasktype).get(fileid));
+                    myid = mHybridStorage.addFile(new File(file.getName(), fsize), strategy.get(fileid));
+                    if (mHybridStorage.getEvictionPolicy() != null) {
+                        mHybridStorage.setRemainingConsumers(file.getName(), countConsumers(job, file.getName()));
+                    }
                 }
-                if (myid == 0 || myid == 1 || myid == 2) {
+                if (myid >= 0 && myid < mHybridStorage.getStorageNum()) {
                     /*Log.printLine("addFile to storage once with id " + myid);*/
-                    if (tasktype != null) {
-                        mStorageStrategy.get(tasktype).set(fileid,myid);
+                    if (strategy != null) {
+                        strategy.set(fileid,myid);
                     }
                 }
                 fileid++;
@@ -380,6 +682,14 @@ public class WorkflowDatacenter extends Datacenter {
         return time;
     }
 
+    /**
+     * Updates the processing of the cloudlets. Updating a vm without cloudlets
+     * in execution or waiting only records the time and its mips share, so in
+     * indexed mode these vms are skipped, and brought up to the time of the last
+     * update when a cloudlet is submitted to them (see catchUpVm()). The vms
+     * with cloudlets are still updated on every call, since their progress is
+     * rounded down at each update.
+     */
     @Override
     protected void updateCloudletProcessing() {
         // if some time passed since last processing
@@ -389,13 +699,31 @@ public class WorkflowDatacenter extends Datacenter {
         if (CloudSim.clock() < 0.111 || CloudSim.clock() > getLastProcessTime() + 0.01) {
             List<? extends Host> list = getVmAllocationPolicy().getHostList();
             double smallerTime = Double.MAX_VALUE;
-            // for each host...
-            for (Host host : list) {
-                // inform VMs to update processing
-                double time = host.updateVmsProcessing(CloudSim.clock());
-                // what time do we expect that the next cloudlet will finish?
-                if (time < smallerTime) {
-                    smallerTime = time;
+            if (mVms == null && indexedCompletion) {
+                indexVms();
+            }
+            if (mVms == null) {
+                // for each host...
+                for (Host host : list) {
+                    // inform VMs to update processing
+                    double time = host.updateVmsProcessing(CloudSim.clock());
+                    // what time do we expect that the next cloudlet will finish?
+                    if (time < smallerTime) {
+                        smallerTime = time;
+                    }
+                }
+            } else {
+                for (int i = mBusyVms.nextSetBit(0); i >= 0; i = mBusyVms.nextSetBit(i + 1)) {
+                    Vm vm = mVms[i];
+                    double time = vm.updateVmProcessing(CloudSim.clock(),
+                            mVmHosts[i].getVmScheduler().getAllocatedMipsForVm(vm));
+                    if (time > 0.0 && time < smallerTime) {
+                        smallerTime = time;
+                    }
+                    if (!vm.getCloudletScheduler().hasPendingCloudlets()) {
+                        mBusyVms.clear(i);
+                    }
+                    mDirtyVms.set(i);
                 }
             }
             // gurantees a minimal interval before scheduling the event
@@ -418,19 +746,146 @@ public class WorkflowDatacenter extends Datacenter {
      */
     @Override
     protected void checkCloudletCompletion() {
+        if (mVms != null) {
+            // only the vms updated since the last check can have finished cloudlets
+            for (int i = mDirtyVms.nextSetBit(0); i >= 0; i = mDirtyVms.nextSetBit(i + 1)) {
+                returnFinishedCloudlets(mVms[i]);
+            }
+            mDirtyVms.clear();
+            return;
+        }
         List<? extends Host> list = getVmAllocationPolicy().getHostList();
         for (Host host : list) {
             for (Vm vm : host.getVmList()) {
-                while (vm.getCloudletScheduler().isFinishedCloudlets()) {
-                    Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
-                    if (cl != null) {
-                        sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
-                        //register(cl);
-                        mRegister(cl);
-                    }
+                returnFinishedCloudlets(vm);
+            }
+        }
+        mDirtyVms.clear();
+    }
+
+    /**
+     * Sends the finished cloudlets of a vm to the User/Broker
+     *
+     * @param vm the vm
+     */
+    private void returnFinishedCloudlets(Vm vm) {
+        while (vm.getCloudletScheduler().isFinishedCloudlets()) {
+            Cloudlet cl = vm.getCloudletScheduler().getNextFinishedCloudlet();
+            if (cl != null) {
+                sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+                //register(cl);
+                mRegister(cl);
+            }
+        }
+    }
+
+    /**
+     * Lists the vms of all hosts and updates all of them, as the next update
+     * would do without an index. Vms are only indexed if their hosts and
+     * schedulers are known to do nothing else when they are updated.
+     */
+    private void indexVms() {
+        List<? extends Host> list = getVmAllocationPolicy().getHostList();
+        int num = 0;
+        for (Host host : list) {
+            if (host.getClass() != Host.class) {
+                return;
+            }
+            for (Vm vm : host.getVmList()) {
+                Class<?> type = vm.getCloudletScheduler().getClass();
+                if (type != CloudletSchedulerSpaceShared.class && type != CloudletSchedulerTimeShared.class) {
+                    return;
                 }
+                num++;
             }
         }
+        mVms = new Vm[num];
+        mVmHosts = new Host[num];
+        mVmIndex = new IdentityHashMap<>();
+        int i = 0;
+        for (Host host : list) {
+            for (Vm vm : host.getVmList()) {
+                mVms[i] = vm;
+                mVmHosts[i] = host;
+                mVmIndex.put(vm, i);
+                i++;
+            }
+        }
+        // all of them are updated once, the idle ones are then dropped
+        mBusyVms.clear();
+        mBusyVms.set(0, num);
+        mDirtyVms.set(0, num);
+    }
+
+    /**
+     * Brings a vm skipped by the last updates up to the time of the last one
+     * before a cloudlet is given to it, and updates it from now on.
+     *
+     * @param vm the vm
+     */
+    private void catchUpVm(Vm vm) {
+        if (mVms == null) {
+            return;
+        }
+        Integer i = mVmIndex.get(vm);
+        if (i == null) {
+            // the vm was not listed, so it has not been skipped either
+            mVms = null;
+            return;
+        }
+        if (!mBusyVms.get(i)) {
+            vm.updateVmProcessing(getLastProcessTime(),
+                    mVmHosts[i].getVmScheduler().getAllocatedMipsForVm(vm));
+            mBusyVms.set(i);
+        }
+    }
+
+    /**
+     * Brings all the vms skipped by the last updates up to the time of the last
+     * one, and lists the vms again on the next update.
+     */
+    private void catchUpIdleVms() {
+        if (mVms == null) {
+            return;
+        }
+        for (int i = mBusyVms.nextClearBit(0); i < mVms.length; i = mBusyVms.nextClearBit(i + 1)) {
+            catchUpVm(mVms[i]);
+        }
+        mVms = null;
+    }
+
+    @Override
+    protected void processVmCreate(SimEvent ev, boolean ack) {
+        catchUpIdleVms();
+        super.processVmCreate(ev, ack);
+    }
+
+    @Override
+    protected void processVmDestroy(SimEvent ev, boolean ack) {
+        catchUpIdleVms();
+        super.processVmDestroy(ev, ack);
+    }
+
+    @Override
+    protected void processVmMigrate(SimEvent ev, boolean ack) {
+        catchUpIdleVms();
+        super.processVmMigrate(ev, ack);
+    }
+
+    @Override
+    protected void processCloudlet(SimEvent ev, int type) {
+        catchUpIdleVms();
+        super.processCloudlet(ev, type);
+        // a resumed cloudlet may be given to a vm dropped from the index
+        mVms = null;
+    }
+
+    @Override
+    protected void processCloudletMove(int[] receivedData, int type) {
+        catchUpIdleVms();
+        super.processCloudletMove(receivedData, type);
+        // the cloudlet may be given to a vm dropped from the index
+        mVms = null;
     }
 
     /**
@@ -469,7 +924,7 @@ public class WorkflowDatacenter extends Datacenter {
             {
                 switch (ReplicaCatalog.getFileSystem()) {
                     case SHARED:
-                        ReplicaCatalog.addFileToStorage(file.getName(), this.getName());
+                        ReplicaCatalog.addFileToSite(ReplicaCatalog.getFileId(file), getSiteId());
                         break;
                     case LOCAL:
                         int vmId = cl.getVmId();
@@ -479,7 +934,7 @@ public class WorkflowDatacenter extends Datacenter {
                          * Left here for future work
                          */
                         CondorVM vm = (CondorVM) host.getVm(vmId, userId);
-                        ReplicaCatalog.addFileToStorage(file.getName(), Integer.toString(vmId));
+                        ReplicaCatalog.addFileToVm(ReplicaCatalog.getFileId(file), vmId);
                         break;
                 }
             }
@@ -497,18 +952,14 @@ public class WorkflowDatacenter extends Datacenter {
 
 	/*Not able to get task type info from Cloudlet*/
 	//String tasktype = tl.getType();
-	String myfiles = "";
-	for (FileItem file : fList) {
-	    myfiles += file.getName();
-	}
-	String tasktype = mFiles2Task.get(myfiles);
+	List<Integer> strategy = resolveStorageStrategy(fList, tl);
 
 	//System.out.println("Debug!!! Current task type is " + tasktype);
 
         for (FileItem file : fList) {
             if (file.getType() == FileType.OUTPUT)//output file*/
             {
-		int myid = mStorageStrategy.get(tasktype).get(fileid);
+		int myid = strategy.get(fileid);
                 try {
                 /*
 		int myid = -1;
@@ -533,22 +984,19 @@ public class WorkflowDatacenter extends Datacenter {
                     time = mHybridStorage.predictFileWriteTime(file.getSize(), myid);
                   } 
 		  */
-	  	  switch (myid) {
-                    case 0:
-                    case 1:
+                int shared = mHybridStorage.getStorageNum() - 1;
+                if (myid >= 0 && myid < shared) {
+                        /*Local tiers*/
                         int vmId = cl.getVmId();
                         int userId = cl.getUserId();
                         Host host = getVmAllocationPolicy().getHost(vmId, userId);
                         CondorVM vm = (CondorVM) host.getVm(vmId, userId);
-                        ReplicaCatalog.addFileToStorage(file.getName(), Integer.toString(vmId));
-                        break;
-                    case 2:
-                        ReplicaCatalog.addFileToStorage(file.getName(), this.getName());
-                        break;
-                    default:
+                        ReplicaCatalog.addFileToVm(ReplicaCatalog.getFileId(file), vmId);
+                } else if (myid == shared) {
+                        ReplicaCatalog.addFileToSite(ReplicaCatalog.getFileId(file), getSiteId());
+                } else {
                         //Log.printLine("Debug!!! Did not add file to ReplicaCatalog: " + file.getName() + "with rvalue " + myid);
-                        break;
-                   }
+                }
 
                 } catch (Exception e) {
                   e.printStackTrace();
@@ -17,7 +17,6 @@ package org.workflowsim;
 
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import org.cloudbus.cloudsim.Cloudlet;
@@ -62,6 +61,14 @@ public final class WorkflowEngine extends SimEntity {
      */
     private List<Integer> schedulerId;
     private List<WorkflowScheduler> scheduler;
+    /**
+     * The index that releases pending jobs once their parents have returned
+     */
+    private final JobReleaseIndex releaseIndex;
+    /**
+     * Whether released jobs are still to be removed from the job list
+     */
+    private boolean jobsListDirty;
 
     /**
      * Created a new WorkflowEngine object.
@@ -79,6 +86,7 @@ public final class WorkflowEngine extends SimEntity {
     public WorkflowEngine(String name, int schedulers) throws Exception {
         super(name);
 
+        releaseIndex = new JobReleaseIndex();
         setJobsList(new ArrayList<>());
         setJobsSubmittedList(new ArrayList<>());
         setJobsReceivedList(new ArrayList<>());
@@ -133,6 +141,9 @@ public final class WorkflowEngine extends SimEntity {
      */
     public void submitCloudletList(List<? extends Cloudlet> list) {
         getJobsList().addAll(list);
+        for (Cloudlet cloudlet : list) {
+            releaseIndex.add((Job) cloudlet);
+        }
     }
 
     /**
@@ -204,6 +215,11 @@ public final class WorkflowEngine extends SimEntity {
     protected void processJobSubmit(SimEvent ev) {
         List<? extends Cloudlet> list = (List) ev.getData();
         setJobsList(list);
+        releaseIndex.clear();
+        for (Cloudlet cloudlet : list) {
+            releaseIndex.add((Job) cloudlet);
+        }
+        jobsListDirty = false;
     }
 
     /**
@@ -218,13 +234,25 @@ public final class WorkflowEngine extends SimEntity {
         Job job = (Job) ev.getData();
         if (job.getCloudletStatus() == Cloudlet.FAILED) {
             // Reclusteringengine will add retry job to jobList
-            int newId = getJobsList().size() + getJobsSubmittedList().size();
-            getJobsList().addAll(ReclusteringEngine.process(job, newId));
+            int newId = releaseIndex.size() + getJobsSubmittedList().size();
+            List<Job> retryJobs = ReclusteringEngine.process(job, newId);
+            getJobsList().addAll(retryJobs);
+            releaseIndex.addAll(retryJobs);
+            /**
+             * The children of the failed job now wait for the retry jobs as
+             * well.
+             */
+            for (Job retryJob : retryJobs) {
+                for (Task child : retryJob.getChildList()) {
+                    releaseIndex.refresh((Job) child);
+                }
+            }
         }
 
         getJobsReceivedList().add(job);
+        releaseIndex.jobReturned(job.getCloudletId());
         jobsSubmitted--;
-        if (getJobsList().isEmpty() && jobsSubmitted == 0) {
+        if (releaseIndex.size() == 0 && jobsSubmitted == 0) {
             //send msg to all the schedulers
             for (int i = 0; i < getSchedulerIds().size(); i++) {
                 sendNow(getSchedulerId(i), CloudSimTags.END_OF_SIMULATION, null);
@@ -249,23 +277,6 @@ public final class WorkflowEngine extends SimEntity {
                 + "Error - event unknown by this DatacenterBroker.");
     }
 
-    /**
-     * Checks whether a job list contains a id
-     *
-     * @param jobList the job list
-     * @param id the job id
-     * @return
-     */
-    private boolean hasJobListContainsID(List jobList, int id) {
-        for (Iterator it = jobList.iterator(); it.hasNext();) {
-            Job job = (Job) it.next();
-            if (job.getCloudletId() == id) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * Submit jobs to the created VMs.
      *
@@ -274,41 +285,23 @@ public final class WorkflowEngine extends SimEntity {
      */
     protected void submitJobs() {
 
-        List<Job> list = getJobsList();
         Map<Integer, List> allocationList = new HashMap<>();
         for (int i = 0; i < getSchedulers().size(); i++) {
             List<Job> submittedList = new ArrayList<>();
             allocationList.put(getSchedulerId(i), submittedList);
         }
-        int num = list.size();
-        for (int i = 0; i < num; i++) {
-            //at the beginning
-            Job job = list.get(i);
-            //Dont use job.isFinished() it is not right
-            if (!hasJobListContainsID(this.getJobsReceivedList(), job.getCloudletId())) {
-                List<Job> parentList = job.getParentList();
-                boolean flag = true;
-                for (Job parent : parentList) {
-                    if (!hasJobListContainsID(this.getJobsReceivedList(), parent.getCloudletId())) {
-                        flag = false;
-                        break;
-                    }
-                }
-                /**
-                 * This job's parents have all completed successfully. Should
-                 * submit.
-                 */
-                if (flag) {
-                    List submittedList = allocationList.get(job.getUserId());
-                    submittedList.add(job);
-                    jobsSubmitted++;
-                    getJobsSubmittedList().add(job);
-                    list.remove(job);
-                    i--;
-                    num--;
-                }
-            }
-
+        /**
+         * These jobs' parents have all completed successfully. Should submit.
+         */
+        List<Job> readyList = releaseIndex.pollReady();
+        for (Job job : readyList) {
+            List submittedList = allocationList.get(job.getUserId());
+            submittedList.add(job);
+            jobsSubmitted++;
+            getJobsSubmittedList().add(job);
+        }
+        if (!readyList.isEmpty()) {
+            jobsListDirty = true;
         }
         /**
          * If we have multiple schedulers. Divide them equally.
@@ -376,6 +369,11 @@ public final class WorkflowEngine extends SimEntity {
      */
     @SuppressWarnings("unchecked")
     public <T extends Cloudlet> List<T> getJobsList() {
+        if (jobsListDirty) {
+            // released jobs are removed lazily
+            jobsList.removeIf(job -> !releaseIndex.isPending((Job) job));
+            jobsListDirty = false;
+        }
         return (List<T>) jobsList;
     }
 
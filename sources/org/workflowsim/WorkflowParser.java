@@ -22,6 +22,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.xml.stream.XMLStreamException;
 import org.cloudbus.cloudsim.Log;
 import org.jdom2.Document;
 import org.jdom2.Element;
@@ -29,10 +34,15 @@ import org.jdom2.JDOMException;
 import org.jdom2.input.SAXBuilder;
 import org.workflowsim.utils.Parameters;
 import org.workflowsim.utils.Parameters.FileType;
+import org.workflowsim.utils.Parameters.ParserMode;
 import org.workflowsim.utils.ReplicaCatalog;
 
 /**
- * WorkflowParser parse a DAX into tasks so that WorkflowSim can manage them
+ * WorkflowParser parse a DAX into tasks so that WorkflowSim can manage them.
+ * By default a DAX file is read in one pass with StAX (see
+ * Parameters.ParserMode) and a list of DAX files is read by several threads.
+ * The tasks are always created by the calling thread in the order of the
+ * files, so that task ids do not depend on the number of threads.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
@@ -123,8 +133,13 @@ public final class WorkflowParser {
         if (this.daxPath != null) {
             parseXmlFile(this.daxPath);
         } else if (this.daxPaths != null) {
-            for (String path : this.daxPaths) {
-                parseXmlFile(path);
+            int threads = Math.min(Parameters.getParserThreads(), this.daxPaths.size());
+            if (Parameters.getParserMode() == ParserMode.STREAM && threads > 1) {
+                parseXmlFiles(threads);
+            } else {
+                for (String path : this.daxPaths) {
+                    parseXmlFile(path);
+                }
             }
         }
     }
@@ -145,188 +160,521 @@ public final class WorkflowParser {
     }
 
     /**
-     * Parse a DAX file with jdom
+     * Parse a DAX file. If a cache directory is set, the DAX file is only
+     * parsed if the cache has no entry for its content.
      */
     private void parseXmlFile(String path) {
+        try {
+            DaxCache cache = getCache();
+            String key = null;
+            if (cache != null) {
+                key = cache.getKey(path);
+                CompactWorkflow workflow = cache.get(key);
+                if (workflow != null) {
+                    addWorkflow(workflow);
+                    return;
+                }
+            }
+            TaskBuilder builder = new TaskBuilder(cache != null);
+            if (Parameters.getParserMode() == ParserMode.DOM) {
+                readDocument(path, builder);
+            } else {
+                DaxStreamReader.read(path, builder);
+            }
+            builder.finish();
+            if (cache != null) {
+                store(cache, key, builder.getWorkflow());
+            }
+        } catch (Exception e) {
+            handleException(e);
+        }
+    }
 
+    /**
+     * Parse the DAX files with a pool of threads. Each thread looks up a DAX
+     * file in the cache or reads it into a DaxRecording, the results are then
+     * turned into tasks by this thread in the order of the files.
+     *
+     * @param threads the number of threads
+     */
+    private void parseXmlFiles(int threads) {
+        final DaxCache cache = getCache();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
         try {
+            List<Future<ParsedDax>> results = new ArrayList<>();
+            for (final String path : this.daxPaths) {
+                results.add(pool.submit(() -> read(path, cache)));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                ParsedDax parsed = results.get(i).get();
+                //Release the result once it is used
+                results.set(i, null);
+                if (parsed.workflow != null) {
+                    if (this.mName2Task.isEmpty()) {
+                        addWorkflow(parsed.workflow);
+                    } else {
+                        parseXmlFile(this.daxPaths.get(i));
+                    }
+                    continue;
+                }
+                try {
+                    TaskBuilder builder = new TaskBuilder(parsed.key != null && this.mName2Task.isEmpty());
+                    parsed.recording.replay(builder);
+                    builder.finish();
+                    if (builder.getWorkflow() != null) {
+                        store(cache, parsed.key, builder.getWorkflow());
+                    }
+                } catch (Exception e) {
+                    handleException(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.printLine("Parsing interrupted");
+        } catch (ExecutionException e) {
+            handleException(e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-            SAXBuilder builder = new SAXBuilder();
-            //parse using builder to get DOM representation of the XML file
-            Document dom = builder.build(new File(path));
-            Element root = dom.getRootElement();
-            List<Element> list = root.getChildren();
-            for (Element node : list) {
-                switch (node.getName().toLowerCase()) {
-                    case "job":
-                        long length = 0;
-                        String nodeName = node.getAttributeValue("id");
-                        String nodeType = node.getAttributeValue("name");
-                        /**
-                         * capture runtime. If not exist, by default the runtime
-                         * is 0.1. Otherwise CloudSim would ignore this task.
-                         * BUG/#11
-                         */
-                        double runtime;
-                        if (node.getAttributeValue("runtime") != null) {
-                            String nodeTime = node.getAttributeValue("runtime");
-                            runtime = 1000 * Double.parseDouble(nodeTime);
-                            if (runtime < 100) {
-                                runtime = 100;
-                            }
-                            length = (long) runtime;
-                        } else {
-                            Log.printLine("Cannot find runtime for " + nodeName + ",set it to be 0");
-                        }   //multiple the scale, by default it is 1.0
-                        length *= Parameters.getRuntimeScale();
-                        List<Element> fileList = node.getChildren();
-                        List<FileItem> mFileList = new ArrayList<>();
-                        for (Element file : fileList) {
-                            if (file.getName().toLowerCase().equals("uses")) {
-                                String fileName = file.getAttributeValue("name");//DAX version 3.3
-                                if (fileName == null) {
-                                    fileName = file.getAttributeValue("file");//DAX version 3.0
-                                }
-                                if (fileName == null) {
-                                    Log.print("Error in parsing xml");
-                                }
-
-                                String inout = file.getAttributeValue("link");
-                                double size = 0.0;
-
-                                String fileSize = file.getAttributeValue("size");
-                                if (fileSize != null) {
-                                    size = Double.parseDouble(fileSize) /*/ 1024*/;
-                                } else {
-                                    Log.printLine("File Size not found for " + fileName);
-                                }
-
-                                /**
-                                 * a bug of cloudsim, size 0 causes a problem. 1
-                                 * is ok.
-                                 */
-                                if (size == 0) {
-                                    size++;
-                                }
-                                /**
-                                 * Sets the file type 1 is input 2 is output
-                                 */
-                                FileType type = FileType.NONE;
-                                switch (inout) {
-                                    case "input":
-                                        type = FileType.INPUT;
-                                        break;
-                                    case "output":
-                                        type = FileType.OUTPUT;
-                                        break;
-                                    default:
-                                        Log.printLine("Parsing Error");
-                                        break;
-                                }
-                                FileItem tFile;
-                                /*
-                                 * Already exists an input file (forget output file)
-                                 */
-                                if (size < 0) {
-                                    /*
-                                     * Assuming it is a parsing error
-                                     */
-                                    size = 0 - size;
-                                    Log.printLine("Size is negative, I assume it is a parser error");
-                                }
-                                /*
-                                 * Note that CloudSim use size as MB, in this case we use it as Byte
-                                 */
-                                if (type == FileType.OUTPUT) {
-                                    /**
-                                     * It is good that CloudSim does tell
-                                     * whether a size is zero
-                                     */
-                                    tFile = new FileItem(fileName, size);
-                                } else if (ReplicaCatalog.containsFile(fileName)) {
-                                    tFile = ReplicaCatalog.getFile(fileName);
-                                } else {
-
-                                    tFile = new FileItem(fileName, size);
-                                    ReplicaCatalog.setFile(fileName, tFile);
-                                }
-
-                                tFile.setType(type);
-                                mFileList.add(tFile);
+    /**
+     * A DAX file read by a thread of the pool
+     */
+    private static class ParsedDax {
 
+        /**
+         * The cache key, null if not cached
+         */
+        private String key;
+        /**
+         * The workflow found in the cache
+         */
+        private CompactWorkflow workflow;
+        /**
+         * The elements read if the workflow is not in the cache
+         */
+        private DaxRecording recording;
+    }
+
+    /**
+     * Looks up a DAX file in the cache or reads it into a recording
+     *
+     * @param path the path to the DAX file
+     * @param cache the cache, null if none
+     * @return the result, including the exception that stopped the reading
+     */
+    private static ParsedDax read(String path, DaxCache cache) {
+        ParsedDax parsed = new ParsedDax();
+        parsed.recording = new DaxRecording();
+        try {
+            if (cache != null) {
+                parsed.key = cache.getKey(path);
+                parsed.workflow = cache.get(parsed.key);
+            }
+            if (parsed.workflow == null) {
+                DaxStreamReader.read(path, parsed.recording);
+            } else {
+                parsed.recording = null;
+            }
+        } catch (Exception e) {
+            parsed.recording.setFailure(e);
+        }
+        return parsed;
+    }
+
+    /**
+     * Gets the cache of parsed DAX files. The cache is not used while names
+     * of a DAX file that failed to parse are still known, since the tasks of
+     * the next DAX file may refer to them.
+     *
+     * @return the cache or null if it should not be used
+     */
+    private DaxCache getCache() {
+        String cachePath = Parameters.getDaxCachePath();
+        if (cachePath == null || !this.mName2Task.isEmpty()) {
+            return null;
+        }
+        return new DaxCache(cachePath);
+    }
+
+    /**
+     * Stores a parsed DAX file in the cache. Failing to do so is not an
+     * error, the DAX file will just be parsed again.
+     *
+     * @param cache the cache
+     * @param key the key of the DAX file
+     * @param workflow the parsed DAX file
+     */
+    private static void store(DaxCache cache, String key, CompactWorkflow workflow) {
+        try {
+            cache.put(key, workflow);
+        } catch (IOException e) {
+            Log.printLine("Cannot write the parsed DAX file to the cache: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds the tasks of a parsed DAX file, exactly as parsing it again would
+     *
+     * @param workflow the parsed DAX file
+     */
+    private void addWorkflow(CompactWorkflow workflow) {
+        for (int i = 0; i < workflow.getMessageNum(); i++) {
+            if (workflow.isMessageLine(i)) {
+                Log.printLine(workflow.getMessage(i));
+            } else {
+                Log.print(workflow.getMessage(i));
+            }
+        }
+        double runtimeScale = Parameters.getRuntimeScale();
+        Task[] tasks = new Task[workflow.getTaskNum()];
+        for (int i = 0; i < tasks.length; i++) {
+            List<FileItem> mFileList = new ArrayList<>();
+            for (int f = workflow.getFileStart(i); f < workflow.getFileStart(i + 1); f++) {
+                mFileList.add(newFile(workflow.getFileName(f), workflow.getFileSize(f),
+                        workflow.getFileType(f)));
+            }
+            long length = workflow.getTaskLength(i);
+            length *= runtimeScale;
+            tasks[i] = newTask(workflow.getTaskName(i), workflow.getTaskType(i), length, mFileList);
+        }
+        for (int c = 0; c < workflow.getChildNum(); c++) {
+            Task childTask = tasks[workflow.getChild(c)];
+            for (int p = workflow.getParentStart(c); p < workflow.getParentStart(c + 1); p++) {
+                Task parentTask = tasks[workflow.getParent(p)];
+                parentTask.addChild(childTask);
+                childTask.addParent(parentTask);
+            }
+        }
+        setDepths();
+    }
+
+    /**
+     * Gets the file item of a file used by a task
+     *
+     * @param fileName the file name
+     * @param size the file size
+     * @param type the file type
+     * @return the file item
+     */
+    private FileItem newFile(String fileName, double size, FileType type) {
+        FileItem tFile;
+        /*
+         * Note that CloudSim use size as MB, in this case we use it as Byte
+         */
+        if (type == FileType.OUTPUT) {
+            /**
+             * It is good that CloudSim does tell whether a size is zero
+             */
+            tFile = new FileItem(fileName, size);
+        } else if (ReplicaCatalog.containsFile(fileName)) {
+            tFile = ReplicaCatalog.getFile(fileName);
+        } else {
+
+            tFile = new FileItem(fileName, size);
+            ReplicaCatalog.setFile(fileName, tFile);
+        }
+
+        tFile.setType(type);
+        ReplicaCatalog.getFileId(tFile);
+        return tFile;
+    }
+
+    /**
+     * Creates a task and adds it to the task list
+     *
+     * @param nodeName the name (DAX id)
+     * @param nodeType the type (DAX name)
+     * @param length the length
+     * @param mFileList the files
+     * @return the task
+     */
+    private Task newTask(String nodeName, String nodeType, long length, List<FileItem> mFileList) {
+        //Tasks are only created by the parsing thread, in the order of the DAX
+        //files, so ids do not depend on the number of threads.
+        Task task = new Task(this.jobIdStartsFrom, length);
+        this.jobIdStartsFrom++;
+        task.setType(nodeType);
+        task.setUserId(userId);
+        mName2Task.put(nodeName, task);
+        for (FileItem file : mFileList) {
+            task.addRequiredFile(file.getName());
+        }
+        task.setFileList(mFileList);
+        this.getTaskList().add(task);
+        return task;
+    }
+
+    /**
+     * Sets the depth of the tasks of a DAX file once it has been read
+     */
+    private void setDepths() {
+        /**
+         * If a task has no parent, then it is root task.
+         */
+        ArrayList roots = new ArrayList<>();
+        for (Task task : mName2Task.values()) {
+            task.setDepth(0);
+            if (task.getParentList().isEmpty()) {
+                roots.add(task);
+            }
+        }
+
+        /**
+         * Add depth from top to bottom.
+         */
+        for (Iterator it = roots.iterator(); it.hasNext();) {
+            Task task = (Task) it.next();
+            setDepth(task, 1);
+        }
+        /**
+         * Clean them so as to save memory. Parsing workflow may take much
+         * memory
+         */
+        this.mName2Task.clear();
+    }
+
+    /**
+     * Reads a DAX file with jdom
+     *
+     * @param path the path to the DAX file
+     * @param handler the handler of the elements
+     */
+    private static void readDocument(String path, DaxHandler handler)
+            throws JDOMException, IOException {
+        SAXBuilder builder = new SAXBuilder();
+        //parse using builder to get DOM representation of the XML file
+        Document dom = builder.build(new File(path));
+        Element root = dom.getRootElement();
+        List<Element> list = root.getChildren();
+        for (Element node : list) {
+            switch (node.getName().toLowerCase()) {
+                case "job":
+                    handler.startJob(node.getAttributeValue("id"),
+                            node.getAttributeValue("name"),
+                            node.getAttributeValue("runtime"));
+                    List<Element> fileList = node.getChildren();
+                    for (Element file : fileList) {
+                        if (file.getName().toLowerCase().equals("uses")) {
+                            String fileName = file.getAttributeValue("name");//DAX version 3.3
+                            if (fileName == null) {
+                                fileName = file.getAttributeValue("file");//DAX version 3.0
                             }
+                            handler.uses(fileName, file.getAttributeValue("link"),
+                                    file.getAttributeValue("size"));
                         }
-                        Task task;
-                        //In case of multiple workflow submission. Make sure the jobIdStartsFrom is consistent.
-                        synchronized (this) {
-                            task = new Task(this.jobIdStartsFrom, length);
-                            this.jobIdStartsFrom++;
-                        }
-                        task.setType(nodeType);
-                        task.setUserId(userId);
-                        mName2Task.put(nodeName, task);
-                        for (FileItem file : mFileList) {
-                            task.addRequiredFile(file.getName());
-                        }
-                        task.setFileList(mFileList);
-                        this.getTaskList().add(task);
-
-                        /**
-                         * Add dependencies info.
-                         */
-                        break;
-                    case "child":
-                        List<Element> pList = node.getChildren();
-                        String childName = node.getAttributeValue("ref");
-                        if (mName2Task.containsKey(childName)) {
-
-                            Task childTask = (Task) mName2Task.get(childName);
-
-                            for (Element parent : pList) {
-                                String parentName = parent.getAttributeValue("ref");
-                                if (mName2Task.containsKey(parentName)) {
-                                    Task parentTask = (Task) mName2Task.get(parentName);
-                                    parentTask.addChild(childTask);
-                                    childTask.addParent(parentTask);
-                                }
-                            }
-                        }
-                        break;
-                }
+                    }
+                    handler.endJob();
+                    break;
+                case "child":
+                    List<Element> pList = node.getChildren();
+                    handler.child(node.getAttributeValue("ref"));
+                    for (Element parent : pList) {
+                        handler.parent(parent.getAttributeValue("ref"));
+                    }
+                    break;
             }
+        }
+    }
+
+    /**
+     * Reports an exception thrown while parsing a DAX file
+     *
+     * @param e the exception
+     */
+    private static void handleException(Exception e) {
+        if (e instanceof JDOMException) {
+            Log.printLine("JDOM Exception;Please make sure your dax file is valid");
+        } else if (e instanceof XMLStreamException) {
+            Log.printLine("XML Exception;Please make sure your dax file is valid");
+        } else if (e instanceof IOException) {
+            Log.printLine("IO Exception;Please make sure dax.path is correctly set in your config file");
+        } else {
+            e.printStackTrace();
+            Log.printLine("Parsing Exception");
+        }
+    }
+
+    /**
+     * TaskBuilder turns the elements of one DAX file into tasks
+     */
+    private final class TaskBuilder implements DaxHandler {
+
+        /**
+         * The runtime scale
+         */
+        private final double runtimeScale = Parameters.getRuntimeScale();
+        /**
+         * The id of the first task of the DAX file
+         */
+        private final int firstId = jobIdStartsFrom;
+        /**
+         * The DAX file in compact form, null if not needed
+         */
+        private final CompactWorkflow.Builder compact;
+        /**
+         * The id of the current job
+         */
+        private String nodeName;
+        /**
+         * The name of the current job
+         */
+        private String nodeType;
+        /**
+         * The length of the current job, before the runtime scale
+         */
+        private long length;
+        /**
+         * The files of the current job
+         */
+        private List<FileItem> mFileList;
+        /**
+         * The task of the current child element, null if unknown
+         */
+        private Task childTask;
+
+        /**
+         * Initialize a TaskBuilder
+         *
+         * @param compact whether to build the DAX file in compact form
+         */
+        TaskBuilder(boolean compact) {
+            this.compact = compact ? new CompactWorkflow.Builder() : null;
+        }
+
+        @Override
+        public void startJob(String id, String name, String nodeTime) {
+            length = 0;
+            nodeName = id;
+            nodeType = name;
             /**
-             * If a task has no parent, then it is root task.
+             * capture runtime. If not exist, by default the runtime is 0.1.
+             * Otherwise CloudSim would ignore this task. BUG/#11
              */
-            ArrayList roots = new ArrayList<>();
-            for (Task task : mName2Task.values()) {
-                task.setDepth(0);
-                if (task.getParentList().isEmpty()) {
-                    roots.add(task);
+            double runtime;
+            if (nodeTime != null) {
+                runtime = 1000 * Double.parseDouble(nodeTime);
+                if (runtime < 100) {
+                    runtime = 100;
                 }
+                length = (long) runtime;
+            } else {
+                printLine("Cannot find runtime for " + nodeName + ",set it to be 0");
+            }
+            mFileList = new ArrayList<>();
+        }
+
+        @Override
+        public void uses(String fileName, String inout, String fileSize) {
+            if (fileName == null) {
+                print("Error in parsing xml");
+            }
+
+            double size = 0.0;
+
+            if (fileSize != null) {
+                size = Double.parseDouble(fileSize) /*/ 1024*/;
+            } else {
+                printLine("File Size not found for " + fileName);
             }
 
             /**
-             * Add depth from top to bottom.
+             * a bug of cloudsim, size 0 causes a problem. 1 is ok.
              */
-            for (Iterator it = roots.iterator(); it.hasNext();) {
-                Task task = (Task) it.next();
-                setDepth(task, 1);
+            if (size == 0) {
+                size++;
             }
             /**
-             * Clean them so as to save memory. Parsing workflow may take much
-             * memory
+             * Sets the file type 1 is input 2 is output
              */
-            this.mName2Task.clear();
+            FileType type = FileType.NONE;
+            switch (inout) {
+                case "input":
+                    type = FileType.INPUT;
+                    break;
+                case "output":
+                    type = FileType.OUTPUT;
+                    break;
+                default:
+                    printLine("Parsing Error");
+                    break;
+            }
+            /*
+             * Already exists an input file (forget output file)
+             */
+            if (size < 0) {
+                /*
+                 * Assuming it is a parsing error
+                 */
+                size = 0 - size;
+                printLine("Size is negative, I assume it is a parser error");
+            }
+            if (compact != null) {
+                compact.addFile(fileName, size, type);
+            }
+            mFileList.add(newFile(fileName, size, type));
+        }
 
-        } catch (JDOMException jde) {
-            Log.printLine("JDOM Exception;Please make sure your dax file is valid");
+        @Override
+        public void endJob() {
+            if (compact != null) {
+                compact.addTask(nodeName, nodeType, length);
+            }
+            //multiple the scale, by default it is 1.0
+            long scaledLength = length;
+            scaledLength *= runtimeScale;
+            newTask(nodeName, nodeType, scaledLength, mFileList);
+        }
 
-        } catch (IOException ioe) {
-            Log.printLine("IO Exception;Please make sure dax.path is correctly set in your config file");
+        @Override
+        public void child(String childName) {
+            childTask = mName2Task.get(childName);
+            if (compact != null && childTask != null) {
+                compact.addChild(childTask.getCloudletId() - firstId);
+            }
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            Log.printLine("Parsing Exception");
+        @Override
+        public void parent(String parentName) {
+            if (childTask != null && mName2Task.containsKey(parentName)) {
+                Task parentTask = (Task) mName2Task.get(parentName);
+                parentTask.addChild(childTask);
+                childTask.addParent(parentTask);
+                if (compact != null) {
+                    compact.addParent(parentTask.getCloudletId() - firstId);
+                }
+            }
+        }
+
+        /**
+         * Sets the depth of the tasks once the DAX file has been read
+         */
+        public void finish() {
+            setDepths();
+        }
+
+        /**
+         * Gets the DAX file in compact form
+         *
+         * @return the workflow or null if not built
+         */
+        public CompactWorkflow getWorkflow() {
+            return compact == null ? null : compact.build();
+        }
+
+        private void print(String message) {
+            Log.print(message);
+            if (compact != null) {
+                compact.addMessage(message, false);
+            }
+        }
+
+        private void printLine(String message) {
+            Log.printLine(message);
+            if (compact != null) {
+                compact.addMessage(message, true);
+            }
         }
     }
 }
@@ -15,8 +15,11 @@
  */
 package org.workflowsim;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterBroker;
 import org.cloudbus.cloudsim.Log;
@@ -28,6 +31,7 @@ import org.workflowsim.failure.FailureGenerator;
 import org.workflowsim.scheduling.DataAwareSchedulingAlgorithm;
 import org.workflowsim.scheduling.BaseSchedulingAlgorithm;
 import org.workflowsim.scheduling.FCFSSchedulingAlgorithm;
+import org.workflowsim.scheduling.LengthOrderedSchedulingAlgorithm;
 import org.workflowsim.scheduling.MCTSchedulingAlgorithm;
 import org.workflowsim.scheduling.MaxMinSchedulingAlgorithm;
 import org.workflowsim.scheduling.MinMinSchedulingAlgorithm;
@@ -52,6 +56,12 @@ public class WorkflowScheduler extends DatacenterBroker {
      */
     private int workflowEngineId;
 
+    /**
+     * The scheduler kept across updates, for algorithms that keep their own
+     * job queue (LengthOrderedSchedulingAlgorithm).
+     */
+    private BaseSchedulingAlgorithm persistentScheduler;
+
     /**
      * Created a new WorkflowScheduler object.
      *
@@ -237,7 +247,13 @@ public class WorkflowScheduler extends DatacenterBroker {
      */
     protected void processCloudletUpdate(SimEvent ev) {
 
-        BaseSchedulingAlgorithm scheduler = getScheduler(Parameters.getSchedulingAlgorithm());
+        BaseSchedulingAlgorithm scheduler = this.persistentScheduler;
+        if (scheduler == null) {
+            scheduler = getScheduler(Parameters.getSchedulingAlgorithm());
+            if (scheduler instanceof LengthOrderedSchedulingAlgorithm) {
+                this.persistentScheduler = scheduler;
+            }
+        }
         scheduler.setCloudletList(getCloudletList());
         scheduler.setVmList(getVmsCreatedList());
 
@@ -257,7 +273,9 @@ public class WorkflowScheduler extends DatacenterBroker {
             }
             schedule(getVmsToDatacentersMap().get(vmId), delay, CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
         }
-        getCloudletList().removeAll(scheduledList);
+        Set<Cloudlet> scheduledSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        scheduledSet.addAll(scheduledList);
+        getCloudletList().removeIf(scheduledSet::contains);
         getCloudletSubmittedList().addAll(scheduledList);
         cloudletsSubmitted += scheduledList.size();
     }
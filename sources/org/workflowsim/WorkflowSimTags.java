@@ -44,6 +44,10 @@ public class WorkflowSimTags {
     public static final int JOB_SUBMIT = BASE + 1;
     public static final int CLOUDLET_UPDATE = BASE + 5;
     public static final int CLOUDLET_CHECK = BASE + 6;
+    /**
+     * A file transfer on the hybrid storage may have finished
+     */
+    public static final int FILE_TRANSFER_UPDATE = BASE + 7;
 
     /**
      * Private Constructor
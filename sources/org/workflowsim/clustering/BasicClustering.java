@@ -16,9 +16,13 @@
 package org.workflowsim.clustering;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.workflowsim.FileItem;
 import org.workflowsim.Job;
 import org.workflowsim.Task;
@@ -51,6 +55,10 @@ public class BasicClustering implements ClusteringInterface {
      * All the files.
      */
     private final List<FileItem> allFileList;
+    /**
+     * The files in allFileList, to find them without walking the list.
+     */
+    private final Set<FileItem> allFileSet;
     /**
      * The root task.
      */
@@ -78,6 +86,7 @@ public class BasicClustering implements ClusteringInterface {
         this.taskList = new ArrayList<>();
         this.mTask2Job = new HashMap<>();
         this.allFileList = new ArrayList<>();
+        this.allFileSet = new HashSet<>();
         this.idIndex = 0;
         this.root = null;
     }
@@ -161,56 +170,111 @@ public class BasicClustering implements ClusteringInterface {
      */
     protected final Job addTasks2Job(List<Task> taskList) {
         if (taskList != null && !taskList.isEmpty()) {
-            int length = 0;
+            Job job = buildJob(taskList, idIndex);
+            registerJob(job);
+            return job;
+        }
+
+        return null;
+    }
+
+    /**
+     * Add each list of tasks to a new job. The jobs are built concurrently
+     * (see ParallelClustering) and then added in the order of the lists, so
+     * they are the same as with addTasks2Job(List) called on each list.
+     *
+     * @param groups the task lists
+     */
+    protected final void addTaskGroups2Jobs(List<List<Task>> groups) {
+        final int first = idIndex;
+        final List<List<Task>> nonEmpty = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        for (List<Task> group : groups) {
+            if (group != null && !group.isEmpty()) {
+                ids.add(first + nonEmpty.size());
+                nonEmpty.add(group);
+            }
+        }
+        List<Job> jobs = ParallelClustering.map(ids, id -> buildJob(nonEmpty.get(id - first), id));
+        for (Job job : jobs) {
+            registerJob(job);
+        }
+    }
 
-            int userId = 0;
-            int priority = 0;
-            int depth = 0;
-            /// a bug of cloudsim makes it final of input file size and output file size
-            Job job = new Job(idIndex, length/*, inputFileSize, outputFileSize*/);
-            job.setClassType(ClassType.COMPUTE.value);
-            for (Task task : taskList) {
-                length += task.getCloudletLength();
+    /**
+     * Builds the job of a list of tasks. It only reads the tasks, so jobs can
+     * be built at the same time
+     *
+     * @param taskList the task list
+     * @param id the id of the job
+     * @return the job
+     */
+    private static Job buildJob(List<Task> taskList, int id) {
+        int length = 0;
+
+        int userId = 0;
+        int priority = 0;
+        int depth = 0;
+        /// a bug of cloudsim makes it final of input file size and output file size
+        Job job = new Job(id, length/*, inputFileSize, outputFileSize*/);
+        job.setClassType(ClassType.COMPUTE.value);
+        /**
+         * The files and the required files of the job, the lists keep their
+         * order and the sets avoid duplicates.
+         */
+        Set<FileItem> jobFiles = new HashSet<>(job.getFileList());
+        Set<String> requiredFiles = new HashSet<>(job.getRequiredFiles());
+        for (Task task : taskList) {
+            length += task.getCloudletLength();
 
-                userId = task.getUserId();
-                priority = task.getPriority();
-                depth = task.getDepth();
-                List<FileItem> fileList = task.getFileList();
-                job.getTaskList().add(task);
+            userId = task.getUserId();
+            priority = task.getPriority();
+            depth = task.getDepth();
+            job.getTaskList().add(task);
 
-                getTask2Job().put(task, job);
-                for (FileItem file : fileList) {
-                    boolean hasFile = job.getFileList().contains(file);
-                    if (!hasFile) {
-                        job.getFileList().add(file);
-                        if (file.getType() == FileType.INPUT) {
-                            //for stag-in jobs to be used
-                            if (!this.allFileList.contains(file)) {
-                                this.allFileList.add(file);
-                            }
-                        } else if (file.getType() == FileType.OUTPUT) {
-                            this.allFileList.add(file);
-                        }
-                    }
+            for (FileItem file : task.getFileList()) {
+                if (jobFiles.add(file)) {
+                    job.addFile(file);
                 }
-                for (String fileName : task.getRequiredFiles()) {
-                    if (!job.getRequiredFiles().contains(fileName)) {
-                        job.getRequiredFiles().add(fileName);
-                    }
+            }
+            for (String fileName : task.getRequiredFiles()) {
+                if (requiredFiles.add(fileName)) {
+                    job.getRequiredFiles().add(fileName);
                 }
             }
+        }
 
-            job.setCloudletLength(length);
-            job.setUserId(userId);
-            job.setDepth(depth);
-            job.setPriority(priority);
+        job.setCloudletLength(length);
+        job.setUserId(userId);
+        job.setDepth(depth);
+        job.setPriority(priority);
+        return job;
+    }
 
-            idIndex++;
-            getJobList().add(job);
-            return job;
+    /**
+     * Adds a job built by buildJob to the job list, maps its tasks to it and
+     * adds its files to the task files
+     *
+     * @param job the job
+     */
+    private void registerJob(Job job) {
+        for (Task task : job.getTaskList()) {
+            getTask2Job().put(task, job);
+        }
+        for (FileItem file : job.getFileList()) {
+            if (file.getType() == FileType.INPUT) {
+                //for stag-in jobs to be used
+                if (this.allFileSet.add(file)) {
+                    this.allFileList.add(file);
+                }
+            } else if (file.getType() == FileType.OUTPUT) {
+                this.allFileSet.add(file);
+                this.allFileList.add(file);
+            }
         }
 
-        return null;
+        idIndex++;
+        getJobList().add(job);
     }
 
     /**
@@ -232,17 +296,25 @@ public class BasicClustering implements ClusteringInterface {
      * Update the dependency issues between tasks/jobs
      */
     protected final void updateDependencies() {
+        /**
+         * The parents and the children of each job, to avoid duplicates
+         * without walking their lists.
+         */
+        Map<Job, Set<Task>> parentSets = new IdentityHashMap<>();
+        Map<Job, Set<Task>> childSets = new IdentityHashMap<>();
         for (Task task : getTaskList()) {
             Job job = (Job) getTask2Job().get(task);
+            Set<Task> parents = getIdentitySet(parentSets, job, job.getParentList());
+            Set<Task> children = getIdentitySet(childSets, job, job.getChildList());
             for (Task parentTask : task.getParentList()) {
                 Job parentJob = (Job) getTask2Job().get(parentTask);
-                if (!job.getParentList().contains(parentJob) && parentJob != job) {//avoid dublicate
+                if (parentJob != job && parents.add(parentJob)) {//avoid dublicate
                     job.addParent(parentJob);
                 }
             }
             for (Task childTask : task.getChildList()) {
                 Job childJob = (Job) getTask2Job().get(childTask);
-                if (!job.getChildList().contains(childJob) && childJob != job) {//avoid dublicate
+                if (childJob != job && children.add(childJob)) {//avoid dublicate
                     job.addChild(childJob);
                 }
             }
@@ -250,6 +322,27 @@ public class BasicClustering implements ClusteringInterface {
         getTask2Job().clear();
         getTaskList().clear();
     }
+    /**
+     * Gets the identity set of a job, filled with a list the first time
+     *
+     * @param sets the sets of the jobs
+     * @param job the job
+     * @param list the tasks already in the set, the parent list of a job is
+     * untyped
+     * @return the set
+     */
+    private static Set<Task> getIdentitySet(Map<Job, Set<Task>> sets, Job job, List<?> list) {
+        Set<Task> set = sets.get(job);
+        if (set == null) {
+            set = Collections.newSetFromMap(new IdentityHashMap<Task, Boolean>());
+            for (Object task : list) {
+                set.add((Task) task);
+            }
+            sets.put(job, set);
+        }
+        return set;
+    }
+
     /*
      * Add a fake root task
      * If you have used addRoot, please use clean() after that
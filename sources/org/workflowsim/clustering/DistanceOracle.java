@@ -0,0 +1,211 @@
+/*
+ * 
+ *   Copyright 2012-2013 University Of Southern California
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing,
+ *   software distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ */
+package org.workflowsim.clustering;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DistanceOracle answers the distance between two taskSets, that is twice the
+ * number of steps after which their descendants first meet. For each taskSet
+ * it keeps the descendants reached in exactly 1, 2, ... steps as sorted arrays
+ * of ids, computed once from the ones of its children and shared with them.
+ * When two taskSets are merged only the taskSets that reached one of them are
+ * computed again.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public class DistanceOracle {
+
+    private static final int[] EMPTY = new int[0];
+    /**
+     * the ids of the taskSets.
+     */
+    private final Map<TaskSet, Integer> ids;
+    /**
+     * the descendants of a taskSet, the first one is the taskSet itself.
+     */
+    private final Map<TaskSet, List<int[]>> frontiers;
+    /**
+     * the taskSets whose descendants were computed from a taskSet.
+     */
+    private final Map<TaskSet, Set<TaskSet>> dependents;
+
+    /**
+     * Initialize a DistanceOracle object
+     */
+    public DistanceOracle() {
+        this.ids = new IdentityHashMap<>();
+        this.frontiers = new IdentityHashMap<>();
+        this.dependents = new IdentityHashMap<>();
+    }
+
+    /**
+     * Gets the distance between two taskSets. Their descendants are compared
+     * step by step: if they share one after k + 1 steps the distance is 2k, and
+     * if either of them runs out of descendants after k steps it is 2k.
+     *
+     * @param taskA a taskSet
+     * @param taskB the other taskSet
+     * @return the distance
+     */
+    public int getDistance(TaskSet taskA, TaskSet taskB) {
+        if (taskA == null || taskB == null || taskA == taskB) {
+            return 0;
+        }
+        for (int step = 1;; step++) {
+            int[] listA = getFrontier(taskA, step);
+            int[] listB = getFrontier(taskB, step);
+            if (intersects(listA, listB)) {
+                return (step - 1) * 2;
+            }
+            if (listA.length == 0 || listB.length == 0) {
+                return step * 2;
+            }
+        }
+    }
+
+    /**
+     * Updates the oracle after tail has been merged into head.
+     *
+     * @param tail the taskSet merged
+     * @param head the taskSet that received the tasks of tail
+     */
+    public void merge(TaskSet tail, TaskSet head) {
+        Deque<TaskSet> queue = new ArrayDeque<>();
+        Set<TaskSet> visited = Collections.newSetFromMap(new IdentityHashMap<TaskSet, Boolean>());
+        queue.add(tail);
+        queue.add(head);
+        visited.add(tail);
+        visited.add(head);
+        while (!queue.isEmpty()) {
+            TaskSet set = queue.poll();
+            frontiers.remove(set);
+            Set<TaskSet> users = dependents.remove(set);
+            if (users == null) {
+                continue;
+            }
+            for (TaskSet user : users) {
+                if (visited.add(user)) {
+                    queue.add(user);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the descendants of a taskSet reached in a given number of steps.
+     *
+     * @param set the taskSet
+     * @param step the number of steps
+     * @return the sorted ids of the descendants
+     */
+    private int[] getFrontier(TaskSet set, int step) {
+        List<int[]> list = frontiers.get(set);
+        if (list == null) {
+            list = new ArrayList<>();
+            list.add(new int[]{getId(set)});
+            frontiers.put(set, list);
+            for (TaskSet child : set.getChildList()) {
+                Set<TaskSet> users = dependents.get(child);
+                if (users == null) {
+                    users = Collections.newSetFromMap(new IdentityHashMap<TaskSet, Boolean>());
+                    dependents.put(child, users);
+                }
+                users.add(set);
+            }
+        }
+        while (list.size() <= step) {
+            int next = list.size();
+            if (list.get(next - 1).length == 0) {
+                list.add(EMPTY);
+                continue;
+            }
+            List<TaskSet> children = set.getChildList();
+            if (children.size() == 1) {
+                list.add(getFrontier(children.get(0), next - 1));
+                continue;
+            }
+            int length = 0;
+            int[][] parts = new int[children.size()][];
+            for (int i = 0; i < parts.length; i++) {
+                parts[i] = getFrontier(children.get(i), next - 1);
+                length += parts[i].length;
+            }
+            int[] union = new int[length];
+            length = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, union, length, part.length);
+                length += part.length;
+            }
+            Arrays.sort(union);
+            int size = 0;
+            for (int i = 0; i < union.length; i++) {
+                if (size == 0 || union[size - 1] != union[i]) {
+                    union[size++] = union[i];
+                }
+            }
+            list.add(size == union.length ? union : Arrays.copyOf(union, size));
+        }
+        return list.get(step);
+    }
+
+    /**
+     * Gets the id of a taskSet
+     *
+     * @param set the taskSet
+     * @return its id
+     */
+    private int getId(TaskSet set) {
+        Integer id = ids.get(set);
+        if (id == null) {
+            id = ids.size();
+            ids.put(set, id);
+        }
+        return id;
+    }
+
+    /**
+     * Checks whether two sorted arrays share an element
+     *
+     * @param a a sorted array
+     * @param b the other sorted array
+     * @return true if they share an element
+     */
+    private static boolean intersects(int[] a, int[] b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                return true;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return false;
+    }
+}
@@ -18,10 +18,12 @@ package org.workflowsim.clustering;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
 import org.workflowsim.Job;
 import org.workflowsim.Task;
 
@@ -45,7 +47,7 @@ public class HorizontalClustering extends BasicClustering {
     /**
      * The map from depth to tasks at that depth.
      */
-    private final Map<Integer, List> mDepth2Task;
+    private final Map<Integer, List<Task>> mDepth2Task;
 
     /**
      * Initialize a HorizontalClustering Either clusterNum or clusterSize should
@@ -68,14 +70,15 @@ public class HorizontalClustering extends BasicClustering {
     @Override
     public void run() {
         if (clusterNum > 0 || clusterSize > 0) {
+            Set<Task> added = new HashSet<>();
             for (Iterator it = getTaskList().iterator(); it.hasNext();) {
                 Task task = (Task) it.next();
                 int depth = task.getDepth();
                 if (!mDepth2Task.containsKey(depth)) {
                     mDepth2Task.put(depth, new ArrayList<>());
                 }
-                List list = mDepth2Task.get(depth);
-                if (!list.contains(task)) {
+                List<Task> list = mDepth2Task.get(depth);
+                if (added.add(task)) {
                     list.add(task);
                 }
 
@@ -101,83 +104,110 @@ public class HorizontalClustering extends BasicClustering {
      * Merges tasks into a fixed number of jobs.
      */
     private void bundleClustering() {
+        addLevels2Jobs(ParallelClustering.map(new ArrayList<>(mDepth2Task.values()), this::bundleLevel));
+    }
 
-        for (Map.Entry<Integer, List> pairs : mDepth2Task.entrySet()) {
-            List list = pairs.getValue();
-
-            long seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
-            seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
+    /**
+     * Merges the tasks of a level into a fixed number of task lists.
+     *
+     * @param list the tasks of the level
+     * @return the task lists
+     */
+    private List<List<Task>> bundleLevel(List<Task> list) {
+        List<List<Task>> groups = new ArrayList<>();
+
+        long seed = System.nanoTime();
+        Collections.shuffle(list, new Random(seed));
+        seed = System.nanoTime();
+        Collections.shuffle(list, new Random(seed));
+
+        int num = list.size();
+        int avg_a = num / this.clusterNum;
+        int avg_b = avg_a;
+        if (avg_a * this.clusterNum < num) {
+            avg_b++;
+        }
 
-            int num = list.size();
-            int avg_a = num / this.clusterNum;
-            int avg_b = avg_a;
-            if (avg_a * this.clusterNum < num) {
-                avg_b++;
-            }
+        int mid = num - this.clusterNum * avg_a;
+        if (avg_a <= 0) {
+            avg_a = 1;
+        }
+        if (avg_b <= 0) {
+            avg_b = 1;
+        }
+        int start = 0, end = -1;
+        for (int i = 0; i < this.clusterNum; i++) {
+            start = end + 1;
+            if (i < mid) {
+                //use avg_b
+                end = start + avg_b - 1;
+            } else {
+                //use avg_a
+                end = start + avg_a - 1;
 
-            int mid = num - this.clusterNum * avg_a;
-            if (avg_a <= 0) {
-                avg_a = 1;
             }
-            if (avg_b <= 0) {
-                avg_b = 1;
-            }
-            int start = 0, end = -1;
-            for (int i = 0; i < this.clusterNum; i++) {
-                start = end + 1;
-                if (i < mid) {
-                    //use avg_b
-                    end = start + avg_b - 1;
-                } else {
-                    //use avg_a
-                    end = start + avg_a - 1;
 
-                }
 
-
-                if (end >= num) {
-                    end = num - 1;
-                }
-                if (end < start) {
-                    break;
-                }
-                addTasks2Job(list.subList(start, end + 1));
+            if (end >= num) {
+                end = num - 1;
             }
-
-
+            if (end < start) {
+                break;
+            }
+            groups.add(list.subList(start, end + 1));
         }
+        return groups;
     }
 
     /**
      * Merges a fixed number of tasks into a job
      */
     private void collapseClustering() {
-        for (Map.Entry<Integer, List> pairs : mDepth2Task.entrySet()) {
-            List list = pairs.getValue();
-
-            long seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
-            seed = System.nanoTime();
-            Collections.shuffle(list, new Random(seed));
-
-            int num = list.size();
-            int avg = this.clusterSize;
-
-            int start = 0;
-            int end = 0;
-            int i = 0;
-            do {
-                start = i * avg;
-                end = start + avg - 1;
-                i++;
-                if (end >= num) {
-                    end = num - 1;
-                }
-                Job job = addTasks2Job(list.subList(start, end + 1));
-            } while (end < num - 1);
+        addLevels2Jobs(ParallelClustering.map(new ArrayList<>(mDepth2Task.values()), this::collapseLevel));
+    }
+
+    /**
+     * Merges the tasks of a level into task lists of a fixed size.
+     *
+     * @param list the tasks of the level
+     * @return the task lists
+     */
+    private List<List<Task>> collapseLevel(List<Task> list) {
+        List<List<Task>> groups = new ArrayList<>();
+
+        long seed = System.nanoTime();
+        Collections.shuffle(list, new Random(seed));
+        seed = System.nanoTime();
+        Collections.shuffle(list, new Random(seed));
+
+        int num = list.size();
+        int avg = this.clusterSize;
+
+        int start = 0;
+        int end = 0;
+        int i = 0;
+        do {
+            start = i * avg;
+            end = start + avg - 1;
+            i++;
+            if (end >= num) {
+                end = num - 1;
+            }
+            groups.add(list.subList(start, end + 1));
+        } while (end < num - 1);
+        return groups;
+    }
 
+    /**
+     * Adds the task lists of the levels to new jobs, level by level.
+     *
+     * @param levels the task lists of each level
+     */
+    private void addLevels2Jobs(List<List<List<Task>>> levels) {
+        List<List<Task>> groups = new ArrayList<>();
+        for (List<List<Task>> level : levels) {
+            groups.addAll(level);
         }
+        addTaskGroups2Jobs(groups);
     }
 }
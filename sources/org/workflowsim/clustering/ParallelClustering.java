@@ -0,0 +1,76 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.clustering;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.workflowsim.utils.Parameters;
+
+/**
+ * ParallelClustering applies a function to independent parts of a workflow,
+ * such as its levels or its clustered jobs, on a fork-join pool of
+ * clusteringThreads threads (see Parameters). The results are returned in the
+ * order of the parts, so that the callers can stitch them together exactly as
+ * a sequential run does. The function must not touch the simulation state,
+ * which is bound to the calling thread only.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public final class ParallelClustering {
+
+    private ParallelClustering() {
+    }
+
+    /**
+     * Applies a function to each part
+     *
+     * @param parts the parts
+     * @param function the function
+     * @return the results, in the order of the parts
+     */
+    public static <T, R> List<R> map(final List<T> parts, final Function<? super T, ? extends R> function) {
+        int threads = Math.min(Parameters.getClusteringThreads(), parts.size());
+        if (threads <= 1) {
+            List<R> results = new ArrayList<>(parts.size());
+            for (T part : parts) {
+                results.add(function.apply(part));
+            }
+            return results;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            //A parallel stream started in a pool runs on the threads of that pool
+            return pool.submit(() -> IntStream.range(0, parts.size()).parallel()
+                    .mapToObj(i -> (R) function.apply(parts.get(i)))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Clustering interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -354,12 +354,14 @@ public class BalancedClustering extends BasicClustering {
         printOut();
 
         Collection<TaskSet> sets = mTask2TaskSet.values();
+        List<List<Task>> groups = new ArrayList<>();
         for (TaskSet set : sets) {
             if (!set.hasChecked) {
                 set.hasChecked = true;
-                addTasks2Job(set.getTaskList());
+                groups.add(set.getTaskList());
             }
         }
+        addTaskGroups2Jobs(groups);
         //a good habit
         cleanTaskSetChecked();
 
@@ -20,10 +20,10 @@ package org.workflowsim.clustering.balancing.methods;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import org.workflowsim.Task;
+import org.workflowsim.clustering.DistanceOracle;
 import org.workflowsim.clustering.TaskSet;
 
 /**
@@ -36,6 +36,11 @@ import org.workflowsim.clustering.TaskSet;
  */
 public class HorizontalDistanceBalancing extends HorizontalImpactBalancing {
 
+    /**
+     * the distances between taskSets, updated as they are merged.
+     */
+    private final DistanceOracle oracle = new DistanceOracle();
+
     /**
      * Initialize a HorizontalDistanceBalancing object
      *
@@ -95,6 +100,18 @@ public class HorizontalDistanceBalancing extends HorizontalImpactBalancing {
         }
     }
 
+    /**
+     * Merges tail into head and updates the distances
+     *
+     * @param tail the taskSet merged
+     * @param head the taskSet that receives the tasks
+     */
+    @Override
+    public void addTaskSet2TaskSet(TaskSet tail, TaskSet head) {
+        super.addTaskSet2TaskSet(tail, head);
+        oracle.merge(tail, head);
+    }
+
     /**
      * Sort taskSet in an ascending order of impact factor
      *
@@ -307,47 +324,10 @@ public class HorizontalDistanceBalancing extends HorizontalImpactBalancing {
         if (taskA == null || taskB == null || taskA == taskB) {
             return 0;
         }
-        LinkedList<TaskSet> listA = new LinkedList<>();
-        LinkedList<TaskSet> listB = new LinkedList<>();
-        int distance = 0;
-        listA.add(taskA);
-        listB.add(taskB);
-
         if (taskA.getTaskList().isEmpty() || taskB.getTaskList().isEmpty()) {
             return Integer.MAX_VALUE;
         }
-        do {
-
-            LinkedList<TaskSet> copyA = (LinkedList) listA.clone();
-            listA.clear();
-            for (TaskSet set : copyA) {
-                for (TaskSet child : set.getChildList()) {
-                    if (!listA.contains(child)) {
-                        listA.add(child);
-                    }
-                }
-            }
-            LinkedList<TaskSet> copyB = (LinkedList) listB.clone();
-            listB.clear();
-            for (TaskSet set : copyB) {
-                for (TaskSet child : set.getChildList()) {
-                    if (!listB.contains(child)) {
-                        listB.add(child);
-                    }
-                }
-            }
-
-            for (TaskSet set : listA) {
-                if (listB.contains(set)) {
-                    return distance * 2;
-                }
-            }
-
-            distance++;
-
-        } while (!listA.isEmpty() && !listB.isEmpty());
-
-        return distance * 2;
+        return oracle.getDistance(taskA, taskB);
     }
 }
 /*
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import org.workflowsim.Task;
+import org.workflowsim.clustering.ParallelClustering;
 import org.workflowsim.clustering.TaskSet;
 
 /**
@@ -45,42 +46,55 @@ public class HorizontalRuntimeBalancing extends BalancingMethod {
     }
 
     /**
-     * The main function
+     * The main function. The levels are balanced concurrently (see
+     * ParallelClustering) and the task map is updated afterwards.
      */
     @Override
     public void run() {
         Map<Integer, List<TaskSet>> map = getLevelMap();
-        for (List<TaskSet> taskList : map.values()) {
-            /**The reason why we don shuffle is very complicated. */
-            long seed = System.nanoTime();
-            Collections.shuffle(taskList, new Random(seed));
-            seed = System.nanoTime();
-            Collections.shuffle(taskList, new Random(seed));
-
-            if (taskList.size() > getClusterNum()) {
-                List<TaskSet> jobList = new ArrayList<>();
-                for (int i = 0; i < getClusterNum(); i++) {
-                    jobList.add(new TaskSet());
+        List<List<TaskSet>> jobLists = ParallelClustering.map(new ArrayList<>(map.values()), this::balanceLevel);
+        for (List<TaskSet> jobList : jobLists) {
+            for (TaskSet job : jobList) {
+                //update dependency
+                for (Task task : job.getTaskList()) {
+                    getTaskMap().put(task, job);//this is enough
                 }
-                sortListDecreasing(taskList);
-                for (TaskSet set : taskList) {
-                    //MinHeap is required 
-                    sortListIncreasing(jobList);
-                    TaskSet job = (TaskSet) jobList.get(0);
-                    job.addTask(set.getTaskList());
-                    //update dependency
-                    for (Task task : set.getTaskList()) {
-                        getTaskMap().put(task, job);//this is enough
-                    }
+            }
+        }
+    }
 
-                }
+    /**
+     * Merges the taskSets of a level into clusters.num taskSets
+     * @param taskList the taskSets of the level, cleared if they are merged
+     * @return the merged taskSets, empty if the level is left as it is
+     */
+    private List<TaskSet> balanceLevel(List<TaskSet> taskList) {
+        /**The reason why we don shuffle is very complicated. */
+        long seed = System.nanoTime();
+        Collections.shuffle(taskList, new Random(seed));
+        seed = System.nanoTime();
+        Collections.shuffle(taskList, new Random(seed));
+
+        if (taskList.size() > getClusterNum()) {
+            List<TaskSet> jobList = new ArrayList<>();
+            for (int i = 0; i < getClusterNum(); i++) {
+                jobList.add(new TaskSet());
+            }
+            sortListDecreasing(taskList);
+            for (TaskSet set : taskList) {
+                //MinHeap is required 
+                sortListIncreasing(jobList);
+                TaskSet job = (TaskSet) jobList.get(0);
+                job.addTask(set.getTaskList());
 
-                taskList.clear();//you sure?
-            } else {
-                //do nothing since 
             }
 
+            taskList.clear();//you sure?
+            return jobList;
+        } else {
+            //do nothing since 
         }
+        return new ArrayList<>();
     }
     /**
      * Sort taskSets based on their runtime
@@ -17,8 +17,8 @@
  */
 package org.workflowsim.clustering.balancing.metrics;
 
-import java.util.LinkedList;
 import java.util.List;
+import org.workflowsim.clustering.DistanceOracle;
 import org.workflowsim.clustering.TaskSet;
 
 /**
@@ -44,11 +44,12 @@ public class DistanceVariance implements BalancingMetric {
         int size = list.size();
         int[] distances = new int[size * (size - 1) / 2];
         int index = 0;
+        DistanceOracle oracle = new DistanceOracle();
         for (int i = 0; i < list.size(); i++) {
             for (int j = i + 1; j < list.size(); j++) {
                 TaskSet taskA = list.get(i);
                 TaskSet taskB = list.get(j);
-                int distance = calDistance(taskA, taskB);
+                int distance = calDistance(oracle, taskA, taskB);
                 distances[index] = distance;
                 index++;
                 sum += distance;
@@ -69,52 +70,18 @@ public class DistanceVariance implements BalancingMetric {
      * one assumption here taskA and taskB are at the same level 
      * because it is horizontal clustering
      * does not work with arbitary workflows
+     * @param oracle the distances of the taskSets of the list
      * @param taskA
      * @param taskB
      * @return 
      */
-    private int calDistance(TaskSet taskA, TaskSet taskB) {
+    private int calDistance(DistanceOracle oracle, TaskSet taskA, TaskSet taskB) {
         if (taskA == null || taskB == null || taskA == taskB) {
             return 0;
         }
-        LinkedList<TaskSet> listA = new LinkedList<>();
-        LinkedList<TaskSet> listB = new LinkedList<>();
-        int distance = 0;
-        listA.add(taskA);
-        listB.add(taskB);
-
         if (taskA.getTaskList().isEmpty() || taskB.getTaskList().isEmpty()) {
             return 0;
         }
-        do {
-
-            LinkedList<TaskSet> copyA = (LinkedList) listA.clone();
-            listA.clear();
-            for (TaskSet set : copyA) {
-                for (TaskSet child : set.getChildList()) {
-                    if (!listA.contains(child)) {
-                        listA.add(child);
-                    }
-                }
-            }
-            LinkedList<TaskSet> copyB = (LinkedList) listB.clone();
-            listB.clear();
-            for (TaskSet set : copyB) {
-                for (TaskSet child : set.getChildList()) {
-                    if (!listB.contains(child)) {
-                        listB.add(child);
-                    }
-                }
-            }
-
-            for (TaskSet set : listA) {
-                if (listB.contains(set)) {
-                    return distance * 2;
-                }
-            }
-
-            distance++;
-        } while (!listA.isEmpty() && !listB.isEmpty());
-        return distance * 2;
+        return oracle.getDistance(taskA, taskB);
     }
 }
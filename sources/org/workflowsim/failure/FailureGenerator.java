@@ -118,11 +118,8 @@ public class FailureGenerator {
         double end = task.getTaskFinishTime();
         
         
-        double[] samples = generator.getCumulativeSamples();
-        
-        while (samples[samples.length - 1] < start) {
+        while (generator.getLastCumulativeSample() < start) {
             generator.extendSamples();
-            samples = generator.getCumulativeSamples();
             failureSizeExtension++;
             if (failureSizeExtension >= maxFailureSizeExtension) {
                 throw new Exception("Error rate is too high such that the simulator terminates");
@@ -130,17 +127,16 @@ public class FailureGenerator {
             }
         }
 
-        for (int sampleId = 0; sampleId < samples.length; sampleId++) {
-            if (end < samples[sampleId]) {
+        int sampleId = generator.findCumulativeSample(start);
+        if (sampleId >= 0) {
+            if (end < generator.getCumulativeSample(sampleId)) {
                 //no failure
                 return false;
             }
-            if (start <= samples[sampleId]) {
-                //has a failure
-                /** The idea is we need to update the cursor in generator**/
-                generator.getNextSample();
-                return true;
-            }
+            //has a failure
+            /** The idea is we need to update the cursor in generator**/
+            generator.getNextSample();
+            return true;
         }
 
         return false;
@@ -22,7 +22,11 @@ import java.util.Map;
 import org.cloudbus.cloudsim.Log;
 
 /**
- * FailureMonitor collects failure information
+ * FailureMonitor collects failure information. The number of failed tasks and
+ * of all tasks is summed up as the records arrive, globally, per vm and per
+ * depth, so that analyzing the failure rate does not go through the records
+ * again. With a window, only the most recent records of each vm or depth are
+ * counted. The records themselves are only kept if requested.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
@@ -50,15 +54,60 @@ public class FailureMonitor {
      * Id to a Job.
      */
     public static Map index2job;
+    /**
+     * VM ID to the failures counted. *
+     */
+    protected static Map<Integer, FailureCounter> vm2counter;
+    /**
+     * Type to the failures counted. *
+     */
+    protected static Map<Integer, FailureCounter> type2counter;
+    /**
+     * All the failures counted.
+     */
+    protected static FailureCounter counter;
+    /**
+     * The number of recent records counted, 0 for all of them.
+     */
+    protected static int windowSize;
+    /**
+     * Whether the records are kept.
+     */
+    protected static boolean keepRecords;
 
     /**
      * Initialize a FailureMonitor object.
      */
     public static void init() {
+        init(0, false);
+    }
+
+    /**
+     * Initialize a FailureMonitor object.
+     *
+     * @param window the number of recent records counted per vm, depth or in
+     * all, 0 for all of them
+     * @param keep whether to keep the records, see {@link #getRecordList()}
+     */
+    public static void init(int window, boolean keep) {
         vm2record = new HashMap<>();
         type2record = new HashMap<>();
         jobid2record = new HashMap<>();
         recordList = new ArrayList<>();
+        vm2counter = new HashMap<>();
+        type2counter = new HashMap<>();
+        windowSize = window;
+        keepRecords = keep;
+        counter = new FailureCounter(windowSize);
+    }
+
+    /**
+     * Gets the records received, if they are kept
+     *
+     * @return the records
+     */
+    public static List<FailureRecord> getRecordList() {
+        return recordList;
     }
 
     /**
@@ -127,29 +176,54 @@ public class FailureMonitor {
         switch (FailureParameters.getMonitorMode()) {
             case MONITOR_VM:
 
-                if (!vm2record.containsKey(record.vmId)) {
-                    vm2record.put(record.vmId, new ArrayList<>());
+                getCounter(vm2counter, record.vmId).add(record);
+                if (keepRecords) {
+                    if (!vm2record.containsKey(record.vmId)) {
+                        vm2record.put(record.vmId, new ArrayList<>());
+                    }
+                    vm2record.get(record.vmId).add(record);
                 }
-                vm2record.get(record.vmId).add(record);
 
                 break;
             case MONITOR_JOB:
 
-                if (!type2record.containsKey(record.depth)) {
-                    type2record.put(record.depth, new ArrayList<>());
+                getCounter(type2counter, record.depth).add(record);
+                if (keepRecords) {
+                    if (!type2record.containsKey(record.depth)) {
+                        type2record.put(record.depth, new ArrayList<>());
+                    }
+                    type2record.get(record.depth).add(record);
                 }
-                type2record.get(record.depth).add(record);
 
                 break;
             case MONITOR_NONE:
                 break;
         }
 
-        recordList.add(record);
+        counter.add(record);
+        if (keepRecords) {
+            recordList.add(record);
+        }
     }
 
     /**
-     * Update the detected task failure rate based on record lists
+     * Gets the counter of a vm or a type
+     *
+     * @param counters the counters
+     * @param key the vm or the type
+     * @return the counter
+     */
+    private static FailureCounter getCounter(Map<Integer, FailureCounter> counters, int key) {
+        FailureCounter c = counters.get(key);
+        if (c == null) {
+            c = new FailureCounter(windowSize);
+            counters.put(key, c);
+        }
+        return c;
+    }
+
+    /**
+     * Update the detected task failure rate based on the failures counted
      *
      * @param workflowId, doesn't work in this version
      * @param type, the type of job or vm
@@ -160,42 +234,24 @@ public class FailureMonitor {
         /**
          * workflow level : all jobs together *
          */
-        int sumFailures = 0;
-        int sumJobs = 0;
+        long sumFailures = 0;
+        long sumJobs = 0;
+        FailureCounter c = null;
         switch (FailureParameters.getMonitorMode()) {
             case MONITOR_ALL:
-
-                for (FailureRecord record : recordList) {
-                    sumFailures += record.failedTasksNum;
-                    sumJobs += record.allTaskNum;
-                }
-
+                c = counter;
                 break;
-
             case MONITOR_JOB:
-
-                if (type2record.containsKey(type)) {
-                    for (FailureRecord record : type2record.get(type)) {
-
-                        sumFailures += record.failedTasksNum;
-                        sumJobs += record.allTaskNum;
-                    }
-                }
-
+                c = type2counter.get(type);
                 break;
             case MONITOR_VM:
-
-                if (vm2record.containsKey(type)) {
-                    for (FailureRecord record : vm2record.get(type)) {
-
-                        sumFailures += record.failedTasksNum;
-                        sumJobs += record.allTaskNum;
-                    }
-                }
-
+                c = vm2counter.get(type);
                 break;
         }
-
+        if (c != null) {
+            sumFailures = c.failedTasksNum;
+            sumJobs = c.allTaskNum;
+        }
 
         if (sumFailures == 0) {
             return 0;
@@ -203,4 +259,59 @@ public class FailureMonitor {
         double alpha = (double) ((double) sumFailures / (double) sumJobs);
         return alpha;
     }
+
+    /**
+     * The number of failed tasks and of all tasks of a group of records, over
+     * all of them or over the most recent ones only.
+     */
+    protected static class FailureCounter {
+
+        /**
+         * number of failed tasks.
+         */
+        long failedTasksNum;
+        /**
+         * all the tasks (failed or not).
+         */
+        long allTaskNum;
+        /**
+         * the failed and all tasks of the records in the window, or null.
+         */
+        private final int[] failed;
+        private final int[] all;
+        private int next;
+        private int size;
+
+        /**
+         * Initialize a FailureCounter object
+         *
+         * @param window the number of recent records counted, 0 for all
+         */
+        FailureCounter(int window) {
+            this.failed = window > 0 ? new int[window] : null;
+            this.all = window > 0 ? new int[window] : null;
+        }
+
+        /**
+         * Counts a record, and forgets the oldest one out of the window
+         *
+         * @param record a failure record
+         */
+        void add(FailureRecord record) {
+            failedTasksNum += record.failedTasksNum;
+            allTaskNum += record.allTaskNum;
+            if (failed == null) {
+                return;
+            }
+            if (size == failed.length) {
+                failedTasksNum -= failed[next];
+                allTaskNum -= all[next];
+            } else {
+                size++;
+            }
+            failed[next] = record.failedTasksNum;
+            all[next] = record.allTaskNum;
+            next = (next + 1) % failed.length;
+        }
+    }
 }
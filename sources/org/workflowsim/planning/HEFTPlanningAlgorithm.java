@@ -18,6 +18,7 @@ package org.workflowsim.planning;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import org.cloudbus.cloudsim.Consts;
@@ -30,16 +31,41 @@ import org.workflowsim.utils.Parameters;
 /**
  * The HEFT planning algorithm.
  *
+ * Tasks and vms are referred to by their index in the task list and in the vm
+ * list. Costs are kept in arrays: the computation costs in a task by vm array
+ * and the transfer costs along the edges of the workflow only, so memory
+ * grows with the number of edges rather than with the square of the number of
+ * tasks. Upward ranks are calculated with an explicit stack, so deep chains of
+ * tasks do not overflow the call stack.
+ *
  * @author Pedro Paulo Vezzá Campos
  * @date Oct 12, 2013
  */
 public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
 
-    private Map<Task, Map<CondorVM, Double>> computationCosts;
-    private Map<Task, Map<Task, Double>> transferCosts;
-    private Map<Task, Double> rank;
-    private Map<CondorVM, List<Event>> schedules;
-    private Map<Task, Double> earliestFinishTimes;
+    private Task[] tasks;
+    private CondorVM[] vms;
+    /**
+     * The time in seconds to compute task t in vm v is at t * vms.length + v.
+     */
+    private double[] computationCosts;
+    /**
+     * The children of task t are at childStart[t] to childStart[t + 1] - 1 in
+     * childIndices, in the order of its child list, and the time to transfer
+     * their files at the same positions in childTransferCosts.
+     */
+    private int[] childStart;
+    private int[] childIndices;
+    private double[] childTransferCosts;
+    /**
+     * The parents of task t, in the same form.
+     */
+    private int[] parentStart;
+    private int[] parentIndices;
+    private double[] parentTransferCosts;
+    private double[] rank;
+    private List<List<Event>> schedules;
+    private double[] earliestFinishTimes;
     private double averageBandwidth;
 
     private class Event {
@@ -55,26 +81,29 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
 
     private class TaskRank implements Comparable<TaskRank> {
 
-        public Task task;
-        public Double rank;
+        public int task;
+        public double rank;
 
-        public TaskRank(Task task, Double rank) {
+        public TaskRank(int task, double rank) {
             this.task = task;
             this.rank = rank;
         }
 
+        /**
+         * Orders by non-ascending rank, then by task id.
+         */
         @Override
         public int compareTo(TaskRank o) {
-            return o.rank.compareTo(rank);
+            int result = Double.compare(o.rank, rank);
+            if (result == 0) {
+                result = Integer.compare(tasks[task].getCloudletId(),
+                        tasks[o.task].getCloudletId());
+            }
+            return result;
         }
     }
 
     public HEFTPlanningAlgorithm() {
-        computationCosts = new HashMap<>();
-        transferCosts = new HashMap<>();
-        rank = new HashMap<>();
-        earliestFinishTimes = new HashMap<>();
-        schedules = new HashMap<>();
     }
 
     /**
@@ -87,10 +116,7 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
 
         averageBandwidth = calculateAverageBandwidth();
 
-        for (Object vmObject : getVmList()) {
-            CondorVM vm = (CondorVM) vmObject;
-            schedules.put(vm, new ArrayList<>());
-        }
+        indexTasks();
 
         // Prioritization phase
         calculateComputationCosts();
@@ -115,49 +141,99 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
         return avg / getVmList().size();
     }
 
+    /**
+     * Indexes the tasks and the vms, and lays out the edges of the workflow
+     */
+    private void indexTasks() {
+        List<Task> taskList = getTaskList();
+        int taskNum = taskList.size();
+        tasks = taskList.toArray(new Task[taskNum]);
+        vms = new CondorVM[getVmList().size()];
+        for (int v = 0; v < vms.length; v++) {
+            vms[v] = (CondorVM) getVmList().get(v);
+        }
+        schedules = new ArrayList<>(vms.length);
+        for (int v = 0; v < vms.length; v++) {
+            schedules.add(new ArrayList<Event>());
+        }
+
+        Map<Task, Integer> index = new IdentityHashMap<>();
+        for (int t = 0; t < taskNum; t++) {
+            index.put(tasks[t], t);
+        }
+        childStart = new int[taskNum + 1];
+        parentStart = new int[taskNum + 1];
+        for (int t = 0; t < taskNum; t++) {
+            childStart[t + 1] = childStart[t] + tasks[t].getChildList().size();
+            parentStart[t + 1] = parentStart[t] + tasks[t].getParentList().size();
+        }
+        childIndices = new int[childStart[taskNum]];
+        parentIndices = new int[parentStart[taskNum]];
+        for (int t = 0; t < taskNum; t++) {
+            int e = childStart[t];
+            for (Task child : tasks[t].getChildList()) {
+                childIndices[e++] = index.get(child);
+            }
+            e = parentStart[t];
+            for (Task parent : tasks[t].getParentList()) {
+                parentIndices[e++] = index.get(parent);
+            }
+        }
+        earliestFinishTimes = new double[taskNum];
+        rank = new double[taskNum];
+    }
+
     /**
      * Populates the computationCosts field with the time in seconds to compute
      * a task in a vm.
      */
     private void calculateComputationCosts() {
-        for (Task task : getTaskList()) {
-            Map<CondorVM, Double> costsVm = new HashMap<>();
-            for (Object vmObject : getVmList()) {
-                CondorVM vm = (CondorVM) vmObject;
+        computationCosts = new double[tasks.length * vms.length];
+        for (int t = 0; t < tasks.length; t++) {
+            Task task = tasks[t];
+            for (int v = 0; v < vms.length; v++) {
+                CondorVM vm = vms[v];
                 if (vm.getNumberOfPes() < task.getNumberOfPes()) {
-                    costsVm.put(vm, Double.MAX_VALUE);
+                    computationCosts[t * vms.length + v] = Double.MAX_VALUE;
                 } else {
-                    costsVm.put(vm,
-                            task.getCloudletTotalLength() / vm.getMips());
+                    computationCosts[t * vms.length + v]
+                            = task.getCloudletTotalLength() / vm.getMips();
                 }
             }
-            computationCosts.put(task, costsVm);
         }
     }
 
     /**
-     * Populates the transferCosts map with the time in seconds to transfer all
-     * files from each parent to each child
+     * Populates the transfer costs with the time in seconds to transfer all
+     * files from each parent to each child. A parent that does not list the
+     * task among its children has no transfer cost.
      */
     private void calculateTransferCosts() {
-        // Initializing the matrix
-        for (Task task1 : getTaskList()) {
-            Map<Task, Double> taskTransferCosts = new HashMap<>();
-            for (Task task2 : getTaskList()) {
-                taskTransferCosts.put(task2, 0.0);
+        childTransferCosts = new double[childIndices.length];
+        parentTransferCosts = new double[parentIndices.length];
+        // the cost of each edge, keyed by parent index and child index
+        Map<Long, Double> edgeCosts = new HashMap<>(childIndices.length * 2);
+        for (int p = 0; p < tasks.length; p++) {
+            for (int e = childStart[p]; e < childStart[p + 1]; e++) {
+                int c = childIndices[e];
+                childTransferCosts[e] = calculateTransferCost(tasks[p], tasks[c]);
+                edgeCosts.put(getEdgeKey(p, c), childTransferCosts[e]);
             }
-            transferCosts.put(task1, taskTransferCosts);
         }
-
-        // Calculating the actual values
-        for (Task parent : getTaskList()) {
-            for (Task child : parent.getChildList()) {
-                transferCosts.get(parent).put(child,
-                        calculateTransferCost(parent, child));
+        for (int c = 0; c < tasks.length; c++) {
+            for (int f = parentStart[c]; f < parentStart[c + 1]; f++) {
+                Double cost = edgeCosts.get(getEdgeKey(parentIndices[f], c));
+                if (cost != null) {
+                    parentTransferCosts[f] = cost;
+                }
             }
         }
     }
 
+    private static long getEdgeKey(int parent, int child) {
+        return (long) parent << 32 | child;
+    }
+
     /**
      * Accounts the time in seconds necessary to transfer all files described
      * between parent and child
@@ -193,56 +269,69 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
     }
 
     /**
-     * Invokes calculateRank for each task to be scheduled
+     * Calculates the rank of each task as defined in the HEFT paper. The rank
+     * of a task is calculated once the ranks of all its children are known:
+     * tasks are visited depth first from each task of the task list in turn,
+     * following the child lists.
      */
     private void calculateRanks() {
-        for (Task task : getTaskList()) {
-            calculateRank(task);
-        }
-    }
-
-    /**
-     * Populates rank.get(task) with the rank of task as defined in the HEFT
-     * paper.
-     *
-     * @param task The task have the rank calculates
-     * @return The rank
-     */
-    private double calculateRank(Task task) {
-        if (rank.containsKey(task)) {
-            return rank.get(task);
-        }
-
-        double averageComputationCost = 0.0;
+        int taskNum = tasks.length;
+        byte[] state = new byte[taskNum];
+        int[] stackTask = new int[taskNum];
+        int[] stackEdge = new int[taskNum];
+        for (int root = 0; root < taskNum; root++) {
+            if (state[root] != 0) {
+                continue;
+            }
+            int top = 0;
+            stackTask[top] = root;
+            stackEdge[top] = childStart[root];
+            state[root] = 1;
+            top++;
+            while (top > 0) {
+                int t = stackTask[top - 1];
+                int e = stackEdge[top - 1];
+                if (e < childStart[t + 1]) {
+                    stackEdge[top - 1]++;
+                    int c = childIndices[e];
+                    if (state[c] == 0) {
+                        stackTask[top] = c;
+                        stackEdge[top] = childStart[c];
+                        state[c] = 1;
+                        top++;
+                    }
+                    continue;
+                }
+                top--;
 
-        for (Double cost : computationCosts.get(task).values()) {
-            averageComputationCost += cost;
-        }
+                double averageComputationCost = 0.0;
+                for (int v = 0; v < vms.length; v++) {
+                    averageComputationCost += computationCosts[t * vms.length + v];
+                }
+                averageComputationCost /= vms.length;
 
-        averageComputationCost /= computationCosts.get(task).size();
+                double max = 0.0;
+                for (int f = childStart[t]; f < childStart[t + 1]; f++) {
+                    double childCost = childTransferCosts[f] + rank[childIndices[f]];
+                    max = Math.max(max, childCost);
+                }
 
-        double max = 0.0;
-        for (Task child : task.getChildList()) {
-            double childCost = transferCosts.get(task).get(child)
-                    + calculateRank(child);
-            max = Math.max(max, childCost);
+                rank[t] = averageComputationCost + max;
+                state[t] = 2;
+            }
         }
-
-        rank.put(task, averageComputationCost + max);
-
-        return rank.get(task);
     }
 
     /**
      * Allocates all tasks to be scheduled in non-ascending order of schedule.
      */
     private void allocateTasks() {
-        List<TaskRank> taskRank = new ArrayList<>();
-        for (Task task : rank.keySet()) {
-            taskRank.add(new TaskRank(task, rank.get(task)));
+        List<TaskRank> taskRank = new ArrayList<>(tasks.length);
+        for (int t = 0; t < tasks.length; t++) {
+            taskRank.add(new TaskRank(t, rank[t]));
         }
 
-        // Sorting in non-ascending order of rank
+        // Sorting in non-ascending order of rank, ties broken by task id
         Collections.sort(taskRank);
         for (TaskRank rank : taskRank) {
             allocateTask(rank.task);
@@ -254,40 +343,41 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
      * Schedules the task given in one of the VMs minimizing the earliest finish
      * time
      *
-     * @param task The task to be scheduled
+     * @param task The index of the task to be scheduled
      * @pre All parent tasks are already scheduled
      */
-    private void allocateTask(Task task) {
-        CondorVM chosenVM = null;
+    private void allocateTask(int task) {
+        int chosenVM = -1;
         double earliestFinishTime = Double.MAX_VALUE;
         double bestReadyTime = 0.0;
         double finishTime;
 
-        for (Object vmObject : getVmList()) {
-            CondorVM vm = (CondorVM) vmObject;
+        for (int v = 0; v < vms.length; v++) {
+            CondorVM vm = vms[v];
             double minReadyTime = 0.0;
 
-            for (Task parent : task.getParentList()) {
-                double readyTime = earliestFinishTimes.get(parent);
-                if (parent.getVmId() != vm.getId()) {
-                    readyTime += transferCosts.get(parent).get(task);
+            for (int f = parentStart[task]; f < parentStart[task + 1]; f++) {
+                int parent = parentIndices[f];
+                double readyTime = earliestFinishTimes[parent];
+                if (tasks[parent].getVmId() != vm.getId()) {
+                    readyTime += parentTransferCosts[f];
                 }
                 minReadyTime = Math.max(minReadyTime, readyTime);
             }
 
-            finishTime = findFinishTime(task, vm, minReadyTime, false);
+            finishTime = findFinishTime(task, v, minReadyTime, false);
 
             if (finishTime < earliestFinishTime) {
                 bestReadyTime = minReadyTime;
                 earliestFinishTime = finishTime;
-                chosenVM = vm;
+                chosenVM = v;
             }
         }
 
         findFinishTime(task, chosenVM, bestReadyTime, true);
-        earliestFinishTimes.put(task, earliestFinishTime);
+        earliestFinishTimes[task] = earliestFinishTime;
 
-        task.setVmId(chosenVM.getId());
+        tasks[task].setVmId(vms[chosenVM].getId());
     }
 
     /**
@@ -295,17 +385,17 @@ public class HEFTPlanningAlgorithm extends BasePlanningAlgorithm {
      * given task in the vm with the constraint of not scheduling it before
      * readyTime. If occupySlot is true, reserves the time slot in the schedule.
      *
-     * @param task The task to have the time slot reserved
-     * @param vm The vm that will execute the task
+     * @param task The index of the task to have the time slot reserved
+     * @param vm The index of the vm that will execute the task
      * @param readyTime The first moment that the task is available to be
      * scheduled
      * @param occupySlot If true, reserves the time slot in the schedule.
      * @return The minimal finish time of the task in the vmn
      */
-    private double findFinishTime(Task task, CondorVM vm, double readyTime,
+    private double findFinishTime(int task, int vm, double readyTime,
             boolean occupySlot) {
         List<Event> sched = schedules.get(vm);
-        double computationCost = computationCosts.get(task).get(vm);
+        double computationCost = computationCosts[task * vms.length + vm];
         double start, finish;
         int pos;
 
@@ -19,7 +19,9 @@ import java.util.List;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.workflowsim.CondorVM;
 import org.workflowsim.FileItem;
+import org.workflowsim.FilePartition;
 import org.workflowsim.Job;
+import org.workflowsim.Task;
 import org.workflowsim.WorkflowSimTags;
 import org.workflowsim.utils.ReplicaCatalog;
 
@@ -82,21 +84,12 @@ public class DataAwareSchedulingAlgorithm extends BaseSchedulingAlgorithm {
     protected double dataTransferTime(List<FileItem> requiredFiles, Cloudlet cl, int vmId)  {
         double time = 0.0;
 
-        for (FileItem file : requiredFiles) {
-            //The input file is not an output File 
-            if (file.isRealInputFile(requiredFiles)) {
-                List<String> siteList = ReplicaCatalog.getStorageList(file.getName());
-
-                boolean hasFile = false;
-                for (String site : siteList) {
-                    if(site.equals(Integer.toString(vmId))){
-                        hasFile = true;
-                        break;
-                    }
-                }
-                if(!hasFile){
-                    time += file.getSize() ;
-                }
+        FilePartition partition = cl instanceof Task && requiredFiles == ((Task) cl).getFileList()
+                ? ((Task) cl).getFilePartition() : new FilePartition(requiredFiles);
+        //The input file is not an output File 
+        for (FileItem file : partition.getRealInputFiles()) {
+            if (!ReplicaCatalog.isFileOnVm(ReplicaCatalog.getFileId(file), vmId)) {
+                time += file.getSize() ;
             }
         }
         return time;
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2012-2013 University Of Southern California
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.workflowsim.scheduling;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import org.cloudbus.cloudsim.Cloudlet;
+import org.workflowsim.CondorVM;
+import org.workflowsim.WorkflowSimTags;
+
+/**
+ * The base of MinMin and MaxMin. The jobs waiting in the job list are kept in
+ * a heap ordered by length and, among jobs of the same length, by their order
+ * in the job list. At each run, the idle vms are put in a heap ordered by mips
+ * (the first vm of the vm list among vms of the same mips) and the first jobs
+ * are assigned to the first vms until either heap is empty.
+ *
+ * A scheduler is kept by WorkflowScheduler across CLOUDLET_UPDATE events: the
+ * job heap only takes in the jobs appended to the job list since the previous
+ * run, as long as the job list still starts with the jobs the previous run
+ * left in it. Otherwise, the heap is built again from the whole job list.
+ * The vm heap is built again at every run since the mips of a vm may change
+ * while it is idle.
+ *
+ * @since WorkflowSim Toolkit 1.0
+ */
+public abstract class LengthOrderedSchedulingAlgorithm extends BaseSchedulingAlgorithm {
+
+    /**
+     * A job in the heap
+     */
+    private static class Pending {
+
+        private final Cloudlet cloudlet;
+        private final long length;
+        private final long order;
+
+        Pending(Cloudlet cloudlet, long order) {
+            this.cloudlet = cloudlet;
+            this.length = cloudlet.getCloudletLength();
+            this.order = order;
+        }
+    }
+
+    /**
+     * An idle vm in the heap
+     */
+    private static class IdleVm {
+
+        private final CondorVM vm;
+        private final double mips;
+        private final int index;
+
+        IdleVm(CondorVM vm, int index) {
+            this.vm = vm;
+            this.mips = vm.getCurrentRequestedTotalMips();
+            this.index = index;
+        }
+    }
+
+    /**
+     * The jobs of the job list not scheduled yet.
+     */
+    private final PriorityQueue<Pending> pending;
+    /**
+     * The idle vms of a run.
+     */
+    private final PriorityQueue<IdleVm> idleVms;
+    /**
+     * The jobs in the heap, in job list order. The job list starts with them
+     * unless it was changed otherwise than by appending jobs to it.
+     */
+    private final List<Cloudlet> syncedJobs;
+    /**
+     * The order of the next job.
+     */
+    private long order;
+
+    /**
+     * Initialize a LengthOrderedSchedulingAlgorithm
+     *
+     * @param longestFirst whether the longest jobs are scheduled first
+     */
+    public LengthOrderedSchedulingAlgorithm(boolean longestFirst) {
+        super();
+        Comparator<Pending> byLength = longestFirst
+                ? (a, b) -> Long.compare(b.length, a.length)
+                : (a, b) -> Long.compare(a.length, b.length);
+        this.pending = new PriorityQueue<>(byLength.thenComparingLong(p -> p.order));
+        this.idleVms = new PriorityQueue<>((a, b) -> {
+            int c = Double.compare(b.mips, a.mips);
+            return c != 0 ? c : Integer.compare(a.index, b.index);
+        });
+        this.syncedJobs = new ArrayList<>();
+        this.order = 0;
+    }
+
+    @Override
+    public void run() {
+        List<Cloudlet> scheduledList = getScheduledJobs();
+        scheduledList.clear();
+        syncPending();
+
+        idleVms.clear();
+        List<CondorVM> vmList = getVms();
+        for (int j = 0; j < vmList.size(); j++) {
+            CondorVM vm = vmList.get(j);
+            if (vm.getState() == WorkflowSimTags.VM_STATUS_IDLE) {
+                idleVms.add(new IdleVm(vm, j));
+            }
+        }
+
+        while (!pending.isEmpty() && !idleVms.isEmpty()) {
+            Cloudlet cloudlet = pending.poll().cloudlet;
+            CondorVM vm = idleVms.poll().vm;
+            vm.setState(WorkflowSimTags.VM_STATUS_BUSY);
+            cloudlet.setVmId(vm.getId());
+            scheduledList.add(cloudlet);
+            scheduled(cloudlet, vm);
+        }
+
+        // the scheduled jobs are removed from the job list once the run is over
+        Set<Cloudlet> scheduledSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        scheduledSet.addAll(scheduledList);
+        syncedJobs.clear();
+        for (Cloudlet cloudlet : getJobs()) {
+            if (!scheduledSet.contains(cloudlet)) {
+                syncedJobs.add(cloudlet);
+            }
+        }
+    }
+
+    /**
+     * Called once a job is assigned to a vm
+     *
+     * @param cloudlet the job
+     * @param vm the vm
+     */
+    protected void scheduled(Cloudlet cloudlet, CondorVM vm) {
+    }
+
+    /**
+     * Adds the jobs appended to the job list since the previous run to the
+     * heap, or builds the heap again if the job list changed otherwise.
+     */
+    private void syncPending() {
+        List<Cloudlet> jobs = getJobs();
+        int size = jobs.size();
+        int synced = syncedJobs.size();
+        boolean appendedOnly = size >= synced;
+        for (int j = 0; appendedOnly && j < synced; j++) {
+            appendedOnly = jobs.get(j) == syncedJobs.get(j);
+        }
+        if (!appendedOnly) {
+            pending.clear();
+            synced = 0;
+        }
+        for (int j = synced; j < size; j++) {
+            pending.add(new Pending(jobs.get(j), order++));
+        }
+    }
+
+    /**
+     * Gets the job list. WorkflowScheduler only sets lists of jobs, the base
+     * class keeps them untyped.
+     *
+     * @return the job list
+     */
+    @SuppressWarnings("unchecked")
+    private List<Cloudlet> getJobs() {
+        return getCloudletList();
+    }
+
+    /**
+     * Gets the vm list. The vms of WorkflowSim are all CondorVMs, the base
+     * class keeps them untyped.
+     *
+     * @return the vm list
+     */
+    @SuppressWarnings("unchecked")
+    private List<CondorVM> getVms() {
+        return getVmList();
+    }
+
+    /**
+     * Gets the scheduled job list, typed.
+     *
+     * @return the scheduled job list
+     */
+    @SuppressWarnings("unchecked")
+    private List<Cloudlet> getScheduledJobs() {
+        return getScheduledList();
+    }
+}
@@ -15,98 +15,31 @@
  */
 package org.workflowsim.scheduling;
 
-import java.util.ArrayList;
-import java.util.List;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.Log;
 import org.workflowsim.CondorVM;
-import org.workflowsim.WorkflowSimTags;
 
 /**
- * MaxMin algorithm.
+ * MaxMin algorithm. The jobs are kept in a heap ordered by length, see
+ * LengthOrderedSchedulingAlgorithm.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
  * @date Apr 9, 2013
  */
-public class MaxMinSchedulingAlgorithm extends BaseSchedulingAlgorithm {
+public class MaxMinSchedulingAlgorithm extends LengthOrderedSchedulingAlgorithm {
 
     /**
      * Initialize a MaxMin scheduler.
      */
     public MaxMinSchedulingAlgorithm() {
-        super();
+        super(true);
     }
-    /**
-     * the check point list.
-     */
-    private final List<Boolean> hasChecked = new ArrayList<>();
 
     @Override
-    public void run() {
-
-
-        //Log.printLine("Schedulin Cycle");
-        int size = getCloudletList().size();
-        hasChecked.clear();
-        for (int t = 0; t < size; t++) {
-            hasChecked.add(false);
-        }
-        for (int i = 0; i < size; i++) {
-            int maxIndex = 0;
-            Cloudlet maxCloudlet = null;
-            for (int j = 0; j < size; j++) {
-                Cloudlet cloudlet = (Cloudlet) getCloudletList().get(j);
-                if (!hasChecked.get(j)) {
-                    maxCloudlet = cloudlet;
-                    maxIndex = j;
-                    break;
-                }
-            }
-            if (maxCloudlet == null) {
-                break;
-            }
-
-            for (int j = 0; j < size; j++) {
-                Cloudlet cloudlet = (Cloudlet) getCloudletList().get(j);
-                if (hasChecked.get(j)) {
-                    continue;
-                }
-                long length = cloudlet.getCloudletLength();
-                if (length > maxCloudlet.getCloudletLength()) {
-                    maxCloudlet = cloudlet;
-                    maxIndex = j;
-                }
-            }
-            hasChecked.set(maxIndex, true);
-
-            int vmSize = getVmList().size();
-            CondorVM firstIdleVm = null;//(CondorVM)getVmList().get(0);
-            for (int j = 0; j < vmSize; j++) {
-                CondorVM vm = (CondorVM) getVmList().get(j);
-                if (vm.getState() == WorkflowSimTags.VM_STATUS_IDLE) {
-                    firstIdleVm = vm;
-                    break;
-                }
-            }
-            if (firstIdleVm == null) {
-                break;
-            }
-            for (int j = 0; j < vmSize; j++) {
-                CondorVM vm = (CondorVM) getVmList().get(j);
-                if ((vm.getState() == WorkflowSimTags.VM_STATUS_IDLE)
-                        && vm.getCurrentRequestedTotalMips() > firstIdleVm.getCurrentRequestedTotalMips()) {
-                    firstIdleVm = vm;
-
-                }
-            }
-            firstIdleVm.setState(WorkflowSimTags.VM_STATUS_BUSY);
-            maxCloudlet.setVmId(firstIdleVm.getId());
-            getScheduledList().add(maxCloudlet);
-            Log.printLine("Schedules " + maxCloudlet.getCloudletId() + " with "
-                    + maxCloudlet.getCloudletLength() + " to VM " + firstIdleVm.getId()
-                    + " with " + firstIdleVm.getCurrentRequestedTotalMips());
-
-        }
+    protected void scheduled(Cloudlet cloudlet, CondorVM vm) {
+        Log.printLine("Schedules " + cloudlet.getCloudletId() + " with "
+                + cloudlet.getCloudletLength() + " to VM " + vm.getId()
+                + " with " + vm.getCurrentRequestedTotalMips());
     }
 }
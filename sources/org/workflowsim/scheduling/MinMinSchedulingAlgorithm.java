@@ -15,85 +15,20 @@
  */
 package org.workflowsim.scheduling;
 
-import java.util.ArrayList;
-import java.util.List;
-import org.cloudbus.cloudsim.Cloudlet;
-import org.workflowsim.CondorVM;
-import org.workflowsim.WorkflowSimTags;
-
 /**
- * MinMin algorithm.
+ * MinMin algorithm. The jobs are kept in a heap ordered by length, see
+ * LengthOrderedSchedulingAlgorithm.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
  * @date Apr 9, 2013
  */
-public class MinMinSchedulingAlgorithm extends BaseSchedulingAlgorithm {
+public class MinMinSchedulingAlgorithm extends LengthOrderedSchedulingAlgorithm {
 
+    /**
+     * Initialize a MinMin scheduler.
+     */
     public MinMinSchedulingAlgorithm() {
-        super();
-    }
-    private final List<Boolean> hasChecked = new ArrayList<>();
-
-    @Override
-    public void run() {
-
-        int size = getCloudletList().size();
-        hasChecked.clear();
-        for (int t = 0; t < size; t++) {
-            hasChecked.add(false);
-        }
-        for (int i = 0; i < size; i++) {
-            int minIndex = 0;
-            Cloudlet minCloudlet = null;
-            for (int j = 0; j < size; j++) {
-                Cloudlet cloudlet = (Cloudlet) getCloudletList().get(j);
-                if (!hasChecked.get(j)) {
-                    minCloudlet = cloudlet;
-                    minIndex = j;
-                    break;
-                }
-            }
-            if (minCloudlet == null) {
-                break;
-            }
-
-
-            for (int j = 0; j < size; j++) {
-                Cloudlet cloudlet = (Cloudlet) getCloudletList().get(j);
-                if (hasChecked.get(j)) {
-                    continue;
-                }
-                long length = cloudlet.getCloudletLength();
-                if (length < minCloudlet.getCloudletLength()) {
-                    minCloudlet = cloudlet;
-                    minIndex = j;
-                }
-            }
-            hasChecked.set(minIndex, true);
-
-            int vmSize = getVmList().size();
-            CondorVM firstIdleVm = null;//(CondorVM)getVmList().get(0);
-            for (int j = 0; j < vmSize; j++) {
-                CondorVM vm = (CondorVM) getVmList().get(j);
-                if (vm.getState() == WorkflowSimTags.VM_STATUS_IDLE) {
-                    firstIdleVm = vm;
-                    break;
-                }
-            }
-            if (firstIdleVm == null) {
-                break;
-            }
-            for (int j = 0; j < vmSize; j++) {
-                CondorVM vm = (CondorVM) getVmList().get(j);
-                if ((vm.getState() == WorkflowSimTags.VM_STATUS_IDLE)
-                        && vm.getCurrentRequestedTotalMips() > firstIdleVm.getCurrentRequestedTotalMips()) {
-                    firstIdleVm = vm;
-                }
-            }
-            firstIdleVm.setState(WorkflowSimTags.VM_STATUS_BUSY);
-            minCloudlet.setVmId(firstIdleVm.getId());
-            getScheduledList().add(minCloudlet);
-        }
+        super(false);
     }
 }
@@ -23,10 +23,17 @@ import org.apache.commons.math3.distribution.LogNormalDistribution;
 import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.distribution.RealDistribution;
 import org.apache.commons.math3.distribution.WeibullDistribution;
+import org.apache.commons.math3.random.RandomGenerator;
+import org.apache.commons.math3.random.Well19937c;
 
 /**
  * This is a OverheadDistributionGenrator for one typic overhead per level.
  *
+ * The samples are kept in chunks, one per extension, so extending the samples
+ * does not copy the samples drawn before. The cumulative samples of a new chunk
+ * continue from the last cumulative sample, and the first cumulative sample
+ * reaching a given time is found by binary search.
+ *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
  * @date Mar 11, 2014
@@ -39,10 +46,26 @@ public class DistributionGenerator {
     protected double scale_prior;
     protected double shape_prior;
     protected double likelihood_prior;
-    protected double[] samples;
-    protected double[] cumulativeSamples;
+    /**
+     * The samples, the cumulative samples and the largest cumulative sample so
+     * far, by chunk.
+     */
+    private double[][] samples;
+    private double[][] cumulativeSamples;
+    private double[][] maxCumulativeSamples;
+    /**
+     * The index of the first sample of each chunk.
+     */
+    private int[] chunkStart;
+    private int chunkNum;
+    private int sampleNum;
     protected int cursor;
     protected final int SAMPLE_SIZE = 1500 ; //DistributionGenerator will automatically increase the size
+    /**
+     * The random generator of the samples, null if each distribution uses its
+     * own.
+     */
+    protected RandomGenerator random;
     
 
     public enum DistributionFamily {
@@ -57,14 +80,37 @@ public class DistributionGenerator {
      * @param shape
      */
     public DistributionGenerator(DistributionFamily dist, double scale, double shape) {
+        this(dist, scale, shape, (RandomGenerator) null);
+    }
+
+    /**
+     * Initialize a generator whose samples are reproducible
+     *
+     * @param dist
+     * @param scale
+     * @param shape
+     * @param seed the seed of the samples
+     */
+    public DistributionGenerator(DistributionFamily dist, double scale, double shape, long seed) {
+        this(dist, scale, shape, new Well19937c(seed));
+    }
+
+    /**
+     *
+     * @param dist
+     * @param scale
+     * @param shape
+     * @param random the random generator of the samples, or null
+     */
+    protected DistributionGenerator(DistributionFamily dist, double scale, double shape, RandomGenerator random) {
         this.dist = dist;
         this.scale = scale;
         this.shape = shape;
         this.scale_prior = scale;
         this.shape_prior = shape;
+        this.random = random;
         RealDistribution distribution = getDistribution(scale, shape);
-        samples = distribution.sample(SAMPLE_SIZE);
-        updateCumulativeSamples();
+        setSamples(distribution.sample(SAMPLE_SIZE));
         cursor = 0;
     }
 
@@ -75,22 +121,105 @@ public class DistributionGenerator {
         this.likelihood_prior = c;
     }
 
+    public DistributionGenerator(DistributionFamily dist, double scale, double shape, double a, double b, double c, long seed) {
+        this(dist, scale, shape, seed);
+        this.scale_prior = b;
+        this.shape_prior = a;
+        this.likelihood_prior = c;
+    }
+
     /**
-     * Gets the sample data
+     * Gets a copy of the sample data
      *
      * @return samples
      */
     public double[] getSamples() {
-        return samples;
+        return flatten(samples);
     }
 
     /**
-     * Gets the cumulative Samples
+     * Gets a copy of the cumulative Samples
      *
      * @return cumulativeSamples
      */
     public double[] getCumulativeSamples() {
-        return cumulativeSamples;
+        return flatten(cumulativeSamples);
+    }
+
+    /**
+     * Gets the number of samples
+     *
+     * @return the number of samples
+     */
+    public int getSampleNum() {
+        return sampleNum;
+    }
+
+    /**
+     * Gets a sample
+     *
+     * @param index the index of the sample
+     * @return the sample
+     */
+    public double getSample(int index) {
+        int chunk = getChunk(index);
+        return samples[chunk][index - chunkStart[chunk]];
+    }
+
+    /**
+     * Gets a cumulative sample
+     *
+     * @param index the index of the sample
+     * @return the sum of the samples up to index
+     */
+    public double getCumulativeSample(int index) {
+        int chunk = getChunk(index);
+        return cumulativeSamples[chunk][index - chunkStart[chunk]];
+    }
+
+    /**
+     * Gets the last cumulative sample
+     *
+     * @return the sum of all the samples
+     */
+    public double getLastCumulativeSample() {
+        double[] last = cumulativeSamples[chunkNum - 1];
+        return last[last.length - 1];
+    }
+
+    /**
+     * Finds the first cumulative sample that is not less than a given time
+     *
+     * @param time the time
+     * @return the index of the sample, or -1 if all of them are less than time
+     */
+    public int findCumulativeSample(double time) {
+        int low = 0;
+        int high = chunkNum - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            double[] max = maxCumulativeSamples[mid];
+            if (max[max.length - 1] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        double[] max = maxCumulativeSamples[low];
+        if (max[max.length - 1] < time) {
+            return -1;
+        }
+        int first = 0;
+        int last = max.length - 1;
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (max[mid] < time) {
+                first = mid + 1;
+            } else {
+                last = mid;
+            }
+        }
+        return chunkStart[low] + first;
     }
 
     /**
@@ -98,19 +227,61 @@ public class DistributionGenerator {
      */
     public void extendSamples() {
         double[] new_samples = getDistribution(scale, shape).sample(SAMPLE_SIZE);
-        samples = concat(samples, new_samples);
-        updateCumulativeSamples();
+        addSamples(new_samples);
     }
 
     /**
-     * Update cumulativeSamples from samples
+     * Replaces all the samples
+     *
+     * @param new_samples the samples
+     */
+    protected final void setSamples(double[] new_samples) {
+        samples = new double[4][];
+        cumulativeSamples = new double[4][];
+        maxCumulativeSamples = new double[4][];
+        chunkStart = new int[4];
+        chunkNum = 0;
+        sampleNum = 0;
+        addSamples(new_samples);
+    }
+
+    /**
+     * Appends samples as a new chunk and sums them up from the last cumulative
+     * sample
+     *
+     * @param new_samples the samples
      */
-    public void updateCumulativeSamples() {
-        cumulativeSamples = new double[samples.length];
-        cumulativeSamples[0] = samples[0];
-        for (int i = 1; i < samples.length; i++) {
-            cumulativeSamples[i] = cumulativeSamples[i - 1] + samples[i];
+    protected final void addSamples(double[] new_samples) {
+        if (new_samples.length == 0) {
+            return;
         }
+        if (chunkNum == samples.length) {
+            samples = Arrays.copyOf(samples, chunkNum * 2);
+            cumulativeSamples = Arrays.copyOf(cumulativeSamples, chunkNum * 2);
+            maxCumulativeSamples = Arrays.copyOf(maxCumulativeSamples, chunkNum * 2);
+            chunkStart = Arrays.copyOf(chunkStart, chunkNum * 2);
+        }
+        double[] cumulative = new double[new_samples.length];
+        double[] max = new double[new_samples.length];
+        if (chunkNum == 0) {
+            cumulative[0] = new_samples[0];
+            max[0] = cumulative[0];
+        } else {
+            double[] last = cumulativeSamples[chunkNum - 1];
+            double[] lastMax = maxCumulativeSamples[chunkNum - 1];
+            cumulative[0] = last[last.length - 1] + new_samples[0];
+            max[0] = Math.max(lastMax[lastMax.length - 1], cumulative[0]);
+        }
+        for (int i = 1; i < new_samples.length; i++) {
+            cumulative[i] = cumulative[i - 1] + new_samples[i];
+            max[i] = Math.max(max[i - 1], cumulative[i]);
+        }
+        samples[chunkNum] = new_samples;
+        cumulativeSamples[chunkNum] = cumulative;
+        maxCumulativeSamples[chunkNum] = max;
+        chunkStart[chunkNum] = sampleNum;
+        chunkNum++;
+        sampleNum += new_samples.length;
     }
 
     /**
@@ -130,7 +301,7 @@ public class DistributionGenerator {
     public double getMean() {
         double sum = 0.0;
         for (int i = 0; i < cursor; i++) {
-            sum += samples[i];
+            sum += getSample(i);
         }
         return sum / cursor;
     }
@@ -156,10 +327,10 @@ public class DistributionGenerator {
         for (int i = 0; i < cursor; i++) {
             switch (dist) {
                 case GAMMA:
-                    sum += samples[i];
+                    sum += getSample(i);
                     break;
                 case WEIBULL:
-                    sum += Math.pow(samples[i], likelihood_prior);
+                    sum += Math.pow(getSample(i), likelihood_prior);
                     break;
             }
         }
@@ -187,8 +358,7 @@ public class DistributionGenerator {
         this.scale = scale;
         this.shape = shape;
         RealDistribution distribution = getDistribution(scale, shape);
-        samples = distribution.sample(SAMPLE_SIZE);
-        updateCumulativeSamples();
+        setSamples(distribution.sample(SAMPLE_SIZE));
         //cursor = 0;
     }
 
@@ -211,16 +381,52 @@ public class DistributionGenerator {
      * @return delay
      */
     public double getNextSample() {
-        while (cursor >= samples.length) {
+        while (cursor >= sampleNum) {
             double[] new_samples = getDistribution(scale, shape).sample(SAMPLE_SIZE);
-            samples = concat(samples, new_samples);
-            updateCumulativeSamples();
+            addSamples(new_samples);
         }
-        double delay = samples[cursor];
+        double delay = getSample(cursor);
         cursor++;
         return delay;
     }
 
+    /**
+     * Gets the chunk holding a sample
+     *
+     * @param index the index of the sample
+     * @return the chunk
+     */
+    private int getChunk(int index) {
+        if (index < 0 || index >= sampleNum) {
+            throw new IndexOutOfBoundsException("Sample " + index + " of " + sampleNum);
+        }
+        int low = 0;
+        int high = chunkNum - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunkStart[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Copies chunks into one array
+     *
+     * @param chunks the chunks
+     * @return the array
+     */
+    private double[] flatten(double[][] chunks) {
+        double[] result = new double[sampleNum];
+        for (int i = 0; i < chunkNum; i++) {
+            System.arraycopy(chunks[i], 0, result, chunkStart[i], chunks[i].length);
+        }
+        return result;
+    }
+
     /**
      * Gets the RealDistribution with two parameters
      *
@@ -230,19 +436,44 @@ public class DistributionGenerator {
      */
     public RealDistribution getDistribution(double scale, double shape) {
         RealDistribution distribution = null;
+        if (random == null) {
+            switch (this.dist) {
+                case LOGNORMAL:
+                    distribution = new LogNormalDistribution(scale, shape);
+                    break;
+                case WEIBULL:
+                    distribution = new WeibullDistribution(shape, scale);
+                    break;
+                case GAMMA:
+                    distribution = new GammaDistribution(shape, scale);
+                    break;
+                case NORMAL:
+                    //shape is the std, scale is the mean
+                    distribution = new NormalDistribution(scale, shape);
+                    break;
+                default:
+                    break;
+            }
+            return distribution;
+        }
+        //all the distributions draw from the random generator of this generator
         switch (this.dist) {
             case LOGNORMAL:
-                distribution = new LogNormalDistribution(scale, shape);
+                distribution = new LogNormalDistribution(random, scale, shape,
+                        LogNormalDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             case WEIBULL:
-                distribution = new WeibullDistribution(shape, scale);
+                distribution = new WeibullDistribution(random, shape, scale,
+                        WeibullDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             case GAMMA:
-                distribution = new GammaDistribution(shape, scale);
+                distribution = new GammaDistribution(random, shape, scale,
+                        GammaDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             case NORMAL:
                 //shape is the std, scale is the mean
-                distribution = new NormalDistribution(scale, shape);
+                distribution = new NormalDistribution(random, scale, shape,
+                        NormalDistribution.DEFAULT_INVERSE_ABSOLUTE_ACCURACY);
                 break;
             default:
                 break;
@@ -17,10 +17,12 @@ package org.workflowsim.utils;
 
 import java.util.List;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.SimulationContext;
 
 /**
  * This class includes most parameters a user can specify in a configuration
- * file
+ * file. The parameters are kept per simulation context, the static methods
+ * access the context of the calling thread.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
@@ -82,6 +84,15 @@ public class Parameters {
         }
     }
     
+    /**
+     * DAX parser mode
+     * DOM: build a JDOM document of the DAX file and walk it
+     * STREAM: read the DAX file in one pass with StAX
+     */
+    public enum ParserMode{
+        DOM, STREAM
+    }
+    
     /** 
      * Source Host (submit host)
      */
@@ -89,92 +100,134 @@ public class Parameters {
     
     public static final int BASE = 0;
     
-    /**
-     * Scheduling mode
-     */
-    private static SchedulingAlgorithm schedulingAlgorithm;
-    
-    /**
-     * Planning mode
-     */
-    private static PlanningAlgorithm planningAlgorithm;
-    
-    /**
-     * Reducer mode
-     */
-    private static String reduceMethod;
-    /**
-     * Number of vms available
-     */
-    private static int vmNum;
-    /**
-     * The physical path to DAX file
-     */
-    private static String daxPath;
-    
-    /**
-     * The physical path to DAX files
-     */
-    private static List<String> daxPaths;
-    /**
-     * The physical path to runtime file In the runtime file, please use format
-     * as below ID1 1.0 ID2 2.0 ... This is optional, if you have specified task
-     * runtime in DAX then you don't need to specify this file
-     */
-    private static String runtimePath;
-    /**
-     * The physical path to datasize file In the datasize file, please use
-     * format as below DATA1 1000 DATA2 2000 ... This is optional, if you have
-     * specified datasize in DAX then you don't need to specify this file
-     */
-    private static String datasizePath;
     /**
      * Version number
      */
     private static final String version = "1.1.0";
+
     /**
      * Note information
      */
     private static final String note = " supports planning algorithm at Nov 9, 2013";
-    /**
-     * Overhead parameters
-     */
-    private static OverheadParameters oParams;
-    /**
-     * Clustering parameters
-     */
-    private static ClusteringParameters cParams;
-    /**
-     * Deadline of a workflow
-     */
-    private static long deadline;
-    
-    /**
-     * the bandwidth from one vm to one vm
-     */
-    private static double[][] bandwidths;
-    
-    
-    /**
-     * The maximum depth. It is inited manually and used in FailureGenerator
-     */
-    private static int maxDepth;
-    
+
     /**
      * Invalid String
      */
     private static final String INVALID = "Invalid";
-    
+
     /**
-     * The scale of runtime. Multiple runtime by this
+     * The parameters of one simulation context
      */
-    private static double runtime_scale = 1.0;
-    
+    private static class State {
+
+        /**
+         * Scheduling mode
+         */
+        private SchedulingAlgorithm schedulingAlgorithm;
+
+        /**
+         * Planning mode
+         */
+        private PlanningAlgorithm planningAlgorithm;
+
+        /**
+         * Reducer mode
+         */
+        private String reduceMethod;
+        /**
+         * Number of vms available
+         */
+        private int vmNum;
+        /**
+         * The physical path to DAX file
+         */
+        private String daxPath;
+
+        /**
+         * The physical path to DAX files
+         */
+        private List<String> daxPaths;
+        /**
+         * The physical path to runtime file In the runtime file, please use format
+         * as below ID1 1.0 ID2 2.0 ... This is optional, if you have specified task
+         * runtime in DAX then you don't need to specify this file
+         */
+        private String runtimePath;
+        /**
+         * The physical path to datasize file In the datasize file, please use
+         * format as below DATA1 1000 DATA2 2000 ... This is optional, if you have
+         * specified datasize in DAX then you don't need to specify this file
+         */
+        private String datasizePath;
+        /**
+         * Overhead parameters
+         */
+        private OverheadParameters oParams;
+        /**
+         * Clustering parameters
+         */
+        private ClusteringParameters cParams;
+        /**
+         * Deadline of a workflow
+         */
+        private long deadline;
+
+        /**
+         * the bandwidth from one vm to one vm
+         */
+        private double[][] bandwidths;
+
+
+        /**
+         * The maximum depth. It is inited manually and used in FailureGenerator
+         */
+        private int maxDepth;
+
+        /**
+         * The scale of runtime. Multiple runtime by this
+         */
+        private double runtime_scale = 1.0;
+
+        /**
+         * The default cost model is based on datacenter, similar to CloudSim
+         */
+        private CostModel costModel = CostModel.DATACENTER;
+
+        /**
+         * The DAX parser mode
+         */
+        private ParserMode parserMode = ParserMode.STREAM;
+
+        /**
+         * The number of threads parsing the DAX files
+         */
+        private int parserThreads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * The number of threads clustering the levels of a workflow
+         */
+        private int clusteringThreads = 1;
+
+        /**
+         * The directory of the parsed DAX files, null if not cached
+         */
+        private String daxCachePath;
+    }
+
     /**
-     * The default cost model is based on datacenter, similar to CloudSim
+     * The key of the parameters attached to a simulation context
      */
-    private static CostModel costModel = CostModel.DATACENTER;
-    
+    private static final SimulationContext.Key<State> STATE = SimulationContext.newKey(State::new);
+
+    /**
+     * Gets the parameters of the current simulation context
+     *
+     * @return the parameters
+     */
+    private static State state() {
+        return SimulationContext.current().get(STATE);
+    }
+
     /**
      * A static function so that you can specify them in any place
      *
@@ -194,19 +247,20 @@ public class Parameters {
             OverheadParameters op, ClusteringParameters cp,
             SchedulingAlgorithm scheduler, PlanningAlgorithm planner, String rMethod,
             long dl) {
+        State state = state();
 
-        cParams = cp;
-        vmNum = vm;
-        daxPath = dax;
-        runtimePath = runtime;
-        datasizePath = datasize;
+        state.cParams = cp;
+        state.vmNum = vm;
+        state.daxPath = dax;
+        state.runtimePath = runtime;
+        state.datasizePath = datasize;
 
-        oParams = op;
-        schedulingAlgorithm = scheduler;
-        planningAlgorithm = planner;
-        reduceMethod = rMethod;
-        deadline = dl;
-        maxDepth = 0;
+        state.oParams = op;
+        state.schedulingAlgorithm = scheduler;
+        state.planningAlgorithm = planner;
+        state.reduceMethod = rMethod;
+        state.deadline = dl;
+        state.maxDepth = 0;
     }
     
     /**
@@ -228,19 +282,20 @@ public class Parameters {
             OverheadParameters op, ClusteringParameters cp,
             SchedulingAlgorithm scheduler, PlanningAlgorithm planner, String rMethod,
             long dl) {
+        State state = state();
 
-        cParams = cp;
-        vmNum = vm;
-        daxPaths = dax;
-        runtimePath = runtime;
-        datasizePath = datasize;
+        state.cParams = cp;
+        state.vmNum = vm;
+        state.daxPaths = dax;
+        state.runtimePath = runtime;
+        state.datasizePath = datasize;
 
-        oParams = op;
-        schedulingAlgorithm = scheduler;
-        planningAlgorithm = planner;
-        reduceMethod = rMethod;
-        deadline = dl;
-        maxDepth = 0;
+        state.oParams = op;
+        state.schedulingAlgorithm = scheduler;
+        state.planningAlgorithm = planner;
+        state.reduceMethod = rMethod;
+        state.deadline = dl;
+        state.maxDepth = 0;
     }
 
     /**
@@ -251,7 +306,7 @@ public class Parameters {
      * @post $none
      */
     public static OverheadParameters getOverheadParams() {
-        return oParams;
+        return state().oParams;
     }
 
     
@@ -264,8 +319,9 @@ public class Parameters {
      * @post $none
      */
     public static String getReduceMethod() {
-        if(reduceMethod!=null){
-            return reduceMethod;
+        State state = state();
+        if(state.reduceMethod!=null){
+            return state.reduceMethod;
         }else{
             return INVALID;
         }
@@ -281,7 +337,7 @@ public class Parameters {
      * @post $none
      */
     public static String getDaxPath() {
-        return daxPath;
+        return state().daxPath;
     }
 
     /**
@@ -292,7 +348,7 @@ public class Parameters {
      * @post $none
      */
     public static String getRuntimePath() {
-        return runtimePath;
+        return state().runtimePath;
     }
 
     /**
@@ -303,7 +359,7 @@ public class Parameters {
      * @post $none
      */
     public static String getDatasizePath() {
-        return datasizePath;
+        return state().datasizePath;
     }
 
     
@@ -315,7 +371,7 @@ public class Parameters {
      * @post $none
      */
     public static int getVmNum() {
-        return vmNum;
+        return state().vmNum;
     }
 
     
@@ -325,7 +381,7 @@ public class Parameters {
      * @return costModel
      */
     public static CostModel getCostModel(){
-        return costModel;
+        return state().costModel;
     }
     
     /**
@@ -334,7 +390,7 @@ public class Parameters {
      * @param num
      */
     public static void setVmNum(int num) {
-        vmNum = num;
+        state().vmNum = num;
     }
 
     /**
@@ -343,7 +399,7 @@ public class Parameters {
      * @return the clustering parameters
      */
     public static ClusteringParameters getClusteringParameters() {
-        return cParams;
+        return state().cParams;
     }
 
     /**
@@ -352,7 +408,7 @@ public class Parameters {
      * @return the scheduling method
      */
     public static SchedulingAlgorithm getSchedulingAlgorithm() {
-        return schedulingAlgorithm;
+        return state().schedulingAlgorithm;
     }
     
     /**
@@ -361,7 +417,7 @@ public class Parameters {
      * 
      */
     public static PlanningAlgorithm getPlanningAlgorithm() {
-        return planningAlgorithm;
+        return state().planningAlgorithm;
     }
     /**
      * Gets the version
@@ -379,7 +435,7 @@ public class Parameters {
      * Gets the deadline
      */
     public static long getDeadline(){
-    	return deadline;
+    	return state().deadline;
     }
     
     /**
@@ -387,7 +443,7 @@ public class Parameters {
      * @return the maxDepth
      */
     public static int getMaxDepth(){
-        return maxDepth;
+        return state().maxDepth;
     }
     
     /**
@@ -395,7 +451,7 @@ public class Parameters {
      * @param depth the maxDepth
      */
     public static void setMaxDepth(int depth){
-        maxDepth = depth;
+        state().maxDepth = depth;
     }
     
     /**
@@ -403,7 +459,7 @@ public class Parameters {
      * @param scale 
      */
     public static void setRuntimeScale(double scale){
-        runtime_scale = scale;
+        state().runtime_scale = scale;
     }
     
     /**
@@ -411,7 +467,7 @@ public class Parameters {
      * @param model
      */
     public static void setCostModel(CostModel model){
-        costModel = model;
+        state().costModel = model;
     }
     
     /**
@@ -419,7 +475,7 @@ public class Parameters {
      * @return 
      */
     public static double getRuntimeScale(){
-        return runtime_scale;
+        return state().runtime_scale;
     }
     
     /**
@@ -427,6 +483,73 @@ public class Parameters {
      * @return 
      */
     public static List<String> getDAXPaths() {
-        return daxPaths;
+        return state().daxPaths;
+    }
+    
+    /**
+     * Sets the DAX parser mode
+     * @param mode the parser mode
+     */
+    public static void setParserMode(ParserMode mode){
+        state().parserMode = mode;
+    }
+    
+    /**
+     * Gets the DAX parser mode
+     * @return the parser mode
+     */
+    public static ParserMode getParserMode(){
+        return state().parserMode;
+    }
+    
+    /**
+     * Sets the number of threads parsing the DAX files. Only the STREAM mode
+     * parses several DAX files at a time
+     * @param threads the number of threads
+     */
+    public static void setParserThreads(int threads){
+        state().parserThreads = threads;
+    }
+    
+    /**
+     * Gets the number of threads parsing the DAX files
+     * @return the number of threads
+     */
+    public static int getParserThreads(){
+        return state().parserThreads;
+    }
+    
+    /**
+     * Sets the number of threads clustering the levels of a workflow. The
+     * horizontal clustering and the horizontal balancing methods cluster
+     * several levels at a time, the jobs are the same as with one thread
+     * @param threads the number of threads, 1 to cluster one level at a time
+     */
+    public static void setClusteringThreads(int threads){
+        state().clusteringThreads = threads;
+    }
+    
+    /**
+     * Gets the number of threads clustering the levels of a workflow
+     * @return the number of threads
+     */
+    public static int getClusteringThreads(){
+        return state().clusteringThreads;
+    }
+    
+    /**
+     * Sets the directory where parsed DAX files are cached (see DaxCache)
+     * @param path the directory, null to parse the DAX files every time
+     */
+    public static void setDaxCachePath(String path){
+        state().daxCachePath = path;
+    }
+    
+    /**
+     * Gets the directory where parsed DAX files are cached
+     * @return the directory, null if parsed DAX files are not cached
+     */
+    public static String getDaxCachePath(){
+        return state().daxCachePath;
     }
 }
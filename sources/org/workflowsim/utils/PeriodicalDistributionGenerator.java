@@ -45,13 +45,27 @@ public class PeriodicalDistributionGenerator extends DistributionGenerator{
         this.signal = signal;
         //generate samples periodically
         double currentTime = 0.0;
-        samples = generatePeriodicalSamples(currentTime);
-                
-        updateCumulativeSamples();
+        setSamples(generatePeriodicalSamples(currentTime));
         cursor = 0;
        
     }
     
+    /**
+     * Initialize a Class whose samples are reproducible
+     * @param dist distribution
+     * @param scale scale parameter
+     * @param shape shape parameter
+     * @param signal Periodical signal
+     * @param seed the seed of the samples
+     */
+    public PeriodicalDistributionGenerator(DistributionFamily dist, double scale, double shape, PeriodicalSignal signal, long seed){
+        super(dist, scale, shape, seed);
+        this.signal = signal;
+        double currentTime = 0.0;
+        setSamples(generatePeriodicalSamples(currentTime));
+        cursor = 0;
+    }
+
     /**
      * Initialize a Class
      * 
@@ -67,8 +81,7 @@ public class PeriodicalDistributionGenerator extends DistributionGenerator{
         super(dist, scale, shape, a, b, c);
         this.signal = signal;
         double currentTime = 0.0;
-        samples = generatePeriodicalSamples(currentTime);
-        updateCumulativeSamples();
+        setSamples(generatePeriodicalSamples(currentTime));
         cursor = 0;
     }
     /**
@@ -76,10 +89,9 @@ public class PeriodicalDistributionGenerator extends DistributionGenerator{
      */
     @Override
     public void extendSamples() {
-        double currentTime = cumulativeSamples[cumulativeSamples.length - 1];
+        double currentTime = getLastCumulativeSample();
         double[] new_samples = generatePeriodicalSamples(currentTime);
-        samples = concat(samples, new_samples);
-        updateCumulativeSamples();
+        addSamples(new_samples);
     }
     
     /**
@@ -18,13 +18,23 @@
 package org.workflowsim.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.cloudbus.cloudsim.core.SimulationContext;
 import org.workflowsim.FileItem;
 
 /**
- * ReplicaCatalog stores all the data information and where (site) there are
+ * ReplicaCatalog stores all the data information and where (site) there are.
+ * Each simulation context has its own catalog, the static methods access the
+ * catalog of the calling thread.
+ *
+ * File names and sites are interned to dense int ids, and the sites of each
+ * file are kept in a bitset, so checking whether a file is on a vm does not
+ * compare strings. The methods taking names are kept for compatibility.
  *
  * @author Weiwei Chen
  * @since WorkflowSim Toolkit 1.0
@@ -38,18 +48,83 @@ public class ReplicaCatalog {
     public enum FileSystem {
         SHARED, LOCAL
     }
+
+    /**
+     * The sites of one file
+     */
+    private static class Replicas {
+
+        /**
+         * The ids of the sites
+         */
+        private final BitSet sites = new BitSet();
+        /**
+         * The ids of the sites in the order they were added
+         */
+        private int[] order = new int[2];
+        private int size = 0;
+        /**
+         * The names of the sites in the order they were added
+         */
+        private final List<String> names = new ArrayList<>(2);
+    }
+
     /**
-     * Map from file name to a file object
+     * The replica catalog of one simulation context
      */
-    private static Map<String, FileItem> fileName2File;
+    private static class State {
+
+        /**
+         * Map from file name to a file object
+         */
+        private Map<String, FileItem> fileName2File;
+        /**
+         * The selection of file.system
+         */
+        private FileSystem fileSystem;
+        /**
+         * Map from file name to file id
+         */
+        private Map<String, Integer> fileIds;
+        /**
+         * The file names by file id
+         */
+        private List<String> fileNames;
+        /**
+         * The sites of each file by file id, null if it has none
+         */
+        private List<Replicas> replicas;
+        /**
+         * Map from site name to site id
+         */
+        private Map<String, Integer> siteIds;
+        /**
+         * The site names by site id
+         */
+        private List<String> siteNames;
+        /**
+         * The vm id of each site id, -1 if the site is not a vm
+         */
+        private int[] siteVmIds;
+        /**
+         * The site id of each vm id, -1 if it is not interned yet
+         */
+        private int[] vmSiteIds;
+    }
+
     /**
-     * The selection of file.system
+     * The key of the replica catalog attached to a simulation context
      */
-    private static FileSystem fileSystem;
+    private static final SimulationContext.Key<State> STATE = SimulationContext.newKey(State::new);
+
     /**
-     * Map from file to a list of data storage
+     * Gets the replica catalog of the current simulation context
+     *
+     * @return the replica catalog
      */
-    private static Map<String, List<String>> dataReplicaCatalog;
+    private static State state() {
+        return SimulationContext.current().get(STATE);
+    }
 
     /**
      * Initialize a ReplicaCatalog
@@ -57,9 +132,17 @@ public class ReplicaCatalog {
      * @param fs the type of file system
      */
     public static void init(FileSystem fs) {
-        fileSystem = fs;
-        dataReplicaCatalog = new HashMap<>();
-        fileName2File = new HashMap<>();
+        State state = state();
+        state.fileSystem = fs;
+        state.fileName2File = new HashMap<>();
+        state.fileIds = new HashMap<>();
+        state.fileNames = new ArrayList<>();
+        state.replicas = new ArrayList<>();
+        state.siteIds = new HashMap<>();
+        state.siteNames = new ArrayList<>();
+        state.siteVmIds = new int[16];
+        state.vmSiteIds = new int[16];
+        Arrays.fill(state.vmSiteIds, -1);
     }
 
     /**
@@ -68,7 +151,7 @@ public class ReplicaCatalog {
      * @return file system
      */
     public static FileSystem getFileSystem() {
-        return fileSystem;
+        return state().fileSystem;
     }
 
     /**
@@ -78,7 +161,7 @@ public class ReplicaCatalog {
      * @return file object
      */
     public static FileItem getFile(String fileName) {
-        return fileName2File.get(fileName);
+        return state().fileName2File.get(fileName);
     }
 
     /**
@@ -88,7 +171,7 @@ public class ReplicaCatalog {
      * @param file , the file object
      */
     public static void setFile(String fileName, FileItem file) {
-        fileName2File.put(fileName, file);
+        state().fileName2File.put(fileName, file);
     }
 
     /**
@@ -98,17 +181,231 @@ public class ReplicaCatalog {
      * @return boolean, whether the file exist
      */
     public static boolean containsFile(String fileName) {
-        return fileName2File.containsKey(fileName);
+        return state().fileName2File.containsKey(fileName);
+    }
+
+    /**
+     * Gets the id of a file name, interning it if it has none yet
+     *
+     * @param fileName, the file name
+     * @return the file id
+     */
+    public static int getFileId(String fileName) {
+        State state = state();
+        Integer id = state.fileIds.get(fileName);
+        if (id == null) {
+            id = state.fileNames.size();
+            state.fileIds.put(fileName, id);
+            state.fileNames.add(fileName);
+            state.replicas.add(null);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a file, interning its name and storing the id in the
+     * file object if it has none yet
+     *
+     * @param file, the file object
+     * @return the file id
+     */
+    public static int getFileId(FileItem file) {
+        int id = file.getId();
+        if (id < 0) {
+            id = getFileId(file.getName());
+            file.setId(id);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the name of a file id
+     *
+     * @param fileId, the file id
+     * @return the file name
+     */
+    public static String getFileName(int fileId) {
+        return state().fileNames.get(fileId);
+    }
+
+    /**
+     * Gets the id of a site, interning it if it has none yet. A site whose
+     * name is a number is the vm with this id.
+     *
+     * @param site, the site name
+     * @return the site id
+     */
+    public static int getSiteId(String site) {
+        State state = state();
+        Integer id = state.siteIds.get(site);
+        if (id == null) {
+            id = state.siteNames.size();
+            state.siteIds.put(site, id);
+            state.siteNames.add(site);
+            if (id >= state.siteVmIds.length) {
+                state.siteVmIds = Arrays.copyOf(state.siteVmIds, state.siteVmIds.length * 2);
+            }
+            int vmId = parseVmId(site);
+            state.siteVmIds[id] = vmId;
+            if (vmId >= 0) {
+                if (vmId >= state.vmSiteIds.length) {
+                    int length = state.vmSiteIds.length;
+                    state.vmSiteIds = Arrays.copyOf(state.vmSiteIds, Math.max(vmId + 1, length * 2));
+                    Arrays.fill(state.vmSiteIds, length, state.vmSiteIds.length, -1);
+                }
+                state.vmSiteIds[vmId] = id;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Gets the site id of a vm, interning it if it has none yet
+     *
+     * @param vmId, the vm id
+     * @return the site id
+     */
+    public static int getVmSiteId(int vmId) {
+        int[] vmSiteIds = state().vmSiteIds;
+        if (vmId >= 0 && vmId < vmSiteIds.length && vmSiteIds[vmId] >= 0) {
+            return vmSiteIds[vmId];
+        }
+        return getSiteId(Integer.toString(vmId));
+    }
+
+    /**
+     * Gets the name of a site id
+     *
+     * @param siteId, the site id
+     * @return the site name
+     */
+    public static String getSiteName(int siteId) {
+        return state().siteNames.get(siteId);
+    }
+
+    /**
+     * Gets the vm id of a site id
+     *
+     * @param siteId, the site id
+     * @return the vm id, or -1 if the site is not a vm
+     */
+    public static int getVmId(int siteId) {
+        return state().siteVmIds[siteId];
+    }
+
+    /**
+     * Gets the vm id a site name stands for
+     *
+     * @param site, the site name
+     * @return the vm id, or -1 if the site is not a vm
+     */
+    private static int parseVmId(String site) {
+        if (site.isEmpty() || site.length() > 9 || (site.length() > 1 && site.charAt(0) == '0')) {
+            return -1;
+        }
+        for (int i = 0; i < site.length(); i++) {
+            if (!Character.isDigit(site.charAt(i))) {
+                return -1;
+            }
+        }
+        return Integer.parseInt(site);
+    }
+
+    /**
+     * Adds a file to a site
+     *
+     * @param fileId, the file id
+     * @param siteId, the site id
+     */
+    public static void addFileToSite(int fileId, int siteId) {
+        State state = state();
+        Replicas replicas = state.replicas.get(fileId);
+        if (replicas == null) {
+            replicas = new Replicas();
+            state.replicas.set(fileId, replicas);
+        }
+        if (!replicas.sites.get(siteId)) {
+            replicas.sites.set(siteId);
+            if (replicas.size == replicas.order.length) {
+                replicas.order = Arrays.copyOf(replicas.order, replicas.size * 2);
+            }
+            replicas.order[replicas.size++] = siteId;
+            replicas.names.add(state.siteNames.get(siteId));
+        }
+    }
+
+    /**
+     * Adds a file to a vm
+     *
+     * @param fileId, the file id
+     * @param vmId, the vm id
+     */
+    public static void addFileToVm(int fileId, int vmId) {
+        addFileToSite(fileId, getVmSiteId(vmId));
+    }
+
+    /**
+     * Checks whether a file is on a site
+     *
+     * @param fileId, the file id
+     * @param siteId, the site id
+     * @return whether the file is on the site
+     */
+    public static boolean isFileOnSite(int fileId, int siteId) {
+        Replicas replicas = state().replicas.get(fileId);
+        return replicas != null && replicas.sites.get(siteId);
+    }
+
+    /**
+     * Checks whether a file is on a vm
+     *
+     * @param fileId, the file id
+     * @param vmId, the vm id
+     * @return whether the file is on the vm
+     */
+    public static boolean isFileOnVm(int fileId, int vmId) {
+        State state = state();
+        Replicas replicas = state.replicas.get(fileId);
+        if (replicas == null || vmId < 0 || vmId >= state.vmSiteIds.length) {
+            return false;
+        }
+        int siteId = state.vmSiteIds[vmId];
+        return siteId >= 0 && replicas.sites.get(siteId);
+    }
+
+    /**
+     * Gets the number of sites of a file
+     *
+     * @param fileId, the file id
+     * @return the number of sites, 0 if the file has none
+     */
+    public static int getSiteNum(int fileId) {
+        Replicas replicas = state().replicas.get(fileId);
+        return replicas == null ? 0 : replicas.size;
+    }
+
+    /**
+     * Gets a site of a file, in the order they were added
+     *
+     * @param fileId, the file id
+     * @param index, the index of the site
+     * @return the site id
+     */
+    public static int getSiteId(int fileId, int index) {
+        return state().replicas.get(fileId).order[index];
     }
 
     /**
      * Gets the list of storages a file exists
      *
      * @param file the file object
-     * @return list of storages
+     * @return list of storages, null if the file is on none
      */
     public static List<String> getStorageList(String file) {
-        return dataReplicaCatalog.get(file);
+        State state = state();
+        Integer id = state.fileIds.get(file);
+        Replicas replicas = id == null ? null : state.replicas.get(id);
+        return replicas == null ? null : Collections.unmodifiableList(replicas.names);
     }
 
     /**
@@ -118,13 +415,6 @@ public class ReplicaCatalog {
      * @param storage , the storage associated with this file
      */
     public static void addFileToStorage(String file, String storage) {
-        if (!dataReplicaCatalog.containsKey(file)) {
-            dataReplicaCatalog.put(file, new ArrayList<>());
-        }
-        List<String> list = getStorageList(file);
-        if (!list.contains(storage)) {
-            list.add(storage);
-        }
-	//dataReplicaCatalog.put(file, list);
+        addFileToSite(getFileId(file), getSiteId(storage));
     }
 }